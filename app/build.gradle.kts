@@ -48,6 +48,7 @@ android {
 dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
+    implementation(libs.recyclerview)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     implementation(libs.navigation.runtime.android)
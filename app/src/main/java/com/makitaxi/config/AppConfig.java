@@ -10,6 +10,8 @@ public class AppConfig {
     public static final String NODE_DRIVER_NOTIFICATIONS = "driver_notifications";
     public static final String NODE_PASSENGER_RESPONSE = "passenger_response";
     public static final String NODE_FEEDBACK_REQUESTS = "feedback_requests";
+    public static final String NODE_USER_RIDES = "user_rides";
+    public static final String NODE_USER_RIDES_META = "user_rides_meta";
     
     public static final int MIN_RIDE_DISTANCE_KM = 1;
     public static final int MIN_FEEDBACK_CHARACTERS = 20;
@@ -17,6 +19,7 @@ public class AppConfig {
     public static final double INITIAL_SEARCH_RADIUS_KM = 2.0;
     public static final double MAX_SEARCH_RADIUS_KM = 10.0;
     public static final double RADIUS_INCREMENT_KM = 2.0;
+    public static final int HISTORY_MAP_ROUTE_CONCURRENCY = 4;
     
     public static final String CAR_TYPE_BASIC = "BASIC";
     public static final String CAR_TYPE_LUXURY = "LUXURY";
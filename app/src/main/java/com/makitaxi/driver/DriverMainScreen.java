@@ -172,6 +172,10 @@ public class DriverMainScreen extends AppCompatActivity {
             mapView.onDetach();
         }
 
+        if (map != null) {
+            map.cancelPendingRoutes();
+        }
+
         if (uiManager != null) {
             uiManager.cleanup();
         }
@@ -10,6 +10,7 @@ import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
 import com.makitaxi.model.FeedbackRequest;
 import com.makitaxi.model.RideRequest;
@@ -154,7 +155,14 @@ public class DriverRideManager {
                 System.currentTimeMillis()
         );
 
-        FirebaseHelper.getFeedbackRequestsRef().child(feedbackId).setValue(feedbackRequest)
+        // The feedback and both participants' history index entries are written atomically.
+        // Index entries hold the server time of the write, so history sync never relies on a device clock
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(AppConfig.NODE_FEEDBACK_REQUESTS + "/" + feedbackId, feedbackRequest);
+        updates.put(AppConfig.NODE_USER_RIDES + "/" + request.getPassengerId() + "/" + feedbackId, ServerValue.TIMESTAMP);
+        updates.put(AppConfig.NODE_USER_RIDES + "/" + request.getDriverId() + "/" + feedbackId, ServerValue.TIMESTAMP);
+
+        FirebaseHelper.getRootRef().updateChildren(updates)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Feedback request created successfully");
                 })
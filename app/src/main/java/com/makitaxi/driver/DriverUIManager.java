@@ -258,6 +258,9 @@ public class DriverUIManager {
         }
 
         startRideRequestTimer(request);
+        if (mapDriver != null) {
+            mapDriver.prefetchRideRoutes(request);
+        }
         
         btnAccept.setOnClickListener(v -> {
             stopRideRequestTimer();
@@ -282,6 +285,7 @@ public class DriverUIManager {
             if (rideActionListener != null) {
                 rideActionListener.onRideDeclined(request);
             }
+            discardPrefetchedRoutes();
             rideRequestDialog.dismiss();
         });
         
@@ -291,6 +295,7 @@ public class DriverUIManager {
                     .addOnSuccessListener(aVoid -> {
                         FirebaseHelper.getUserRequestsRef().child(driverId).child("activeRide").setValue(false);
                         ToastUtils.showWarning(activity, "Ride cancelled");
+                        discardPrefetchedRoutes();
                         rideRequestDialog.dismiss();
                         listenForRideRequests();
                         activeRideRequestId = null;
@@ -367,10 +372,14 @@ public class DriverUIManager {
                 updateDriverStatusUI();
                 showRideDetailsPanel(rideRequest);
                 drawRouteForRide(rideRequest);
+                if (mapDriver != null) {
+                    mapDriver.keepPrefetchedRoutes();
+                }
                 txtStatus.setText("On a ride");
                 break;
 
             case DECLINED_BY_PASSENGER:
+                discardPrefetchedRoutes();
                 updateDriverStatusUI();
                 hideRideDetailsPanel();
                 clearRoute();
@@ -484,7 +493,6 @@ public class DriverUIManager {
             rideRequest.getDropoffLatitude() != 0 && rideRequest.getDropoffLongitude() != 0) {
             
             GeoPoint pickupPoint = new GeoPoint(rideRequest.getPickupLatitude(), rideRequest.getPickupLongitude());
-            GeoPoint dropoffPoint = new GeoPoint(rideRequest.getDropoffLatitude(), rideRequest.getDropoffLongitude());
             
             GeoPoint driverLocation = mapDriver.getCurrentLocation();
             if (driverLocation == null) {
@@ -496,7 +504,7 @@ public class DriverUIManager {
                 @Override
                 public void onRouteFound(List<GeoPoint> routePoints, double distance, double duration) {
 
-                    mapDriver.drawPickupToDestinationRoute(pickupPoint, dropoffPoint, new MapDriver.RoutingCallback() {
+                    mapDriver.drawPickupToDestinationRoute(rideRequest, new MapDriver.RoutingCallback() {
                         @Override
                         public void onRouteFound(List<GeoPoint> routePoints, double distance, double duration) {
                         }
@@ -551,6 +559,13 @@ public class DriverUIManager {
             rideRequestDialog.dismiss();
         }
         stopRideRequestTimer();
+        discardPrefetchedRoutes();
+    }
+
+    private void discardPrefetchedRoutes() {
+        if (mapDriver != null) {
+            mapDriver.discardPrefetchedRoutes();
+        }
     }
 
     public boolean hasActiveRide() {
@@ -591,6 +606,7 @@ public class DriverUIManager {
                     if (rideActionListener != null) {
                         rideActionListener.onRideTimeout(request);
                     }
+                    discardPrefetchedRoutes();
                     rideRequestDialog.dismiss();
                 }
             }
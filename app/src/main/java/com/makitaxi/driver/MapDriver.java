@@ -14,10 +14,10 @@ import android.view.View;
 import androidx.core.content.ContextCompat;
 
 import com.makitaxi.R;
+import com.makitaxi.model.RideRequest;
+import com.makitaxi.utils.PolylineCodec;
+import com.makitaxi.utils.RouteService;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.osmdroid.api.IMapController;
 import org.osmdroid.events.MapEventsReceiver;
 import org.osmdroid.events.MapListener;
@@ -34,21 +34,14 @@ import org.osmdroid.views.overlay.Polyline;
 import org.osmdroid.views.overlay.mylocation.GpsMyLocationProvider;
 import org.osmdroid.views.overlay.mylocation.MyLocationNewOverlay;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class MapDriver {
     private static final double DEFAULT_ZOOM = 16;
     private static final double MIN_ZOOM = 3;
     private static final double MAX_ZOOM = 21;
     private static final GeoPoint BELGRADE_CENTER = new GeoPoint(44.7866, 20.4489);
-    private static final String OSRM_BASE_URL = "https://router.project-osrm.org/route/v1/driving/";
 
     private Context context;
     private MapView mapView;
@@ -58,18 +51,18 @@ public class MapDriver {
     private Marker startMarker;
     private Marker destinationMarker;
     private Polyline routePolyline;
-    private ExecutorService executorService;
+    private RouteService routeService;
+    private final List<RouteService.RouteHandle> pendingRoutes = new ArrayList<>();
+    private final List<RouteService.RouteHandle> prefetchedRoutes = new ArrayList<>();
     private Handler mainHandler;
 
-    public interface RoutingCallback {
-        void onRouteFound(List<GeoPoint> routePoints, double distance, double duration);
-        void onRoutingError(String error);
+    public interface RoutingCallback extends RouteService.RoutingCallback {
     }
 
     public MapDriver(Context context, MapView mapView) {
         this.context = context;
         this.mapView = mapView;
-        this.executorService = Executors.newSingleThreadExecutor();
+        this.routeService = RouteService.getInstance();
         this.mainHandler = new Handler(Looper.getMainLooper());
         setupMapView();
     }
@@ -220,57 +213,19 @@ public class MapDriver {
             return;
         }
 
-        String url = OSRM_BASE_URL + start.getLongitude() + "," + start.getLatitude() + ";" +
-                end.getLongitude() + "," + end.getLatitude() + "?overview=full&geometries=geojson";
-
-        executorService.execute(() -> {
-            try {
-                URL urlObj = new URL(url);
-                HttpURLConnection connection = (HttpURLConnection) urlObj.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(10000);
-                connection.setReadTimeout(10000);
-
-                int responseCode = connection.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-
-                    JSONObject jsonResponse = new JSONObject(response.toString());
-                    if (jsonResponse.has("routes") && jsonResponse.getJSONArray("routes").length() > 0) {
-                        JSONObject route = jsonResponse.getJSONArray("routes").getJSONObject(0);
-                        JSONObject geometry = route.getJSONObject("geometry");
-                        JSONArray coordinates = geometry.getJSONArray("coordinates");
-
-                        List<GeoPoint> routePoints = new ArrayList<>();
-                        for (int i = 0; i < coordinates.length(); i++) {
-                            JSONArray coord = coordinates.getJSONArray(i);
-                            double lon = coord.getDouble(0);
-                            double lat = coord.getDouble(1);
-                            routePoints.add(new GeoPoint(lat, lon));
-                        }
-
-                        double distance = route.getDouble("distance") / 1000.0; // Convert to km
-                        double duration = route.getDouble("duration") / 60.0; // Convert to minutes
-
-                        callback.onRouteFound(routePoints, distance, duration);
-                    } else {
-                        callback.onRoutingError("No route found");
-                    }
-                } else {
-                    callback.onRoutingError("HTTP Error: " + responseCode);
-                }
-                connection.disconnect();
-            } catch (Exception e) {
-                Log.e("MapDriver", "Error getting route", e);
-                callback.onRoutingError("Network error: " + e.getMessage());
+        synchronized (pendingRoutes) {
+            pendingRoutes.removeIf(RouteService.RouteHandle::isDone);
+            pendingRoutes.add(routeService.getRoute(start, end, callback));
+        }
+    }
+
+    public void cancelPendingRoutes() {
+        synchronized (pendingRoutes) {
+            for (RouteService.RouteHandle handle : pendingRoutes) {
+                handle.cancel();
             }
-        });
+            pendingRoutes.clear();
+        }
     }
 
     private void zoomToShowRoute(List<GeoPoint> routePoints) {
@@ -407,6 +362,65 @@ public class MapDriver {
         });
     }
 
+    /**
+     * Starts fetching the driver-to-pickup and pickup-to-dropoff routes while the driver is
+     * still looking at the offer, so both are in the route cache by the time the ride starts.
+     */
+    public void prefetchRideRoutes(RideRequest rideRequest) {
+        discardPrefetchedRoutes();
+
+        GeoPoint pickupPoint = new GeoPoint(rideRequest.getPickupLatitude(), rideRequest.getPickupLongitude());
+        GeoPoint driverLocation = getCurrentLocation();
+        if (driverLocation != null) {
+            prefetchRoute(driverLocation, pickupPoint);
+        }
+        if (rideRequest.getRoutePolyline() == null) {
+            GeoPoint dropoffPoint = new GeoPoint(rideRequest.getDropoffLatitude(), rideRequest.getDropoffLongitude());
+            prefetchRoute(pickupPoint, dropoffPoint);
+        }
+    }
+
+    /**
+     * Offer declined or expired: stops the prefetches and drops the routes only they fetched
+     * from the cache.
+     */
+    public void discardPrefetchedRoutes() {
+        for (RouteService.RouteHandle handle : prefetchedRoutes) {
+            routeService.discardPrefetch(handle);
+        }
+        prefetchedRoutes.clear();
+    }
+
+    /**
+     * Ride confirmed: the prefetched routes stay in the cache for the map to use.
+     */
+    public void keepPrefetchedRoutes() {
+        prefetchedRoutes.clear();
+    }
+
+    private void prefetchRoute(GeoPoint start, GeoPoint end) {
+        prefetchedRoutes.add(routeService.prefetch(start, end));
+    }
+
+    /**
+     * Draws the ride's route from the geometry stored on the request by the passenger,
+     * and only asks OSRM when the request has none (rides created by older app versions).
+     */
+    public void drawPickupToDestinationRoute(RideRequest rideRequest, RoutingCallback callback) {
+        List<GeoPoint> storedRoute = PolylineCodec.decode(rideRequest.getRoutePolyline());
+        if (storedRoute.size() >= 2) {
+            mainHandler.post(() -> {
+                displayPickupToDestinationRoute(storedRoute);
+                callback.onRouteFound(storedRoute, rideRequest.getDistance(), rideRequest.getDuration());
+            });
+            return;
+        }
+
+        GeoPoint pickupPoint = new GeoPoint(rideRequest.getPickupLatitude(), rideRequest.getPickupLongitude());
+        GeoPoint destinationPoint = new GeoPoint(rideRequest.getDropoffLatitude(), rideRequest.getDropoffLongitude());
+        drawPickupToDestinationRoute(pickupPoint, destinationPoint, callback);
+    }
+
     public void drawPickupToDestinationRoute(GeoPoint pickupPoint, GeoPoint destinationPoint, RoutingCallback callback) {
         getRouteFromOSRM(pickupPoint, destinationPoint, new MapDriver.RoutingCallback() {
             @Override
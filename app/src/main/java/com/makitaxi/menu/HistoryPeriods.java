@@ -0,0 +1,105 @@
+package com.makitaxi.menu;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keys of the day, week and month buckets that ride totals are aggregated into, in the
+ * device's time zone. Weeks start on Monday and are keyed by that Monday's date, so a week
+ * that spans two months still has a single key.
+ *
+ * {@link #cover} splits a range of whole days into the fewest buckets that add up to exactly
+ * that range: whole months where they fit, then whole weeks, then single days.
+ */
+final class HistoryPeriods {
+
+    static final String LIFETIME = "T";
+
+    private static final String DAY = "D";
+    private static final String WEEK = "W";
+    private static final String MONTH = "M";
+
+    private HistoryPeriods() {
+    }
+
+    /**
+     * The buckets a ride at this time counts towards.
+     */
+    static List<String> bucketsFor(long timestamp) {
+        Calendar day = startOfDay(timestamp);
+        List<String> keys = new ArrayList<>(4);
+        keys.add(LIFETIME);
+        keys.add(dayKey(day));
+        keys.add(weekKey(day));
+        keys.add(monthKey(day));
+        return keys;
+    }
+
+    /**
+     * Buckets covering every day from the day of {@code from} to the day of {@code to},
+     * both included, with no day counted twice.
+     */
+    static List<String> cover(long from, long to) {
+        List<String> keys = new ArrayList<>();
+        Calendar day = startOfDay(from);
+        Calendar last = startOfDay(to);
+
+        while (!day.after(last)) {
+            if (day.get(Calendar.DAY_OF_MONTH) == 1) {
+                Calendar monthEnd = (Calendar) day.clone();
+                monthEnd.add(Calendar.MONTH, 1);
+                monthEnd.add(Calendar.DAY_OF_MONTH, -1);
+                if (!monthEnd.after(last)) {
+                    keys.add(monthKey(day));
+                    day.add(Calendar.MONTH, 1);
+                    continue;
+                }
+            }
+            if (day.get(Calendar.DAY_OF_WEEK) == Calendar.MONDAY) {
+                Calendar weekEnd = (Calendar) day.clone();
+                weekEnd.add(Calendar.DAY_OF_MONTH, 6);
+                if (!weekEnd.after(last)) {
+                    keys.add(weekKey(day));
+                    day.add(Calendar.DAY_OF_MONTH, 7);
+                    continue;
+                }
+            }
+            keys.add(dayKey(day));
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return keys;
+    }
+
+    private static Calendar startOfDay(long timestamp) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timestamp);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar;
+    }
+
+    private static String dayKey(Calendar day) {
+        return DAY + format(day);
+    }
+
+    private static String weekKey(Calendar day) {
+        Calendar monday = (Calendar) day.clone();
+        // Days since Monday, with Sunday as the last day of the week
+        int offset = (monday.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+        monday.add(Calendar.DAY_OF_MONTH, -offset);
+        return WEEK + format(monday);
+    }
+
+    private static String monthKey(Calendar day) {
+        return String.format(Locale.US, "%s%04d-%02d", MONTH, day.get(Calendar.YEAR), day.get(Calendar.MONTH) + 1);
+    }
+
+    private static String format(Calendar day) {
+        return String.format(Locale.US, "%04d-%02d-%02d",
+                day.get(Calendar.YEAR), day.get(Calendar.MONTH) + 1, day.get(Calendar.DAY_OF_MONTH));
+    }
+}
@@ -0,0 +1,185 @@
+package com.makitaxi.menu;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.makitaxi.utils.RouteService;
+
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads routes for the ride history map with a bounded number of parallel OSRM calls.
+ *
+ * Rides inside the current viewport are fetched first. Finished routes are collected and
+ * handed to the listener at most once per frame, so the activity adds a whole batch of
+ * polylines with a single invalidate. All methods must be called on the main thread.
+ */
+public class HistoryRouteLoader {
+
+    private static final String TAG = "HistoryRouteLoader";
+
+    public interface Listener {
+        void onRoutesLoaded(List<LoadedRoute> routes, int completed, int total);
+
+        void onAllRoutesLoaded();
+    }
+
+    public static class LoadedRoute {
+        public final int index;
+        public final List<GeoPoint> routePoints;
+
+        LoadedRoute(int index, List<GeoPoint> routePoints) {
+            this.index = index;
+            this.routePoints = routePoints;
+        }
+    }
+
+    private static class Job {
+        final int index;
+        final GeoPoint start;
+        final GeoPoint end;
+        RouteService.RouteHandle handle;
+
+        Job(int index, GeoPoint start, GeoPoint end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final int maxConcurrent;
+    private final Listener listener;
+    private final RouteService routeService;
+    private final Handler mainHandler;
+
+    private final List<Job> pending = new ArrayList<>();
+    private final List<Job> running = new ArrayList<>();
+    private final List<LoadedRoute> readyBatch = new ArrayList<>();
+
+    private BoundingBox viewport;
+    private boolean frameScheduled = false;
+    private boolean cancelled = false;
+    private int total = 0;
+    private int completed = 0;
+
+    private final Choreographer.FrameCallback flushCallback = frameTimeNanos -> flushBatch();
+
+    public HistoryRouteLoader(int maxConcurrent, Listener listener) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.listener = listener;
+        this.routeService = RouteService.getInstance();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public void addRoute(int index, GeoPoint start, GeoPoint end) {
+        if (cancelled) return;
+        pending.add(new Job(index, start, end));
+        total++;
+    }
+
+    public void start() {
+        if (total == 0) {
+            listener.onAllRoutesLoaded();
+            return;
+        }
+        prioritizeViewport();
+        dispatch();
+    }
+
+    /**
+     * Moves rides that touch the given bounding box to the front of the queue.
+     * Rides that are already being fetched are not affected.
+     */
+    public void setViewport(BoundingBox viewport) {
+        this.viewport = viewport;
+        prioritizeViewport();
+    }
+
+    public void cancel() {
+        cancelled = true;
+        for (Job job : running) {
+            if (job.handle != null) {
+                job.handle.cancel();
+            }
+        }
+        running.clear();
+        pending.clear();
+        readyBatch.clear();
+        if (frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(flushCallback);
+            frameScheduled = false;
+        }
+    }
+
+    private void prioritizeViewport() {
+        if (viewport == null || pending.size() < 2) return;
+        // Stable sort keeps the original ride order inside each group
+        Collections.sort(pending, (a, b) -> Boolean.compare(!isVisible(a), !isVisible(b)));
+    }
+
+    private boolean isVisible(Job job) {
+        return viewport.contains(job.start) || viewport.contains(job.end);
+    }
+
+    private void dispatch() {
+        while (!cancelled && running.size() < maxConcurrent && !pending.isEmpty()) {
+            Job job = pending.remove(0);
+            running.add(job);
+            job.handle = routeService.getRoute(job.start, job.end, new RouteService.RoutingCallback() {
+                @Override
+                public void onRouteFound(List<GeoPoint> routePoints, double distance, double duration) {
+                    mainHandler.post(() -> onJobFinished(job, routePoints));
+                }
+
+                @Override
+                public void onRouteEstimated(List<GeoPoint> routePoints, double distance, double duration) {
+                    // Straight lines would only clutter the history map
+                    mainHandler.post(() -> onJobFinished(job, null));
+                }
+
+                @Override
+                public void onRoutingError(String error) {
+                    Log.e(TAG, "Error getting route for ride " + job.index + ": " + error);
+                    mainHandler.post(() -> onJobFinished(job, null));
+                }
+            });
+        }
+    }
+
+    private void onJobFinished(Job job, List<GeoPoint> routePoints) {
+        if (cancelled || !running.remove(job)) return;
+
+        completed++;
+        if (routePoints != null && !routePoints.isEmpty()) {
+            readyBatch.add(new LoadedRoute(job.index, routePoints));
+        }
+        scheduleFlush();
+        dispatch();
+    }
+
+    private void scheduleFlush() {
+        if (frameScheduled) return;
+        frameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(flushCallback);
+    }
+
+    private void flushBatch() {
+        frameScheduled = false;
+        if (cancelled) return;
+
+        List<LoadedRoute> batch = new ArrayList<>(readyBatch);
+        readyBatch.clear();
+        listener.onRoutesLoaded(batch, completed, total);
+
+        if (completed >= total) {
+            listener.onAllRoutesLoaded();
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package com.makitaxi.menu;
 
 
-import static com.google.android.material.internal.ViewUtils.dpToPx;
-
 import android.app.AlertDialog;
 import android.app.DatePickerDialog;
 import android.Manifest;
@@ -31,6 +29,9 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.ConcatAdapter;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.makitaxi.utils.ToastUtils;
 import com.makitaxi.config.AppConfig;
@@ -40,19 +41,20 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
 import com.makitaxi.R;
 import com.makitaxi.model.FeedbackRequest;
 import com.makitaxi.model.User;
 import com.makitaxi.utils.FirebaseHelper;
+import com.makitaxi.utils.PreferencesManager;
+import com.makitaxi.utils.UserNameCache;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -60,18 +62,20 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
-import android.graphics.pdf.PdfDocument;
-import android.graphics.Paint;
-import android.graphics.Color;
-import android.graphics.Typeface;
 
 public class HistoryScreen extends AppCompatActivity {
 
     private static final String TAG = "HistoryScreen";
     private static final int PERMISSION_REQUEST_CODE = 1001;
 
+    // Next page is requested when fewer rows than this are left below the screen
+    private static final int PREFETCH_ROWS = 10;
+    private static final String BACKFILLED_KEY = "backfilled";
+
     private ImageButton btnBack;
-    private LinearLayout rideHistoryContainer;
+    private RecyclerView historyRecyclerView;
+    private LinearLayoutManager historyLayoutManager;
+    private RideHistoryAdapter historyAdapter;
     private LinearLayout emptyStateContainer;
     private LinearLayout statisticsContainer;
     private TextView txtTotalEarnings;
@@ -86,6 +90,7 @@ public class HistoryScreen extends AppCompatActivity {
     private Button btnClearFilter;
     private Button btnShowMap;
     private Button btnGeneratePDF;
+    private Button btnExportRides;
 
     private FirebaseAuth auth;
     private FirebaseDatabase database;
@@ -93,16 +98,17 @@ public class HistoryScreen extends AppCompatActivity {
     private String userType;
     private Animation pulseAnimation;
 
-    private List<FeedbackRequest> feedbackHistory = new ArrayList<>();
-    private List<FeedbackRequest> filteredHistory = new ArrayList<>();
-    private List<User> userList = new ArrayList<>();
+    private final RideHistoryModel historyModel = new RideHistoryModel();
+    // Ids of the people in the user filter, in spinner order after "All users"
+    private List<String> userIds = new ArrayList<>();
+    private RideHistoryRepository historyRepository;
     
     private long dateFrom = 0;
     private long dateTo = 0;
+    // Kept by id, since a refreshed user list can put the same person at another position
     private String selectedUserId = null;
-    private boolean isFilterActive = false;
     private boolean userListLoaded = false;
-    private int lastSelectedSpinnerPosition = 0;
+    private boolean reportInProgress = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -120,25 +126,52 @@ public class HistoryScreen extends AppCompatActivity {
         loadRideHistory();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (historyRepository != null) {
+            // Drops the page in flight and the ride listeners so nothing touches destroyed views
+            historyRepository.release();
+        }
+    }
+
     private void initializeViews() {
-        btnBack = findViewById(R.id.btnBack);
-        rideHistoryContainer = findViewById(R.id.rideHistoryContainer);
-        emptyStateContainer = findViewById(R.id.emptyStateContainer);
-        statisticsContainer = findViewById(R.id.statisticsContainer);
-        txtTotalEarnings = findViewById(R.id.txtTotalEarnings);
-        txtTotalDistance = findViewById(R.id.txtTotalDistance);
-        txtEarningsLabel = findViewById(R.id.txtEarningsLabel);
-        txtUserLabel = findViewById(R.id.txtUserLabel);
-        txtUserInfo = findViewById(R.id.txtUserInfo);
-        btnDateFrom = findViewById(R.id.btnDateFrom);
-        btnDateTo = findViewById(R.id.btnDateTo);
-        spinnerUserFilter = findViewById(R.id.spinnerUserFilter);
-        btnApplyFilter = findViewById(R.id.btnApplyFilter);
-        btnClearFilter = findViewById(R.id.btnClearFilter);
-        btnShowMap = findViewById(R.id.btnShowMap);
-        btnGeneratePDF = findViewById(R.id.btnGeneratePDF);
+        historyRecyclerView = findViewById(R.id.historyRecyclerView);
+        // Filters and statistics scroll away with the rides as the first item of the list
+        View header = LayoutInflater.from(this).inflate(R.layout.history_header, historyRecyclerView, false);
+        btnBack = header.findViewById(R.id.btnBack);
+        emptyStateContainer = header.findViewById(R.id.emptyStateContainer);
+        statisticsContainer = header.findViewById(R.id.statisticsContainer);
+        txtTotalEarnings = header.findViewById(R.id.txtTotalEarnings);
+        txtTotalDistance = header.findViewById(R.id.txtTotalDistance);
+        txtEarningsLabel = header.findViewById(R.id.txtEarningsLabel);
+        txtUserLabel = header.findViewById(R.id.txtUserLabel);
+        txtUserInfo = header.findViewById(R.id.txtUserInfo);
+        btnDateFrom = header.findViewById(R.id.btnDateFrom);
+        btnDateTo = header.findViewById(R.id.btnDateTo);
+        spinnerUserFilter = header.findViewById(R.id.spinnerUserFilter);
+        btnApplyFilter = header.findViewById(R.id.btnApplyFilter);
+        btnClearFilter = header.findViewById(R.id.btnClearFilter);
+        btnShowMap = header.findViewById(R.id.btnShowMap);
+        btnGeneratePDF = header.findViewById(R.id.btnGeneratePDF);
+        btnExportRides = header.findViewById(R.id.btnExportRides);
+        historyAdapter = new RideHistoryAdapter(new RideHistoryAdapter.OnRideActionListener() {
+            @Override
+            public void onViewFeedback(FeedbackRequest feedback) {
+                openFeedbackDetails(feedback);
+            }
+
+            @Override
+            public void onGiveFeedback(FeedbackRequest feedback) {
+                showRatingDialog(feedback);
+            }
+        });
+        historyLayoutManager = new LinearLayoutManager(this);
+        historyRecyclerView.setLayoutManager(historyLayoutManager);
+        historyRecyclerView.setAdapter(new ConcatAdapter(new HeaderAdapter(header), historyAdapter));
         btnShowMap.setVisibility(View.GONE);
         btnGeneratePDF.setVisibility(View.GONE);
+        btnExportRides.setVisibility(View.GONE);
     }
 
     private void setupUIInteractions() {
@@ -153,6 +186,13 @@ public class HistoryScreen extends AppCompatActivity {
         btnClearFilter.setOnClickListener(v -> clearFilters());
         btnShowMap.setOnClickListener(v -> showRideHistoryMap());
         btnGeneratePDF.setOnClickListener(v -> generatePDFReport());
+        btnExportRides.setOnClickListener(v -> showExportOptions());
+        historyRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                prefetchIfNearEnd();
+            }
+        });
     }
 
     private void showDatePicker(boolean isFromDate) {
@@ -183,42 +223,16 @@ public class HistoryScreen extends AppCompatActivity {
         datePickerDialog.show();
     }
 
+    // Only users from the caller's own rides can be picked, so they come from the stored history
     private void loadUserList() {
-        if (currentUser == null || userType == null) return;
+        if (currentUser == null || userType == null || historyRepository == null) return;
 
-        FirebaseHelper.getFeedbackRequestsRef().addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                Set<String> interactingUserIds = new HashSet<>();
-                String currentUserId = currentUser.getUid();
-                
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    FeedbackRequest feedback = snapshot.getValue(FeedbackRequest.class);
-                    if (feedback != null) {
-                        if (userType.equals("driver")) {
-                            if (currentUserId.equals(feedback.getDriverId())) {
-                                interactingUserIds.add(feedback.getPassengerId());
-                            }
-                        } else {
-                            if (currentUserId.equals(feedback.getPassengerId())) {
-                                interactingUserIds.add(feedback.getDriverId());
-                            }
-                        }
-                    }
-                }
-                
-                loadInteractingUsers(interactingUserIds);
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e(TAG, "Error loading feedback requests: " + databaseError.getMessage());
-            }
-        });
+        historyRepository.loadCounterpartyIds(ids -> loadInteractingUsers(new HashSet<>(ids)));
     }
 
     private void loadInteractingUsers(Set<String> interactingUserIds) {
         if (interactingUserIds.isEmpty()) {
+            userIds.clear();
             List<String> userNames = new ArrayList<>();
             userNames.add("All users");
             setupUserSpinner(userNames);
@@ -230,32 +244,22 @@ public class HistoryScreen extends AppCompatActivity {
             return;
         }
 
-        database.getReference("users").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                userList.clear();
-                List<String> userNames = new ArrayList<>();
-                userNames.add("All users");
-                
-                for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    String userId = snapshot.getKey();
-                    User user = snapshot.getValue(User.class);
-                    
-                    if (user != null && interactingUserIds.contains(userId)) {
-                        userList.add(user);
-                        userNames.add(user.getFullName());
-                    }
-                }
-                
-                setupUserSpinner(userNames);
-                restoreSpinnerSelection();
-                userListLoaded = true;
-            }
+        // Only the names are needed, so only the names are read, and each one once per process
+        UserNameCache.getInstance().load(interactingUserIds, names -> {
+            // Sorted by name, but picked by id, so two people with the same name stay apart
+            userIds.clear();
+            userIds.addAll(names.keySet());
+            Collections.sort(userIds, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(names.get(a), names.get(b)));
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                Log.e(TAG, "Error loading interacting users: " + databaseError.getMessage());
+            List<String> userNames = new ArrayList<>();
+            userNames.add("All users");
+            for (String userId : userIds) {
+                userNames.add(names.get(userId));
             }
+
+            setupUserSpinner(userNames);
+            restoreSpinnerSelection();
+            userListLoaded = true;
         });
     }
 
@@ -271,12 +275,10 @@ public class HistoryScreen extends AppCompatActivity {
                         spinnerUserFilter.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
                     @Override
                     public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                        lastSelectedSpinnerPosition = position;
                         if (position == 0) {
                             selectedUserId = null;
                         } else {
-                            User selectedUser = userList.get(position - 1);
-                            selectedUserId = selectedUser.getFullName();
+                            selectedUserId = userIds.get(position - 1);
                         }
                     }
 
@@ -288,22 +290,16 @@ public class HistoryScreen extends AppCompatActivity {
     }
 
     private void applyFilters() {
-        rememberSpinnerSelection();
-        
-        isFilterActive = true;
-        filterHistory();
-        updateStatistics();
         updateEarningsLabel();
         updateUserLabels();
-        displayRideHistory();
+        // Filters are part of the query, so paging starts again from the top
+        reloadRideHistory();
     }
 
     private void clearFilters() {
-        isFilterActive = false;
         dateFrom = 0;
         dateTo = 0;
         selectedUserId = null;
-        lastSelectedSpinnerPosition = 0;
         
         btnDateFrom.setText("From");
         btnDateTo.setText("To");
@@ -311,75 +307,45 @@ public class HistoryScreen extends AppCompatActivity {
         updateEarningsLabel();
         updateUserLabels();
         
-        filteredHistory.clear();
-        displayRideHistory();
+        reloadRideHistory();
     }
 
-    private void filterHistory() {
-        filteredHistory.clear();
-        
-        for (FeedbackRequest feedback : feedbackHistory) {
-            boolean passesDateFilter = true;
-            boolean passesUserFilter = true;
-            
-            if (dateFrom > 0 || dateTo > 0) {
-                long feedbackTime = feedback.getTimestamp();
-                
-                if (dateFrom > 0 && feedbackTime < dateFrom) {
-                    passesDateFilter = false;
-                }
-                
-                if (dateTo > 0) {
-                    Calendar calendar = Calendar.getInstance();
-                    calendar.setTimeInMillis(dateTo);
-                    calendar.set(Calendar.HOUR_OF_DAY, 23);
-                    calendar.set(Calendar.MINUTE, 59);
-                    calendar.set(Calendar.SECOND, 59);
-                    long endOfDay = calendar.getTimeInMillis();
-                    
-                    if (feedbackTime > endOfDay) {
-                        passesDateFilter = false;
-                    }
-                }
-            }
-            
-            if (selectedUserId != null) {
-                if (userType.equals("driver")) {
-                    if (!selectedUserId.equals(feedback.getPassengerName())) {
-                        passesUserFilter = false;
-                    }
-                } else {
-                    if (!selectedUserId.equals(feedback.getDriverName())) {
-                        passesUserFilter = false;
-                    }
-                }
-            }
-            
-            if (passesDateFilter && passesUserFilter) {
-                filteredHistory.add(feedback);
-            }
-        }
+    // Bounds are whole days, which is also what the stored day, week and month totals cover
+    private static long startOfDay(long date) {
+        if (date <= 0) return 0;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long endOfDay(long date) {
+        if (date <= 0) return 0;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 23);
+        calendar.set(Calendar.MINUTE, 59);
+        calendar.set(Calendar.SECOND, 59);
+        calendar.set(Calendar.MILLISECOND, 999);
+        return calendar.getTimeInMillis();
     }
 
+    // Totals cover every stored ride matching the filter, not only the pages loaded so far. With
+    // only dates set they are summed from per-period totals instead of read ride by ride.
     private void updateStatistics() {
-        List<FeedbackRequest> statsList = isFilterActive ? filteredHistory : feedbackHistory;
-        
-        if (statsList.isEmpty()) {
-            statisticsContainer.setVisibility(View.GONE);
-            return;
-        }
-        
-        double totalEarnings = 0;
-        double totalDistance = 0;
-        
-        for (FeedbackRequest feedback : statsList) {
-            totalEarnings += feedback.getPrice();
-            totalDistance += feedback.getDistance();
-        }
-        
-        txtTotalEarnings.setText(String.format("%.0f din", totalEarnings));
-        txtTotalDistance.setText(String.format("%.1f km", totalDistance));
-        statisticsContainer.setVisibility(View.VISIBLE);
+        if (historyRepository == null) return;
+        historyRepository.loadTotals(totals -> {
+            if (totals.rideCount == 0) {
+                statisticsContainer.setVisibility(View.GONE);
+                return;
+            }
+            txtTotalEarnings.setText(String.format("%.0f din", totals.totalPrice));
+            txtTotalDistance.setText(String.format("%.1f km", totals.totalDistance));
+            statisticsContainer.setVisibility(View.VISIBLE);
+        });
     }
 
     private void updateEarningsLabel() {
@@ -405,25 +371,19 @@ public class HistoryScreen extends AppCompatActivity {
     }
 
     private void refreshUserList() {
-        rememberSpinnerSelection();
-        
         userListLoaded = false;
-        userList.clear();
+        userIds.clear();
         loadUserList();
         ToastUtils.showInfo(this, "User list refreshed");
     }
 
+    // Falls back to "All users" when the selected person is no longer in the list
     private void restoreSpinnerSelection() {
-        if (lastSelectedSpinnerPosition >= 0 && lastSelectedSpinnerPosition < spinnerUserFilter.getCount()) {
-            spinnerUserFilter.setSelection(lastSelectedSpinnerPosition);
-        }
-    }
-
-    private void rememberSpinnerSelection() {
-        int currentPosition = spinnerUserFilter.getSelectedItemPosition();
-        if (currentPosition >= 0) {
-            lastSelectedSpinnerPosition = currentPosition;
+        int index = selectedUserId != null ? userIds.indexOf(selectedUserId) : -1;
+        if (index < 0) {
+            selectedUserId = null;
         }
+        spinnerUserFilter.setSelection(index + 1);
     }
 
     private void determineUserType() {
@@ -444,9 +404,6 @@ public class HistoryScreen extends AppCompatActivity {
                                 updateEarningsLabel();
                                 updateUserLabels();
                                 loadRideHistory();
-                                if (!userListLoaded) {
-                                    loadUserList();
-                                }
                             }
                         }
                     }
@@ -459,152 +416,186 @@ public class HistoryScreen extends AppCompatActivity {
     }
 
     private void loadRideHistory() {
-        if (currentUser == null || userType == null) return;
+        if (currentUser == null || userType == null || historyRepository != null) return;
 
         String userId = currentUser.getUid();
+        historyRepository = new RideHistoryRepository(this, userId, "driver".equals(userType));
+        historyRepository.setChangeListener(new RideHistoryRepository.ChangeListener() {
+            @Override
+            public void onRideChanged(String feedbackId, FeedbackRequest feedback) {
+                if (!historyRepository.isWithinLoadedPages(feedback)) return;
+                if (!historyModel.put(feedbackId, feedback)) return;
+                // A rating only touches its own row; anything else regroups the list
+                if (historyModel.isVisible(feedback) && historyAdapter.replaceRide(feedback)) {
+                    updateStatistics();
+                } else {
+                    displayRideHistory();
+                }
+            }
 
-        FirebaseHelper.getFeedbackRequestsRef()
-                .addValueEventListener(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                        feedbackHistory.clear();
-                        for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                            FeedbackRequest feedback = snapshot.getValue(FeedbackRequest.class);
-                            if (feedback != null) {
-                                if (userType.equals("driver") && userId.equals(feedback.getDriverId())) {
-                                    feedbackHistory.add(feedback);
-                                } else if (userType.equals("passenger") && userId.equals(feedback.getPassengerId())) {
-                                    feedbackHistory.add(feedback);
-                                }
-                            }
-                        }
-                        displayRideHistory();
-                    }
+            @Override
+            public void onRideRemoved(String feedbackId) {
+                if (historyModel.remove(feedbackId)) {
+                    displayRideHistory();
+                }
+            }
+        });
+        // Rides finished while the screen is open show up without reloading it
+        historyRepository.watchNewRides();
+        // Whatever is on disk is shown right away; the server is only asked for what is new
+        reloadRideHistory();
+        if (PreferencesManager.isHistoryIndexBackfilled(this, userId)) {
+            syncRideHistory();
+        } else {
+            checkHistoryIndexBackfilled(userId);
+        }
+    }
 
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError databaseError) {
-                        Log.e(TAG, "Error loading feedback history: " + databaseError.getMessage());
+    // The backfill is marked on the server, so a new install or another phone does not run it
+    // again; the local flag only saves asking once this device has seen the marker
+    private void checkHistoryIndexBackfilled(String userId) {
+        FirebaseHelper.getUserRidesMetaRef().child(userId).child(BACKFILLED_KEY).get()
+                .addOnSuccessListener(snapshot -> {
+                    if (Boolean.TRUE.equals(snapshot.getValue(Boolean.class))) {
+                        PreferencesManager.setHistoryIndexBackfilled(this, userId);
+                        syncRideHistory();
+                    } else {
+                        backfillHistoryIndex(userId);
                     }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error checking ride history index: " + e.getMessage());
+                    syncRideHistory();
                 });
     }
 
-    private void displayRideHistory() {
-        rideHistoryContainer.removeAllViews();
-
-        List<FeedbackRequest> displayList = isFilterActive ? filteredHistory : feedbackHistory;
-
-        if (displayList.isEmpty()) {
-            emptyStateContainer.setVisibility(View.VISIBLE);
-            rideHistoryContainer.setVisibility(View.GONE);
-            statisticsContainer.setVisibility(View.GONE);
-            btnShowMap.setVisibility(View.GONE);
-            btnGeneratePDF.setVisibility(View.GONE);
-            return;
-        }
-
-        emptyStateContainer.setVisibility(View.GONE);
-        rideHistoryContainer.setVisibility(View.VISIBLE);
-        btnShowMap.setVisibility(View.VISIBLE);
-        btnGeneratePDF.setVisibility(View.VISIBLE);
-        
-        updateStatistics();
-
-        Map<String, List<FeedbackRequest>> feedbackByDate = new HashMap<>();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd / MM / yyyy", Locale.getDefault());
+    private void reloadRideHistory() {
+        historyRepository.setFilter(startOfDay(dateFrom), endOfDay(dateTo), selectedUserId);
+        historyModel.clear();
+        historyModel.setFilter(historyRepository.getQuery());
+        // The current list stays on screen until the first page replaces it
+        loadNextHistoryPage();
+    }
 
-        for (FeedbackRequest feedback : displayList) {
-            String date = dateFormat.format(new Date(feedback.getTimestamp()));
-            if (!feedbackByDate.containsKey(date)) {
-                feedbackByDate.put(date, new ArrayList<>());
+    private void syncRideHistory() {
+        historyRepository.sync(new RideHistoryRepository.SyncListener() {
+            @Override
+            public void onSynced(List<FeedbackRequest> rides, boolean firstSync) {
+                if (firstSync) {
+                    // The store was empty, so the pages shown so far were too
+                    userListLoaded = false;
+                    reloadRideHistory();
+                    return;
+                }
+                if (rides.isEmpty()) return;
+                // Synced rides are new ones and older ones rated since the last sync. Those among
+                // the loaded pages are added or refreshed; older ones come with their page
+                for (FeedbackRequest feedback : rides) {
+                    if (historyRepository.isWithinLoadedPages(feedback)) {
+                        historyModel.put(feedback.getFeedbackId(), feedback);
+                    }
+                }
+                displayRideHistory();
+                loadUserList();
             }
-            feedbackByDate.get(date).add(feedback);
-        }
-
-        for (Map.Entry<String, List<FeedbackRequest>> entry : feedbackByDate.entrySet()) {
-            String date = entry.getKey();
-            List<FeedbackRequest> feedbackForDate = entry.getValue();
-
-            TextView dateHeader = new TextView(this);
-            dateHeader.setText(date);
-            dateHeader.setTextColor(getResources().getColor(android.R.color.black));
-            dateHeader.setTextSize(16);
-            dateHeader.setTypeface(dateHeader.getTypeface(), android.graphics.Typeface.BOLD);
-            dateHeader.setPadding(4, 0, 0, 12);
 
-            LinearLayout.LayoutParams headerParams = new LinearLayout.LayoutParams(
-                    ViewGroup.LayoutParams.MATCH_PARENT,
-                    ViewGroup.LayoutParams.WRAP_CONTENT
-            );
-            headerParams.setMargins(0, 24, 0, 8);
-            dateHeader.setLayoutParams(headerParams);
+            @Override
+            public void onSyncError(String error) {
+                ToastUtils.showError(HistoryScreen.this, "Could not refresh ride history");
+            }
+        });
+    }
 
-            rideHistoryContainer.addView(dateHeader);
+    private void loadNextHistoryPage() {
+        historyRepository.loadNextPage(new RideHistoryRepository.PageListener() {
+            @Override
+            public void onPageLoaded(List<FeedbackRequest> page, boolean hasMore) {
+                for (FeedbackRequest feedback : page) {
+                    historyModel.put(feedback.getFeedbackId(), feedback);
+                }
+                displayRideHistory();
+                if (!userListLoaded) {
+                    loadUserList();
+                }
+            }
 
-            for (FeedbackRequest feedback : feedbackForDate) {
-                View feedbackItemView = createFeedbackHistoryItem(feedback);
-                rideHistoryContainer.addView(feedbackItemView);
+            @Override
+            public void onPageError(String error) {
+                ToastUtils.showError(HistoryScreen.this, "Failed to load ride history");
             }
+        });
+    }
+
+    private void prefetchIfNearEnd() {
+        if (historyRepository == null || historyRepository.isLoading() || !historyRepository.hasMore()) return;
+        int lastVisible = historyLayoutManager.findLastVisibleItemPosition();
+        if (lastVisible >= historyLayoutManager.getItemCount() - PREFETCH_ROWS) {
+            loadNextHistoryPage();
         }
     }
 
-    private View createFeedbackHistoryItem(FeedbackRequest feedback) {
-        View itemView = LayoutInflater.from(this).inflate(R.layout.ride_history_item, null);
+    // Rides finished before the index existed are only in feedback_requests. They are looked up
+    // once and added to the index before the first sync reads it. Rides already indexed keep
+    // their entry, so other devices do not see them as changed and sync them again.
+    private void backfillHistoryIndex(String userId) {
+        FirebaseHelper.getUserRidesRef().child(userId).get()
+                .addOnSuccessListener(indexSnapshot -> {
+                    Set<String> indexed = new HashSet<>();
+                    for (DataSnapshot entry : indexSnapshot.getChildren()) {
+                        indexed.add(entry.getKey());
+                    }
+                    backfillMissingRides(userId, indexed);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error backfilling ride history index: " + e.getMessage());
+                    syncRideHistory();
+                });
+    }
 
-        LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(
-                ViewGroup.LayoutParams.MATCH_PARENT,
-                ViewGroup.LayoutParams.WRAP_CONTENT
-        );
-        int marginInDp = 16;
-        int marginInPx = (int) (marginInDp * getResources().getDisplayMetrics().density);
-        layoutParams.setMargins(0, 0, 0, marginInPx);
-        itemView.setLayoutParams(layoutParams);
-
-        TextView txtTripDate = itemView.findViewById(R.id.txtTripDate);
-        TextView txtTripPrice = itemView.findViewById(R.id.txtTripPrice);
-        TextView txtPickupLocation = itemView.findViewById(R.id.txtPickupLocation);
-        TextView txtDropoffLocation = itemView.findViewById(R.id.txtDropoffLocation);
-        ImageView starSingleItem = itemView.findViewById(R.id.starSingleItem);
-        TextView txtRating = itemView.findViewById(R.id.txtRating);
-        Button btnAction = itemView.findViewById(R.id.btnAction);
-
-        SimpleDateFormat dateTimeFormat = new SimpleDateFormat("MMM dd, h:mm a", Locale.getDefault());
-        String formattedDateTime = dateTimeFormat.format(new Date(feedback.getTimestamp()));
-        txtTripDate.setText(formattedDateTime);
-
-        if (feedback.getPrice() > 0) {
-            txtTripPrice.setText(String.format("%.0f din", feedback.getPrice()));
-        } else {
-            txtTripPrice.setText("N/A");
-        }
+    private void backfillMissingRides(String userId, Set<String> indexed) {
+        String userField = userType.equals("driver") ? "driverId" : "passengerId";
+        FirebaseHelper.getFeedbackRequestsRef().orderByChild(userField).equalTo(userId).get()
+                .addOnSuccessListener(dataSnapshot -> {
+                    // The missing entries and the marker are written together
+                    Map<String, Object> updates = new HashMap<>();
+                    for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
+                        if (indexed.contains(snapshot.getKey())) continue;
+                        FeedbackRequest feedback = snapshot.getValue(FeedbackRequest.class);
+                        if (feedback != null) {
+                            updates.put(AppConfig.NODE_USER_RIDES + "/" + userId + "/" + snapshot.getKey(), ServerValue.TIMESTAMP);
+                        }
+                    }
+                    updates.put(AppConfig.NODE_USER_RIDES_META + "/" + userId + "/" + BACKFILLED_KEY, true);
+                    FirebaseHelper.getRootRef().updateChildren(updates)
+                            .addOnSuccessListener(aVoid -> PreferencesManager.setHistoryIndexBackfilled(this, userId))
+                            .addOnFailureListener(e -> Log.e(TAG, "Error backfilling ride history index: " + e.getMessage()))
+                            .addOnCompleteListener(done -> syncRideHistory());
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error backfilling ride history index: " + e.getMessage());
+                    syncRideHistory();
+                });
+    }
 
-        txtPickupLocation.setText(feedback.getPickupAddress());
-        txtDropoffLocation.setText(feedback.getDropoffAddress());
+    private void displayRideHistory() {
+        List<FeedbackRequest> displayList = historyModel.getVisible();
 
-        if (feedback.isSubmitted()) {
-            txtRating.setText(String.valueOf(feedback.getRating()));
-            starSingleItem.setVisibility(View.VISIBLE);
-            btnAction.setText("VIEW FEEDBACK");
-            btnAction.setEnabled(true);
-            btnAction.setAlpha(1.0f);
-            btnAction.setOnClickListener(v -> openFeedbackDetails(feedback));
+        if (displayList.isEmpty()) {
+            emptyStateContainer.setVisibility(View.VISIBLE);
+            statisticsContainer.setVisibility(View.GONE);
+            btnShowMap.setVisibility(View.GONE);
+            btnGeneratePDF.setVisibility(View.GONE);
+            btnExportRides.setVisibility(View.GONE);
         } else {
-            if ("driver".equals(userType)) {
-                txtRating.setText("Pending");
-                starSingleItem.setVisibility(View.GONE);
-                btnAction.setText("AWAITING FEEDBACK");
-                btnAction.setEnabled(false);
-                btnAction.setAlpha(0.6f);
-            } else {
-                txtRating.setText("Rate");
-                starSingleItem.setVisibility(View.GONE);
-                btnAction.setText("GIVE FEEDBACK");
-                btnAction.setEnabled(true);
-                btnAction.setAlpha(1.0f);
-                btnAction.setOnClickListener(v -> showRatingDialog(feedback));
-            }
+            emptyStateContainer.setVisibility(View.GONE);
+            btnShowMap.setVisibility(View.VISIBLE);
+            btnGeneratePDF.setVisibility(View.VISIBLE);
+            btnExportRides.setVisibility(View.VISIBLE);
+            updateStatistics();
         }
 
-        return itemView;
+        // Short pages, e.g. after the user filter, do not fill the screen, so check once shown
+        historyAdapter.submitHistory(displayList, "driver".equals(userType), this::prefetchIfNearEnd);
     }
 
     private void showRatingDialog(FeedbackRequest feedback) {
@@ -707,14 +698,20 @@ public class HistoryScreen extends AppCompatActivity {
 
         Log.d(TAG, "Submitting feedback: " + feedback.getFeedbackId() + " with rating: " + rating);
         
-        FirebaseHelper.getFeedbackRequestsRef().child(feedback.getFeedbackId()).setValue(feedback)
+        // Both participants' index entries are touched, so the rating reaches their next sync
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(AppConfig.NODE_FEEDBACK_REQUESTS + "/" + feedback.getFeedbackId(), feedback);
+        updates.put(AppConfig.NODE_USER_RIDES + "/" + feedback.getPassengerId() + "/" + feedback.getFeedbackId(), ServerValue.TIMESTAMP);
+        updates.put(AppConfig.NODE_USER_RIDES + "/" + feedback.getDriverId() + "/" + feedback.getFeedbackId(), ServerValue.TIMESTAMP);
+
+        FirebaseHelper.getRootRef().updateChildren(updates)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Feedback submitted successfully");
                     
                     updateUserStatisticsAfterFeedback(feedback, rating);
                     
+                    // The ride's listener picks up the new rating and refreshes its row
                     ToastUtils.showSuccess(this, "Feedback submitted successfully!");
-                    displayRideHistory();
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "❌ Failed to submit feedback: " + e.getMessage());
@@ -815,38 +812,116 @@ public class HistoryScreen extends AppCompatActivity {
         startActivity(intent);
     }
 
+    // The map gets every matching ride from the store, not only the pages loaded so far. Only
+    // ride request ids are passed, since the intent cannot carry thousands of rides.
     private void showRideHistoryMap() {
-        List<FeedbackRequest> displayList = isFilterActive ? filteredHistory : feedbackHistory;
-        
-        if (displayList.isEmpty()) {
-            ToastUtils.showInfo(this, "No rides to display on map");
-            return;
-        }
+        if (historyRepository == null) return;
+        historyRepository.loadAll(rides -> {
+            if (rides.isEmpty()) {
+                ToastUtils.showInfo(this, "No rides to display on map");
+                return;
+            }
 
-        Intent intent = new Intent(this, RideHistoryMapActivity.class);
-        intent.putExtra("rideHistory", new ArrayList<>(displayList));
-        startActivity(intent);
+            ArrayList<String> rideRequestIds = new ArrayList<>(rides.size());
+            for (FeedbackRequest feedback : rides) {
+                rideRequestIds.add(feedback.getRideRequestId());
+            }
+            Intent intent = new Intent(this, RideHistoryMapActivity.class);
+            intent.putStringArrayListExtra("rideRequestIds", rideRequestIds);
+            startActivity(intent);
+        });
     }
 
     private void generatePDFReport() {
-        List<FeedbackRequest> displayList = isFilterActive ? filteredHistory : feedbackHistory;
-        
-        if (displayList.isEmpty()) {
+        if (historyRepository == null || reportInProgress) return;
+        if (!checkPermissions()) {
+            requestPermissions();
+            return;
+        }
+        if (historyModel.getVisibleCount() == 0) {
             ToastUtils.showInfo(this, "No rides to generate report for");
             return;
         }
 
-        if (checkPermissions()) {
-            try {
-                File pdfFile = createPDFReport(displayList);
-                sharePDFReport(pdfFile);
-            } catch (Exception e) {
-                Log.e(TAG, "Error generating PDF report", e);
-                ToastUtils.showError(this, "Error generating PDF report: " + e.getMessage());
+        // Written on a background thread a page at a time, so large histories neither block
+        // the screen nor have to fit in memory
+        reportInProgress = true;
+        CharSequence buttonText = btnGeneratePDF.getText();
+        btnGeneratePDF.setEnabled(false);
+        btnGeneratePDF.setText("📄 Generating...");
+
+        String fileName = "MakiTaxi_RideReport_" + System.currentTimeMillis() + ".pdf";
+        File pdfFile = new File(getExternalFilesDir(null), fileName);
+        historyRepository.writeReport(pdfFile, new RideHistoryRepository.ReportListener() {
+            @Override
+            public void onReportProgress(int written, int total) {
+                int percent = total > 0 ? written * 100 / total : 100;
+                btnGeneratePDF.setText("📄 Generating " + percent + "%");
+            }
+
+            @Override
+            public void onReportReady(File file) {
+                finishReport(btnGeneratePDF, buttonText);
+                sharePDFReport(file);
             }
-        } else {
-            requestPermissions();
+
+            @Override
+            public void onReportError(String error) {
+                finishReport(btnGeneratePDF, buttonText);
+                ToastUtils.showError(HistoryScreen.this, "Error generating PDF report: " + error);
+            }
+        });
+    }
+
+    private void showExportOptions() {
+        if (historyRepository == null || reportInProgress) return;
+        if (historyModel.getVisibleCount() == 0) {
+            ToastUtils.showInfo(this, "No rides to export");
+            return;
         }
+
+        String[] options = {"CSV", "CSV (gzip)", "NDJSON", "NDJSON (gzip)"};
+        new AlertDialog.Builder(this)
+                .setTitle("Export rides")
+                .setItems(options, (dialog, which) ->
+                        exportRides(which < 2 ? RideExport.Format.CSV : RideExport.Format.NDJSON, which % 2 == 1))
+                .show();
+    }
+
+    // Raw rides for spreadsheets and accounting, written the same way as the PDF report
+    private void exportRides(RideExport.Format format, boolean gzip) {
+        reportInProgress = true;
+        CharSequence buttonText = btnExportRides.getText();
+        btnExportRides.setEnabled(false);
+        btnExportRides.setText("📤 Exporting...");
+
+        String fileName = RideExport.fileName(format, gzip, System.currentTimeMillis());
+        File exportFile = new File(getExternalFilesDir(null), fileName);
+        historyRepository.exportRides(exportFile, format, gzip, new RideHistoryRepository.ReportListener() {
+            @Override
+            public void onReportProgress(int written, int total) {
+                int percent = total > 0 ? written * 100 / total : 100;
+                btnExportRides.setText("📤 Exporting " + percent + "%");
+            }
+
+            @Override
+            public void onReportReady(File file) {
+                finishReport(btnExportRides, buttonText);
+                shareExport(file, RideExport.mimeType(format, gzip));
+            }
+
+            @Override
+            public void onReportError(String error) {
+                finishReport(btnExportRides, buttonText);
+                ToastUtils.showError(HistoryScreen.this, "Error exporting rides: " + error);
+            }
+        });
+    }
+
+    private void finishReport(Button button, CharSequence buttonText) {
+        reportInProgress = false;
+        button.setEnabled(true);
+        button.setText(buttonText);
     }
 
     private boolean checkPermissions() {
@@ -872,138 +947,6 @@ public class HistoryScreen extends AppCompatActivity {
         }
     }
 
-    private File createPDFReport(List<FeedbackRequest> rides) throws IOException {
-        String fileName = "MakiTaxi_RideReport_" + System.currentTimeMillis() + ".pdf";
-        File pdfFile = new File(getExternalFilesDir(null), fileName);
-
-        PdfDocument pdfDocument = new PdfDocument();
-        PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(842, 595, 1).create();
-        PdfDocument.Page page = pdfDocument.startPage(pageInfo);
-
-        android.graphics.Canvas canvas = page.getCanvas();
-        Paint paint = new Paint();
-        Paint titlePaint = new Paint();
-        Paint headerPaint = new Paint();
-        Paint textPaint = new Paint();
-
-        // Configure title paint
-        titlePaint.setColor(Color.BLACK);
-        titlePaint.setTextSize(24);
-        titlePaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-        titlePaint.setTextAlign(Paint.Align.CENTER);
-
-        // Configure header paint
-        headerPaint.setColor(Color.BLACK);
-        headerPaint.setTextSize(16);
-        headerPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-        headerPaint.setTextAlign(Paint.Align.LEFT);
-
-        // Configure text paint
-        textPaint.setColor(Color.BLACK);
-        textPaint.setTextSize(12);
-        textPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.NORMAL));
-        textPaint.setTextAlign(Paint.Align.LEFT);
-
-        int y = 50;
-        int leftMargin = 50;
-        int rightMargin = 792;
-
-        // Draw title
-        canvas.drawText("MakiTaxi - Ride History Report", 421, y, titlePaint);
-        y += 40;
-
-        // Draw report info
-        String reportInfo = "Generated on: " + new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault()).format(new Date()) + "\n" +
-                "Total rides: " + rides.size();
-        
-        String[] infoLines = reportInfo.split("\n");
-        for (String line : infoLines) {
-            canvas.drawText(line, leftMargin, y, textPaint);
-            y += 20;
-        }
-        y += 20;
-
-        // Calculate statistics
-        double totalEarnings = 0;
-        double totalDistance = 0;
-        int totalRides = rides.size();
-
-        for (FeedbackRequest ride : rides) {
-            totalEarnings += ride.getPrice();
-            totalDistance += ride.getDistance();
-        }
-
-        // Draw statistics section
-        canvas.drawText("Summary Statistics", leftMargin, y, headerPaint);
-        y += 25;
-
-        String[][] stats = {
-            {"Total Rides", String.valueOf(totalRides)},
-            {"Total Distance", String.format("%.1f km", totalDistance)},
-            {userType != null && userType.equals("driver") ? "Total Earnings" : "Total Spent", String.format("%.0f din", totalEarnings)}
-        };
-
-        for (String[] stat : stats) {
-            canvas.drawText(stat[0] + ": " + stat[1], leftMargin, y, textPaint);
-            y += 20;
-        }
-        y += 20;
-
-        // Draw rides table header
-        canvas.drawText("Ride Details", leftMargin, y, headerPaint);
-        y += 25;
-
-        String[] headers = {"Date", "Pickup", "Destination", "Price", "Distance"};
-        int[] columnWidths = {120, 250, 250, 80, 80};
-        int currentX = leftMargin;
-
-        // Draw table headers
-        for (int i = 0; i < headers.length; i++) {
-            canvas.drawText(headers[i], currentX, y, headerPaint);
-            currentX += columnWidths[i];
-        }
-        y += 20;
-
-        // Draw table data
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-        for (FeedbackRequest ride : rides) {
-            if (y > 500) { // Start new page if needed (landscape)
-                pdfDocument.finishPage(page);
-                pageInfo = new PdfDocument.PageInfo.Builder(842, 595, pdfDocument.getPages().size() + 1).create();
-                page = pdfDocument.startPage(pageInfo);
-                canvas = page.getCanvas();
-                y = 50;
-            }
-
-            currentX = leftMargin;
-            canvas.drawText(dateFormat.format(new Date(ride.getTimestamp())), currentX, y, textPaint);
-            currentX += columnWidths[0];
-            
-            canvas.drawText(ride.getPickupAddress(), currentX, y, textPaint);
-            currentX += columnWidths[1];
-            
-            canvas.drawText(ride.getDropoffAddress(), currentX, y, textPaint);
-            currentX += columnWidths[2];
-            
-            canvas.drawText(String.format("%.0f din", ride.getPrice()), currentX, y, textPaint);
-            currentX += columnWidths[3];
-            
-            canvas.drawText(String.format("%.1f km", ride.getDistance()), currentX, y, textPaint);
-            y += 20;
-        }
-
-        // Draw footer
-        y = 570;
-        textPaint.setTextAlign(Paint.Align.CENTER);
-        canvas.drawText("Generated by MakiTaxi App", 421, y, textPaint);
-
-        pdfDocument.finishPage(page);
-        pdfDocument.writeTo(new FileOutputStream(pdfFile));
-        pdfDocument.close();
-
-        return pdfFile;
-    }
-
     private void sharePDFReport(File pdfFile) {
         try {
             android.net.Uri fileUri = androidx.core.content.FileProvider.getUriForFile(
@@ -1025,4 +968,50 @@ public class HistoryScreen extends AppCompatActivity {
             ToastUtils.showError(this, "Error sharing PDF report: " + e.getMessage());
         }
     }
-} 
\ No newline at end of file
+
+    private void shareExport(File exportFile, String mimeType) {
+        try {
+            android.net.Uri fileUri = androidx.core.content.FileProvider.getUriForFile(
+                this,
+                getPackageName() + ".fileprovider",
+                exportFile
+            );
+
+            Intent shareIntent = new Intent(Intent.ACTION_SEND);
+            shareIntent.setType(mimeType);
+            shareIntent.putExtra(Intent.EXTRA_STREAM, fileUri);
+            shareIntent.putExtra(Intent.EXTRA_SUBJECT, "MakiTaxi Ride Export");
+            shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+
+            startActivity(Intent.createChooser(shareIntent, "Share Ride Export"));
+        } catch (Exception e) {
+            Log.e(TAG, "Error sharing ride export", e);
+            ToastUtils.showError(this, "Error sharing ride export: " + e.getMessage());
+        }
+    }
+
+    // The filters and statistics as the single first item of the history list
+    private static class HeaderAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private final View header;
+
+        HeaderAdapter(View header) {
+            this.header = header;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(header) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 1;
+        }
+    }
+}
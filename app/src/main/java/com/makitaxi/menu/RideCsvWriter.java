@@ -0,0 +1,95 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+import com.makitaxi.model.RideRequest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+
+/**
+ * Writes rides as RFC 4180 CSV with a header row, one line per ride. Route columns are left
+ * empty for rides whose request is not stored on the device.
+ */
+public final class RideCsvWriter implements RideExportWriter {
+
+    static final String[] COLUMNS = {
+            "feedback_id", "ride_request_id", "time", "timestamp", "passenger_id", "passenger_name",
+            "driver_id", "driver_name", "pickup_address", "dropoff_address", "car_type", "price",
+            "distance_km", "rated", "rating", "comment", "pickup_latitude", "pickup_longitude",
+            "dropoff_latitude", "dropoff_longitude", "duration_min", "estimated_price"
+    };
+
+    private final Writer out;
+    private final SimpleDateFormat timeFormat = RideExport.isoFormat();
+
+    public RideCsvWriter(Writer out) throws IOException {
+        this.out = out;
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) out.write(',');
+            out.write(COLUMNS[i]);
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void write(FeedbackRequest ride, RideRequest request) throws IOException {
+        text(ride.getFeedbackId());
+        text(ride.getRideRequestId());
+        text(RideExport.formatTime(timeFormat, ride.getTimestamp()));
+        number(String.valueOf(ride.getTimestamp()));
+        text(ride.getPassengerId());
+        text(ride.getPassengerName());
+        text(ride.getDriverId());
+        text(ride.getDriverName());
+        text(ride.getPickupAddress());
+        text(ride.getDropoffAddress());
+        text(ride.getCarType());
+        number(RideExport.formatNumber(ride.getPrice()));
+        number(RideExport.formatNumber(ride.getDistance()));
+        number(String.valueOf(ride.isSubmitted()));
+        number(ride.isSubmitted() ? String.valueOf(ride.getRating()) : "");
+        text(ride.getComment());
+        if (request != null) {
+            number(RideExport.formatNumber(request.getPickupLatitude()));
+            number(RideExport.formatNumber(request.getPickupLongitude()));
+            number(RideExport.formatNumber(request.getDropoffLatitude()));
+            number(RideExport.formatNumber(request.getDropoffLongitude()));
+            number(RideExport.formatNumber(request.getDuration()));
+            out.write(RideExport.formatNumber(request.getEstimatedPrice()));
+        } else {
+            out.write(",,,,,");
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void number(String value) throws IOException {
+        out.write(value);
+        out.write(',');
+    }
+
+    private void text(String value) throws IOException {
+        out.write(escape(value));
+        out.write(',');
+    }
+
+    static String escape(String value) {
+        if (value == null || value.isEmpty()) return "";
+        // Spreadsheets run cells starting with these as formulas, e.g. a comment "=HYPERLINK(...)"
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            value = "'" + value;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+}
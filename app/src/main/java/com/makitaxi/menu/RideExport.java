@@ -0,0 +1,72 @@
+package com.makitaxi.menu;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Raw ride history exports: the formats on offer and how their files are opened.
+ */
+public final class RideExport {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    public enum Format {
+        CSV("csv", "text/csv"),
+        NDJSON("ndjson", "application/x-ndjson");
+
+        final String extension;
+        final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+    }
+
+    private RideExport() {
+    }
+
+    public static String fileName(Format format, boolean gzip, long now) {
+        return "MakiTaxi_Rides_" + now + "." + format.extension + (gzip ? ".gz" : "");
+    }
+
+    public static String mimeType(Format format, boolean gzip) {
+        return gzip ? "application/gzip" : format.mimeType;
+    }
+
+    /**
+     * Opens a writer for the format over {@code out}, compressing on the way when asked.
+     * Closing the writer finishes the compressed stream and closes {@code out}.
+     */
+    public static RideExportWriter open(OutputStream out, Format format, boolean gzip) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+        return format == Format.CSV ? new RideCsvWriter(writer) : new RideNdjsonWriter(writer);
+    }
+
+    // Both formats use UTC ISO 8601 times, so files sort and import the same on any device
+    static SimpleDateFormat isoFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    static String formatTime(SimpleDateFormat format, long timestamp) {
+        return format.format(new Date(timestamp));
+    }
+
+    // Shortest exact form, without exponent or trailing zeros, e.g. 450 and 2.35
+    static String formatNumber(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
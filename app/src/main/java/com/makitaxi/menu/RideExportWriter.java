@@ -0,0 +1,19 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+import com.makitaxi.model.RideRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives rides one at a time, newest first, and writes them out as they come, so an export
+ * never holds more than the rides it is given.
+ */
+public interface RideExportWriter extends Closeable {
+
+    /**
+     * @param request the ride's route details, or null when they are not stored on the device
+     */
+    void write(FeedbackRequest ride, RideRequest request) throws IOException;
+}
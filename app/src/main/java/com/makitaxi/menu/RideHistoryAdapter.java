@@ -0,0 +1,218 @@
+package com.makitaxi.menu;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.makitaxi.R;
+import com.makitaxi.model.FeedbackRequest;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ride history rows grouped under date headers. New lists are diffed on a background thread
+ * by {@link ListAdapter}, so only rides that were added or changed are bound again.
+ */
+public class RideHistoryAdapter extends ListAdapter<RideHistoryRows.Row, RecyclerView.ViewHolder> {
+
+    public interface OnRideActionListener {
+        void onViewFeedback(FeedbackRequest feedback);
+
+        void onGiveFeedback(FeedbackRequest feedback);
+    }
+
+    private static final DiffUtil.ItemCallback<RideHistoryRows.Row> DIFF = new DiffUtil.ItemCallback<RideHistoryRows.Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull RideHistoryRows.Row oldRow, @NonNull RideHistoryRows.Row newRow) {
+            return oldRow.isSameItem(newRow);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull RideHistoryRows.Row oldRow, @NonNull RideHistoryRows.Row newRow) {
+            return oldRow.hasSameContents(newRow);
+        }
+    };
+
+    // Rows are built and bound on the main thread, so one instance of each is enough
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("dd / MM / yyyy", Locale.getDefault());
+    private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("MMM dd, h:mm a", Locale.getDefault());
+
+    private final OnRideActionListener listener;
+    private boolean driver;
+
+    // The list last submitted, which getCurrentList() only reflects once its diff is done
+    private List<RideHistoryRows.Row> rows = Collections.emptyList();
+    private final Map<String, Integer> ridePositions = new HashMap<>();
+
+    public RideHistoryAdapter(OnRideActionListener listener) {
+        super(DIFF);
+        this.listener = listener;
+    }
+
+    /**
+     * Shows the rides; {@code onCommitted} runs once the list on screen reflects them.
+     */
+    public void submitHistory(List<FeedbackRequest> rides, boolean driver, Runnable onCommitted) {
+        if (this.driver != driver) {
+            this.driver = driver;
+            // The action button depends on the role, which the row diff does not see
+            notifyItemRangeChanged(0, getItemCount());
+        }
+        rows = RideHistoryRows.build(rides, dayFormat);
+        ridePositions.clear();
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).type == RideHistoryRows.TYPE_RIDE) {
+                ridePositions.put(rows.get(i).key, i);
+            }
+        }
+        submitList(rows, onCommitted);
+    }
+
+    /**
+     * Swaps in a newer version of one ride without regrouping the rest.
+     *
+     * @return false if the ride is not shown or moved to another day, in which case the whole
+     * history has to be submitted again
+     */
+    public boolean replaceRide(FeedbackRequest feedback) {
+        Integer position = ridePositions.get(feedback.getFeedbackId());
+        if (position == null) return false;
+        RideHistoryRows.Row current = rows.get(position);
+        if (current.timestamp != feedback.getTimestamp()) return false;
+
+        List<RideHistoryRows.Row> updated = new ArrayList<>(rows);
+        updated.set(position, RideHistoryRows.rideRow(feedback));
+        rows = updated;
+        submitList(updated);
+        return true;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return getItem(position).type;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        int sideMargin = dpToPx(parent, 24);
+        if (viewType == RideHistoryRows.TYPE_DATE) {
+            TextView dateHeader = new TextView(parent.getContext());
+            dateHeader.setTextColor(Color.BLACK);
+            dateHeader.setTextSize(16);
+            dateHeader.setTypeface(dateHeader.getTypeface(), Typeface.BOLD);
+            dateHeader.setPadding(4, 0, 0, 12);
+
+            RecyclerView.LayoutParams headerParams = new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT
+            );
+            headerParams.setMargins(sideMargin, 24, sideMargin, 8);
+            dateHeader.setLayoutParams(headerParams);
+            return new DateViewHolder(dateHeader);
+        }
+
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.ride_history_item, parent, false);
+        RecyclerView.LayoutParams layoutParams = (RecyclerView.LayoutParams) itemView.getLayoutParams();
+        layoutParams.setMargins(sideMargin, 0, sideMargin, dpToPx(parent, 16));
+        return new RideViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        RideHistoryRows.Row row = getItem(position);
+        if (holder instanceof DateViewHolder) {
+            ((DateViewHolder) holder).dateHeader.setText(row.key);
+        } else {
+            bindRide((RideViewHolder) holder, row);
+        }
+    }
+
+    private void bindRide(RideViewHolder holder, RideHistoryRows.Row row) {
+        holder.txtTripDate.setText(dateTimeFormat.format(new Date(row.timestamp)));
+
+        if (row.price > 0) {
+            holder.txtTripPrice.setText(String.format("%.0f din", row.price));
+        } else {
+            holder.txtTripPrice.setText("N/A");
+        }
+
+        holder.txtPickupLocation.setText(row.pickupAddress);
+        holder.txtDropoffLocation.setText(row.dropoffAddress);
+
+        FeedbackRequest feedback = row.feedback;
+        if (row.submitted) {
+            holder.txtRating.setText(String.valueOf(row.rating));
+            holder.starSingleItem.setVisibility(View.VISIBLE);
+            holder.btnAction.setText("VIEW FEEDBACK");
+            holder.btnAction.setEnabled(true);
+            holder.btnAction.setAlpha(1.0f);
+            holder.btnAction.setOnClickListener(v -> listener.onViewFeedback(feedback));
+        } else if (driver) {
+            holder.txtRating.setText("Pending");
+            holder.starSingleItem.setVisibility(View.GONE);
+            holder.btnAction.setText("AWAITING FEEDBACK");
+            holder.btnAction.setEnabled(false);
+            holder.btnAction.setAlpha(0.6f);
+            holder.btnAction.setOnClickListener(null);
+        } else {
+            holder.txtRating.setText("Rate");
+            holder.starSingleItem.setVisibility(View.GONE);
+            holder.btnAction.setText("GIVE FEEDBACK");
+            holder.btnAction.setEnabled(true);
+            holder.btnAction.setAlpha(1.0f);
+            holder.btnAction.setOnClickListener(v -> listener.onGiveFeedback(feedback));
+        }
+    }
+
+    private static int dpToPx(View view, int dp) {
+        return (int) (dp * view.getResources().getDisplayMetrics().density);
+    }
+
+    static class DateViewHolder extends RecyclerView.ViewHolder {
+        final TextView dateHeader;
+
+        DateViewHolder(TextView dateHeader) {
+            super(dateHeader);
+            this.dateHeader = dateHeader;
+        }
+    }
+
+    static class RideViewHolder extends RecyclerView.ViewHolder {
+        final TextView txtTripDate;
+        final TextView txtTripPrice;
+        final TextView txtPickupLocation;
+        final TextView txtDropoffLocation;
+        final ImageView starSingleItem;
+        final TextView txtRating;
+        final Button btnAction;
+
+        RideViewHolder(View itemView) {
+            super(itemView);
+            txtTripDate = itemView.findViewById(R.id.txtTripDate);
+            txtTripPrice = itemView.findViewById(R.id.txtTripPrice);
+            txtPickupLocation = itemView.findViewById(R.id.txtPickupLocation);
+            txtDropoffLocation = itemView.findViewById(R.id.txtDropoffLocation);
+            starSingleItem = itemView.findViewById(R.id.starSingleItem);
+            txtRating = itemView.findViewById(R.id.txtRating);
+            btnAction = itemView.findViewById(R.id.btnAction);
+        }
+    }
+}
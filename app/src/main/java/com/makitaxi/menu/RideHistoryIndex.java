@@ -0,0 +1,183 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index over a set of rides for the history filters, kept up to date one ride at a time.
+ *
+ * Rides are kept in a list sorted by timestamp, and every person the user rode with has their
+ * own list of rides in the same order. A date range is two binary searches over the timestamps;
+ * adding a person runs the same searches over their list instead. No filter looks at rides
+ * outside its result.
+ *
+ * Adding or removing a ride finds its place by binary search in both lists it belongs to, so
+ * a rating change or a newly finished ride never re-sorts the history.
+ */
+public final class RideHistoryIndex {
+
+    // Same order as the stored history: by time, then by id for rides in the same millisecond
+    private static final Comparator<FeedbackRequest> OLDEST_FIRST = (a, b) -> {
+        int byTime = Long.compare(a.getTimestamp(), b.getTimestamp());
+        return byTime != 0 ? byTime : compareIds(a.getFeedbackId(), b.getFeedbackId());
+    };
+
+    private final boolean driver;
+    private final List<FeedbackRequest> rides;
+    private final Map<String, List<FeedbackRequest>> ridesByCounterparty = new HashMap<>();
+
+    /**
+     * @param driver whether the rides are seen as their driver, which makes the passenger the
+     *               other person on each ride, or as their passenger
+     */
+    public RideHistoryIndex(Collection<FeedbackRequest> rides, boolean driver) {
+        this.driver = driver;
+        this.rides = new ArrayList<>(rides);
+        this.rides.sort(OLDEST_FIRST);
+        // Filled in sorted order, so every person's list is sorted too
+        for (FeedbackRequest ride : this.rides) {
+            String counterpartyId = counterpartyId(ride, driver);
+            if (counterpartyId == null) continue;
+            List<FeedbackRequest> list = ridesByCounterparty.get(counterpartyId);
+            if (list == null) {
+                list = new ArrayList<>();
+                ridesByCounterparty.put(counterpartyId, list);
+            }
+            list.add(ride);
+        }
+    }
+
+    public static String counterpartyId(FeedbackRequest feedback, boolean driver) {
+        return driver ? feedback.getPassengerId() : feedback.getDriverId();
+    }
+
+    public int size() {
+        return rides.size();
+    }
+
+    /**
+     * Adds a ride that is not in the index yet.
+     */
+    public void add(FeedbackRequest ride) {
+        insert(rides, ride);
+        String counterpartyId = counterpartyId(ride, driver);
+        if (counterpartyId == null) return;
+        List<FeedbackRequest> list = ridesByCounterparty.get(counterpartyId);
+        if (list == null) {
+            list = new ArrayList<>();
+            ridesByCounterparty.put(counterpartyId, list);
+        }
+        insert(list, ride);
+    }
+
+    /**
+     * Removes a ride added before; it is found by its timestamp, id and other person, which
+     * must not have changed since.
+     *
+     * @return false if the index did not hold it
+     */
+    public boolean remove(FeedbackRequest ride) {
+        if (!delete(rides, ride)) return false;
+        String counterpartyId = counterpartyId(ride, driver);
+        if (counterpartyId == null) return true;
+        List<FeedbackRequest> list = ridesByCounterparty.get(counterpartyId);
+        if (list != null && delete(list, ride) && list.isEmpty()) {
+            ridesByCounterparty.remove(counterpartyId);
+        }
+        return true;
+    }
+
+    /**
+     * Number of rides between the two timestamps, inclusive, with the given person; 0 and null
+     * leave that part open.
+     */
+    public int count(long from, long to, String counterpartyId) {
+        List<FeedbackRequest> list = listFor(counterpartyId);
+        int start = start(list, from);
+        return Math.max(0, end(list, to) - start);
+    }
+
+    /**
+     * The rides {@link #count} counts, newest first.
+     */
+    public List<FeedbackRequest> query(long from, long to, String counterpartyId) {
+        List<FeedbackRequest> list = listFor(counterpartyId);
+        int start = start(list, from);
+        int end = end(list, to);
+        List<FeedbackRequest> result = new ArrayList<>(Math.max(0, end - start));
+        for (int i = end - 1; i >= start; i--) {
+            result.add(list.get(i));
+        }
+        return result;
+    }
+
+    private List<FeedbackRequest> listFor(String counterpartyId) {
+        if (counterpartyId == null) return rides;
+        List<FeedbackRequest> list = ridesByCounterparty.get(counterpartyId);
+        return list != null ? list : Collections.emptyList();
+    }
+
+    private static int start(List<FeedbackRequest> list, long from) {
+        return from > 0 ? firstAtOrAfter(list, from) : 0;
+    }
+
+    // Exclusive
+    private static int end(List<FeedbackRequest> list, long to) {
+        return to > 0 ? firstAtOrAfter(list, to + 1) : list.size();
+    }
+
+    private static int firstAtOrAfter(List<FeedbackRequest> list, long timestamp) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list.get(mid).getTimestamp() < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void insert(List<FeedbackRequest> list, FeedbackRequest ride) {
+        list.add(insertionPoint(list, ride), ride);
+    }
+
+    private static boolean delete(List<FeedbackRequest> list, FeedbackRequest ride) {
+        int position = insertionPoint(list, ride);
+        if (position == list.size() || OLDEST_FIRST.compare(list.get(position), ride) != 0) {
+            return false;
+        }
+        list.remove(position);
+        return true;
+    }
+
+    // First position whose ride does not sort before the given one
+    private static int insertionPoint(List<FeedbackRequest> list, FeedbackRequest ride) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (OLDEST_FIRST.compare(list.get(mid), ride) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compareIds(String a, String b) {
+        if (a == null) return b == null ? 0 : -1;
+        if (b == null) return 1;
+        return a.compareTo(b);
+    }
+}
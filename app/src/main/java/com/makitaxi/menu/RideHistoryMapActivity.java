@@ -13,29 +13,21 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 
 import com.makitaxi.R;
 import com.makitaxi.config.AppConfig;
-import com.makitaxi.model.FeedbackRequest;
 import com.makitaxi.model.RideRequest;
 import com.makitaxi.utils.FirebaseHelper;
+import com.makitaxi.utils.PolylineCodec;
 import com.makitaxi.utils.ToastUtils;
 
 import org.osmdroid.api.IMapController;
 import org.osmdroid.config.Configuration;
+import org.osmdroid.events.MapListener;
+import org.osmdroid.events.ScrollEvent;
+import org.osmdroid.events.ZoomEvent;
 import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
@@ -43,7 +35,11 @@ import org.osmdroid.views.overlay.Marker;
 import org.osmdroid.views.overlay.Polyline;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class RideHistoryMapActivity extends AppCompatActivity {
 
@@ -59,7 +55,7 @@ public class RideHistoryMapActivity extends AppCompatActivity {
     private LinearLayout loadingContainer;
     private TextView txtLoading;
 
-    private List<FeedbackRequest> rideHistory;
+    private List<String> rideRequestIds;
     private List<RideRequest> rideRequests;
     private List<Polyline> routeLines;
     private List<Marker> markers;
@@ -67,11 +63,11 @@ public class RideHistoryMapActivity extends AppCompatActivity {
     private boolean showRoutes = true;
     private boolean showMarkers = true;
     
-    private static final String OSRM_BASE_URL = "https://router.project-osrm.org/route/v1/driving/";
     private static final double MIN_ZOOM = 10.0;
     private static final double MAX_ZOOM = 19.0;
-    private ExecutorService executorService;
+    private HistoryRouteLoader routeLoader;
     private Handler mainHandler;
+    private final ExecutorService storeExecutor = Executors.newSingleThreadExecutor();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -81,7 +77,6 @@ public class RideHistoryMapActivity extends AppCompatActivity {
         initializeOSMDroid();
         initializeViews();
         setupUIInteractions();
-        executorService = Executors.newSingleThreadExecutor();
         mainHandler = new Handler(Looper.getMainLooper());
         loadRideData();
     }
@@ -125,6 +120,20 @@ public class RideHistoryMapActivity extends AppCompatActivity {
             IMapController mapController = mapView.getController();
             mapController.setZoom(12.0);
 
+            mapView.addMapListener(new MapListener() {
+                @Override
+                public boolean onScroll(ScrollEvent event) {
+                    updateRouteLoaderViewport();
+                    return false;
+                }
+
+                @Override
+                public boolean onZoom(ZoomEvent event) {
+                    updateRouteLoaderViewport();
+                    return false;
+                }
+            });
+
             Log.d(TAG, "MapView setup completed");
         } catch (Exception e) {
             Log.e(TAG, "Error setting up MapView", e);
@@ -152,42 +161,65 @@ public class RideHistoryMapActivity extends AppCompatActivity {
     }
 
     private void loadRideData() {
-        rideHistory = (List<FeedbackRequest>) getIntent().getSerializableExtra("rideHistory");
-        if (rideHistory == null || rideHistory.isEmpty()) {
+        rideRequestIds = getIntent().getStringArrayListExtra("rideRequestIds");
+        if (rideRequestIds == null || rideRequestIds.isEmpty()) {
             ToastUtils.showInfo(this, "No ride history to display");
             finish();
             return;
         }
 
-        txtTitle.setText("Ride History Map (" + rideHistory.size() + " rides)");
+        txtTitle.setText("Ride History Map (" + rideRequestIds.size() + " rides)");
         loadRideRequests();
     }
 
+    // Ride requests seen before come from the local store; only the rest are fetched, by id
     private void loadRideRequests() {
-        List<String> rideRequestIds = new ArrayList<>();
-        for (FeedbackRequest feedback : rideHistory) {
-            rideRequestIds.add(feedback.getRideRequestId());
+        RideHistoryStore store = RideHistoryStore.getInstance(this);
+        storeExecutor.execute(() -> {
+            List<RideRequest> stored = store.getRideRequests(rideRequestIds);
+            mainHandler.post(() -> {
+                if (isDestroyed()) return;
+                rideRequests = new ArrayList<>(stored);
+                Set<String> missing = new HashSet<>(rideRequestIds);
+                for (RideRequest rideRequest : stored) {
+                    missing.remove(rideRequest.getRequestId());
+                }
+                missing.remove(null);
+                fetchRideRequests(store, missing);
+            });
+        });
+    }
+
+    private void fetchRideRequests(RideHistoryStore store, Set<String> requestIds) {
+        if (requestIds.isEmpty()) {
+            displayRidesOnMap();
+            return;
         }
 
-        FirebaseHelper.getRideRequestsRef().addListenerForSingleValueEvent(new com.google.firebase.database.ValueEventListener() {
-            @Override
-            public void onDataChange(com.google.firebase.database.DataSnapshot dataSnapshot) {
-                rideRequests = new ArrayList<>();
-                for (com.google.firebase.database.DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                    RideRequest rideRequest = snapshot.getValue(RideRequest.class);
-                    if (rideRequest != null && rideRequestIds.contains(rideRequest.getRequestId())) {
-                        rideRequests.add(rideRequest);
-                    }
-                }
-                displayRidesOnMap();
-            }
+        List<RideRequest> fetched = new ArrayList<>();
+        int[] remaining = {requestIds.size()};
+        Runnable onFetched = () -> {
+            if (--remaining[0] > 0 || isDestroyed()) return;
+            rideRequests.addAll(fetched);
+            storeExecutor.execute(() -> store.putRideRequests(fetched));
+            displayRidesOnMap();
+        };
 
-            @Override
-            public void onCancelled(com.google.firebase.database.DatabaseError databaseError) {
-                Log.e(TAG, "Error loading ride requests: " + databaseError.getMessage());
-                ToastUtils.showError(RideHistoryMapActivity.this, "Error loading ride data");
-            }
-        });
+        for (String requestId : requestIds) {
+            FirebaseHelper.getRideRequestsRef().child(requestId).get()
+                    .addOnSuccessListener(snapshot -> {
+                        RideRequest rideRequest = snapshot.getValue(RideRequest.class);
+                        if (rideRequest != null) {
+                            rideRequest.setRequestId(requestId);
+                            fetched.add(rideRequest);
+                        }
+                        onFetched.run();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Error loading ride request " + requestId + ": " + e.getMessage());
+                        onFetched.run();
+                    });
+        }
     }
 
     private void displayRidesOnMap() {
@@ -198,11 +230,16 @@ public class RideHistoryMapActivity extends AppCompatActivity {
 
         clearMap();
         showLoadingProgress();
-        addRidesToMap();
         centerMapOnRides();
+        addRidesToMap();
     }
 
     private void clearMap() {
+        if (routeLoader != null) {
+            routeLoader.cancel();
+            routeLoader = null;
+        }
+
         for (Polyline line : routeLines) {
             mapView.getOverlays().remove(line);
         }
@@ -215,23 +252,32 @@ public class RideHistoryMapActivity extends AppCompatActivity {
     }
 
     private void addRidesToMap() {
-        final int totalRides = rideRequests.size();
-        final int[] completedRides = {0};
-        
-        for (int i = 0; i < rideRequests.size(); i++) {
-            RideRequest rideRequest = rideRequests.get(i);
-            addRideToMap(rideRequest, i, () -> {
-                completedRides[0]++;
-                updateLoadingProgress(completedRides[0], totalRides);
-                
-                if (completedRides[0] >= totalRides) {
-                    hideLoadingProgress();
+        routeLoader = new HistoryRouteLoader(AppConfig.HISTORY_MAP_ROUTE_CONCURRENCY, new HistoryRouteLoader.Listener() {
+            @Override
+            public void onRoutesLoaded(List<HistoryRouteLoader.LoadedRoute> routes, int completed, int total) {
+                for (HistoryRouteLoader.LoadedRoute route : routes) {
+                    addRealRoute(route.routePoints, route.index);
                 }
-            });
+                mapView.invalidate();
+                updateLoadingProgress(completed, total);
+            }
+
+            @Override
+            public void onAllRoutesLoaded() {
+                hideLoadingProgress();
+            }
+        });
+
+        for (int i = 0; i < rideRequests.size(); i++) {
+            addRideToMap(rideRequests.get(i), i);
         }
+        mapView.invalidate();
+
+        routeLoader.setViewport(mapView.getBoundingBox());
+        routeLoader.start();
     }
 
-    private void addRideToMap(RideRequest rideRequest, int index, Runnable onComplete) {
+    private void addRideToMap(RideRequest rideRequest, int index) {
         try {
             GeoPoint pickupPoint = new GeoPoint(rideRequest.getPickupLatitude(), rideRequest.getPickupLongitude());
             GeoPoint dropoffPoint = new GeoPoint(rideRequest.getDropoffLatitude(), rideRequest.getDropoffLongitude());
@@ -242,14 +288,22 @@ public class RideHistoryMapActivity extends AppCompatActivity {
             }
 
             if (showRoutes) {
-                getRouteFromOSRM(pickupPoint, dropoffPoint, index, onComplete);
-            } else {
-                onComplete.run();
+                List<GeoPoint> storedRoute = PolylineCodec.decode(rideRequest.getRoutePolyline());
+                if (storedRoute.size() >= 2) {
+                    addRealRoute(storedRoute, index);
+                } else {
+                    routeLoader.addRoute(index, pickupPoint, dropoffPoint);
+                }
             }
 
         } catch (Exception e) {
             Log.e(TAG, "Error adding ride to map: " + e.getMessage());
-            onComplete.run();
+        }
+    }
+
+    private void updateRouteLoaderViewport() {
+        if (routeLoader != null) {
+            routeLoader.setViewport(mapView.getBoundingBox());
         }
     }
 
@@ -279,66 +333,6 @@ public class RideHistoryMapActivity extends AppCompatActivity {
         }
     }
 
-    private void getRouteFromOSRM(GeoPoint start, GeoPoint end, int index, Runnable onComplete) {
-        if (start == null || end == null) {
-            return;
-        }
-
-        String url = OSRM_BASE_URL + start.getLongitude() + "," + start.getLatitude() + ";" +
-                end.getLongitude() + "," + end.getLatitude() + "?overview=full&geometries=geojson";
-
-        executorService.execute(() -> {
-            try {
-                URL urlObj = new URL(url);
-                HttpURLConnection connection = (HttpURLConnection) urlObj.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(10000);
-                connection.setReadTimeout(10000);
-
-                int responseCode = connection.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-
-                    JSONObject jsonResponse = new JSONObject(response.toString());
-                    if (jsonResponse.has("routes") && jsonResponse.getJSONArray("routes").length() > 0) {
-                        JSONObject route = jsonResponse.getJSONArray("routes").getJSONObject(0);
-                        JSONObject geometry = route.getJSONObject("geometry");
-                        JSONArray coordinates = geometry.getJSONArray("coordinates");
-
-                        List<GeoPoint> routePoints = new ArrayList<>();
-                        for (int i = 0; i < coordinates.length(); i++) {
-                            JSONArray coord = coordinates.getJSONArray(i);
-                            double lon = coord.getDouble(0);
-                            double lat = coord.getDouble(1);
-                            routePoints.add(new GeoPoint(lat, lon));
-                        }
-
-                        mainHandler.post(() -> {
-                            addRealRoute(routePoints, index);
-                            onComplete.run();
-                        });
-                    } else {
-                        Log.e(TAG, "No route found for ride " + index);
-                        onComplete.run();
-                    }
-                } else {
-                    Log.e(TAG, "HTTP Error: " + responseCode + " for ride " + index);
-                    onComplete.run();
-                }
-                connection.disconnect();
-            } catch (Exception e) {
-                Log.e(TAG, "Error getting route for ride " + index + ": " + e.getMessage());
-                onComplete.run();
-            }
-        });
-    }
-
     private void addRealRoute(List<GeoPoint> routePoints, int index) {
         try {
             if (routePoints == null || routePoints.isEmpty()) {
@@ -355,7 +349,6 @@ public class RideHistoryMapActivity extends AppCompatActivity {
             
             mapView.getOverlays().add(routeLine);
             routeLines.add(routeLine);
-            mapView.invalidate();
 
         } catch (Exception e) {
             Log.e(TAG, "Error adding real route: " + e.getMessage());
@@ -479,6 +472,9 @@ public class RideHistoryMapActivity extends AppCompatActivity {
         if (mapView != null) {
             mapView.onPause();
         }
+        if (isFinishing() && routeLoader != null) {
+            routeLoader.cancel();
+        }
     }
 
     @Override
@@ -487,8 +483,9 @@ public class RideHistoryMapActivity extends AppCompatActivity {
         if (mapView != null) {
             mapView.onDetach();
         }
-        if (executorService != null) {
-            executorService.shutdown();
+        if (routeLoader != null) {
+            routeLoader.cancel();
         }
+        storeExecutor.shutdown();
     }
 }
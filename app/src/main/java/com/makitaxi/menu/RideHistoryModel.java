@@ -0,0 +1,116 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The loaded rides keyed by feedback id, with a count of those that pass the current filter.
+ * Adding, replacing or removing one ride adjusts the count by that ride alone, so a single
+ * rating change costs the same however long the history is.
+ *
+ * Changing the filter and listing the filtered rides go through a {@link RideHistoryIndex}.
+ * It is built on first use and then updated one ride at a time along with the count, so
+ * neither looks at rides the filter leaves out.
+ */
+final class RideHistoryModel {
+
+    private final Map<String, FeedbackRequest> rides = new HashMap<>();
+    private RideHistoryQuery filter;
+    // Built on first use, and again only when the filter switches between driver and passenger
+    private RideHistoryIndex index;
+
+    private int visibleCount = 0;
+
+    /**
+     * @return true if the ride was or now is visible, i.e. the shown list changed
+     */
+    boolean put(String feedbackId, FeedbackRequest feedback) {
+        FeedbackRequest previous = rides.put(feedbackId, feedback);
+        if (index != null) {
+            if (previous != null) {
+                index.remove(previous);
+            }
+            index.add(feedback);
+        }
+        boolean wasVisible = previous != null && exclude(previous);
+        boolean isVisible = include(feedback);
+        return wasVisible || isVisible;
+    }
+
+    /**
+     * @return true if the removed ride was visible
+     */
+    boolean remove(String feedbackId) {
+        FeedbackRequest previous = rides.remove(feedbackId);
+        if (previous == null) return false;
+        if (index != null) {
+            index.remove(previous);
+        }
+        return exclude(previous);
+    }
+
+    void clear() {
+        rides.clear();
+        index = null;
+        visibleCount = 0;
+    }
+
+    /**
+     * @param filter null shows every ride
+     */
+    void setFilter(RideHistoryQuery filter) {
+        boolean sameSide = this.filter != null && filter != null && this.filter.driver == filter.driver;
+        if (!sameSide) {
+            index = null;
+        }
+        this.filter = filter;
+        visibleCount = filter == null ? rides.size() : index().count(filter.from, filter.to, filter.counterpartyId);
+    }
+
+    boolean isVisible(FeedbackRequest feedback) {
+        return filter == null || filter.matches(feedback);
+    }
+
+    List<FeedbackRequest> getAll() {
+        return new ArrayList<>(rides.values());
+    }
+
+    /**
+     * The rides passing the filter, newest first.
+     */
+    List<FeedbackRequest> getVisible() {
+        if (filter == null) return index().query(0, 0, null);
+        return index().query(filter.from, filter.to, filter.counterpartyId);
+    }
+
+    int size() {
+        return rides.size();
+    }
+
+    int getVisibleCount() {
+        return visibleCount;
+    }
+
+    private RideHistoryIndex index() {
+        if (index == null) {
+            index = new RideHistoryIndex(rides.values(), filter != null && filter.driver);
+        }
+        return index;
+    }
+
+    private boolean include(FeedbackRequest feedback) {
+        if (!isVisible(feedback)) return false;
+        visibleCount++;
+        return true;
+    }
+
+    private boolean exclude(FeedbackRequest feedback) {
+        if (!isVisible(feedback)) return false;
+        visibleCount--;
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rides shown by the history screen: one user's rides, optionally narrowed to a date range
+ * and to one person they rode with. The same criteria are used as an SQL selection over the
+ * local store, as a lookup in the {@link RideHistoryIndex} of loaded rides and, through
+ * {@link #matches}, on rides that arrive while the screen is open.
+ */
+final class RideHistoryQuery {
+
+    final String userId;
+    final boolean driver;
+    // 0 leaves that side of the range open
+    final long from;
+    final long to;
+    // User id of the other person on the ride; null matches everyone
+    final String counterpartyId;
+
+    RideHistoryQuery(String userId, boolean driver, long from, long to, String counterpartyId) {
+        this.userId = userId;
+        this.driver = driver;
+        this.from = from;
+        this.to = to;
+        this.counterpartyId = counterpartyId;
+    }
+
+    boolean matches(FeedbackRequest feedback) {
+        if (from > 0 && feedback.getTimestamp() < from) return false;
+        if (to > 0 && feedback.getTimestamp() > to) return false;
+        if (counterpartyId == null) return true;
+        return counterpartyId.equals(RideHistoryIndex.counterpartyId(feedback, driver));
+    }
+
+    boolean isFiltered() {
+        return from > 0 || to > 0 || counterpartyId != null;
+    }
+
+    String selection() {
+        return selection(null, null);
+    }
+
+    /**
+     * The selection with a keyset cursor: only rides older than the given one, in the same
+     * timestamp then id order the store pages in.
+     */
+    String selection(Long beforeTimestamp, String beforeId) {
+        StringBuilder selection = new StringBuilder(RideHistoryStore.COL_USER_ID).append(" = ?");
+        if (from > 0) {
+            selection.append(" AND ").append(RideHistoryStore.COL_TIMESTAMP).append(" >= ?");
+        }
+        if (to > 0) {
+            selection.append(" AND ").append(RideHistoryStore.COL_TIMESTAMP).append(" <= ?");
+        }
+        if (counterpartyId != null) {
+            selection.append(" AND ").append(RideHistoryStore.COL_COUNTERPARTY_ID).append(" = ?");
+        }
+        if (beforeTimestamp != null) {
+            selection.append(" AND (").append(RideHistoryStore.COL_TIMESTAMP).append(" < ? OR (")
+                    .append(RideHistoryStore.COL_TIMESTAMP).append(" = ? AND ")
+                    .append(RideHistoryStore.COL_FEEDBACK_ID).append(" < ?))");
+        }
+        return selection.toString();
+    }
+
+    String[] selectionArgs() {
+        return selectionArgs(null, null);
+    }
+
+    String[] selectionArgs(Long beforeTimestamp, String beforeId) {
+        List<String> args = new ArrayList<>();
+        args.add(userId);
+        if (from > 0) {
+            args.add(String.valueOf(from));
+        }
+        if (to > 0) {
+            args.add(String.valueOf(to));
+        }
+        if (counterpartyId != null) {
+            args.add(counterpartyId);
+        }
+        if (beforeTimestamp != null) {
+            args.add(String.valueOf(beforeTimestamp));
+            args.add(String.valueOf(beforeTimestamp));
+            args.add(beforeId);
+        }
+        return args.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,137 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+import com.makitaxi.model.RideRequest;
+import com.makitaxi.utils.PdfStreamWriter;
+import com.makitaxi.utils.PdfStreamWriter.Align;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Lays out the ride history PDF report: a summary on the first page, then a table of rides
+ * that continues over as many landscape A4 pages as it needs, with the column headers and
+ * footer repeated on every page.
+ *
+ * Rides are added one at a time and each page goes to the output as soon as it is full, so
+ * the report never holds more than one page of rides.
+ */
+public final class RideHistoryReport implements RideExportWriter {
+
+    private static final int PAGE_WIDTH = 842;
+    private static final int PAGE_HEIGHT = 595;
+    private static final int LEFT_MARGIN = 50;
+    private static final int RIGHT_MARGIN = 792;
+    private static final int TOP = 50;
+    // Last baseline a ride row may use before the footer
+    private static final int LAST_ROW = 530;
+    private static final int ROW_HEIGHT = 20;
+
+    private static final float TITLE_SIZE = 24;
+    private static final float HEADER_SIZE = 16;
+    private static final float TEXT_SIZE = 12;
+    private static final float COLUMN_GAP = 10;
+
+    private static final String[] COLUMNS = {"Date", "Pickup", "Destination", "Price", "Distance"};
+    private static final int[] COLUMN_WIDTHS = {120, 250, 250, 80, 80};
+
+    private final PdfStreamWriter writer;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
+    private int y;
+
+    /**
+     * Writes the summary and starts the ride table.
+     *
+     * @param driver whether the user drove these rides, which makes the amount earnings
+     */
+    public RideHistoryReport(OutputStream out, boolean driver, RideHistoryStore.Totals totals) throws IOException {
+        writer = new PdfStreamWriter(out, PAGE_WIDTH, PAGE_HEIGHT);
+        writer.startPage();
+        y = TOP;
+
+        writer.drawText("MakiTaxi - Ride History Report", PAGE_WIDTH / 2f, y, TITLE_SIZE, true, Align.CENTER);
+        y += 40;
+        writer.drawText("Generated on: " + dateFormat.format(new Date()), LEFT_MARGIN, y, TEXT_SIZE, false, Align.LEFT);
+        y += 20;
+        writer.drawText("Total rides: " + totals.rideCount, LEFT_MARGIN, y, TEXT_SIZE, false, Align.LEFT);
+        y += 40;
+
+        writer.drawText("Summary Statistics", LEFT_MARGIN, y, HEADER_SIZE, true, Align.LEFT);
+        y += 25;
+        String[][] stats = {
+                {"Total Rides", String.valueOf(totals.rideCount)},
+                {"Total Distance", String.format(Locale.getDefault(), "%.1f km", totals.totalDistance)},
+                {driver ? "Total Earnings" : "Total Spent", String.format(Locale.getDefault(), "%.0f din", totals.totalPrice)}
+        };
+        for (String[] stat : stats) {
+            writer.drawText(stat[0] + ": " + stat[1], LEFT_MARGIN, y, TEXT_SIZE, false, Align.LEFT);
+            y += 20;
+        }
+        y += 20;
+
+        writer.drawText("Ride Details", LEFT_MARGIN, y, HEADER_SIZE, true, Align.LEFT);
+        y += 25;
+        drawColumnHeaders();
+    }
+
+    /**
+     * Adds a row for the ride; the report has no columns for route details.
+     */
+    @Override
+    public void write(FeedbackRequest ride, RideRequest request) throws IOException {
+        if (y > LAST_ROW) {
+            finishPage();
+            writer.startPage();
+            y = TOP;
+            drawColumnHeaders();
+        }
+
+        String[] cells = {
+                dateFormat.format(new Date(ride.getTimestamp())),
+                ride.getPickupAddress(),
+                ride.getDropoffAddress(),
+                String.format(Locale.getDefault(), "%.0f din", ride.getPrice()),
+                String.format(Locale.getDefault(), "%.1f km", ride.getDistance())
+        };
+        int x = LEFT_MARGIN;
+        for (int i = 0; i < cells.length; i++) {
+            // Long addresses are cut short instead of running into the next column
+            String cell = PdfStreamWriter.fit(cells[i], COLUMN_WIDTHS[i] - COLUMN_GAP, TEXT_SIZE, false);
+            writer.drawText(cell, x, y, TEXT_SIZE, false, Align.LEFT);
+            x += COLUMN_WIDTHS[i];
+        }
+        y += ROW_HEIGHT;
+    }
+
+    public int getPageCount() {
+        return writer.getPageCount();
+    }
+
+    /**
+     * Finishes the last page and the document, and closes the output.
+     */
+    @Override
+    public void close() throws IOException {
+        finishPage();
+        writer.close();
+    }
+
+    private void drawColumnHeaders() {
+        int x = LEFT_MARGIN;
+        for (int i = 0; i < COLUMNS.length; i++) {
+            writer.drawText(COLUMNS[i], x, y, HEADER_SIZE, true, Align.LEFT);
+            x += COLUMN_WIDTHS[i];
+        }
+        y += ROW_HEIGHT;
+    }
+
+    private void finishPage() throws IOException {
+        // Pages are numbered as they are written; the total is not known until the end
+        writer.drawText("Generated by MakiTaxi App", PAGE_WIDTH / 2f, 570, TEXT_SIZE, false, Align.CENTER);
+        writer.drawText("Page " + (writer.getPageCount() + 1), RIGHT_MARGIN, 570, TEXT_SIZE, false, Align.RIGHT);
+        writer.finishPage();
+    }
+}
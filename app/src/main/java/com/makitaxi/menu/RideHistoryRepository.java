@@ -0,0 +1,604 @@
+package com.makitaxi.menu;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+import com.makitaxi.model.FeedbackRequest;
+import com.makitaxi.model.RideRequest;
+import com.makitaxi.utils.FirebaseHelper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * One user's ride history, read from the on-device {@link RideHistoryStore} and kept in step
+ * with the server.
+ *
+ * Pages come from disk, newest first, narrowed by the current {@link RideHistoryQuery}, so the
+ * screen has rides to show before the network answers. {@link #sync} then reads the
+ * user_rides/{uid} index from the newest value already synced, fetches only the feedback of
+ * those rides and writes it to the store. Index values are the server time a ride was last
+ * written, and a rating touches them again, so older rides that were rated come back in.
+ * Pages stay ordered by the ride's own timestamp.
+ *
+ * Rides still waiting for a rating keep a listener on their feedback node, and rides indexed
+ * after {@link #watchNewRides} are picked up by a child listener on the index. Changes are
+ * written to the store and reported one ride at a time to the {@link ChangeListener}.
+ *
+ * All methods must be called on the main thread; disk access runs on a background thread.
+ */
+public class RideHistoryRepository {
+
+    private static final String TAG = "RideHistoryRepository";
+
+    public static final int PAGE_SIZE = 20;
+    // Rides read from the store at a time while writing a report or export
+    private static final int REPORT_CHUNK = 200;
+    // How long an export waits for the ride requests of one chunk that are not on the device
+    private static final long REQUEST_FETCH_TIMEOUT_SECONDS = 30;
+
+    public interface PageListener {
+        void onPageLoaded(List<FeedbackRequest> page, boolean hasMore);
+
+        void onPageError(String error);
+    }
+
+    public interface ChangeListener {
+        /** A loaded ride changed, or a new ride was finished. */
+        void onRideChanged(String feedbackId, FeedbackRequest feedback);
+
+        void onRideRemoved(String feedbackId);
+    }
+
+    public interface SyncListener {
+        /**
+         * @param rides      rides that were new or changed on the server
+         * @param firstSync  true if nothing had been synced on this device before
+         */
+        void onSynced(List<FeedbackRequest> rides, boolean firstSync);
+
+        void onSyncError(String error);
+    }
+
+    public interface ResultCallback<T> {
+        void onResult(T result);
+    }
+
+    /** Progress of a PDF report or a raw export. */
+    public interface ReportListener {
+        void onReportProgress(int written, int total);
+
+        void onReportReady(File file);
+
+        void onReportError(String error);
+    }
+
+    private final RideHistoryStore store;
+    private final String userId;
+    private final boolean driver;
+    private final int pageSize;
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    // Reports and exports get their own thread so pages keep loading while one is written
+    private final ExecutorService reportExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private RideHistoryQuery query;
+
+    // Timestamp and key of the oldest ride loaded so far; null before the first page
+    private Long cursorTimestamp;
+    private String cursorKey;
+    private boolean loading = false;
+    private boolean exhausted = false;
+    private boolean syncing = false;
+    // Also read by a report being written, which stops when the screen goes away
+    private volatile boolean released = false;
+    private int generation = 0;
+
+    private ChangeListener changeListener;
+    // One listener per loaded ride still waiting for a rating, on feedback_requests/{feedbackId}
+    private final Map<String, ValueEventListener> watchers = new HashMap<>();
+    private boolean watchingNewRides = false;
+    private Query newRidesQuery;
+    private ChildEventListener newRidesListener;
+
+    public RideHistoryRepository(Context context, String userId, boolean driver) {
+        this(RideHistoryStore.getInstance(context), userId, driver, PAGE_SIZE);
+    }
+
+    public RideHistoryRepository(RideHistoryStore store, String userId, boolean driver, int pageSize) {
+        this.store = store;
+        this.userId = userId;
+        this.driver = driver;
+        this.pageSize = pageSize;
+        this.query = new RideHistoryQuery(userId, driver, 0, 0, null);
+    }
+
+    /**
+     * Limits pages, totals and reports to rides between the two timestamps, inclusive, and to
+     * rides with the given user; 0 and null leave that part open. Starts again from the
+     * newest ride.
+     */
+    public void setFilter(long from, long to, String counterpartyId) {
+        query = new RideHistoryQuery(userId, driver, from, to, counterpartyId);
+        reset();
+    }
+
+    RideHistoryQuery getQuery() {
+        return query;
+    }
+
+    public void setChangeListener(ChangeListener listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Reports rides added to or rated in the index from now on, and rides removed from it.
+     */
+    public void watchNewRides() {
+        if (watchingNewRides) return;
+        watchingNewRides = true;
+        // Index values are server times, so "now" is the device clock moved by the server offset
+        FirebaseHelper.getServerTimeOffsetRef().addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Long offset = snapshot.getValue(Long.class);
+                watchNewRidesSince(System.currentTimeMillis() + (offset != null ? offset : 0));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Server time offset unavailable: " + error.getMessage());
+                watchNewRidesSince(System.currentTimeMillis());
+            }
+        });
+    }
+
+    private void watchNewRidesSince(long since) {
+        if (released || newRidesListener != null) return;
+        newRidesQuery = FirebaseHelper.getUserRidesRef().child(userId).orderByValue().startAt(since);
+        newRidesListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                if (!watchers.containsKey(snapshot.getKey())) {
+                    watch(snapshot.getKey());
+                }
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                String feedbackId = snapshot.getKey();
+                unwatch(feedbackId);
+                removeRide(feedbackId);
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Error watching new rides: " + error.getMessage());
+            }
+        };
+        newRidesQuery.addChildEventListener(newRidesListener);
+    }
+
+    /**
+     * Removes every listener and stops delivering results. Writes already queued still reach
+     * the store.
+     */
+    public void release() {
+        reset();
+        released = true;
+        if (newRidesListener != null) {
+            newRidesQuery.removeEventListener(newRidesListener);
+            newRidesListener = null;
+            newRidesQuery = null;
+        }
+        executorService.shutdown();
+        reportExecutor.shutdown();
+    }
+
+    /**
+     * Starts again from the newest ride. A page that is still loading is dropped, and loaded
+     * rides are no longer watched.
+     */
+    public void reset() {
+        generation++;
+        for (String feedbackId : new ArrayList<>(watchers.keySet())) {
+            unwatch(feedbackId);
+        }
+        cursorTimestamp = null;
+        cursorKey = null;
+        loading = false;
+        exhausted = false;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public boolean hasMore() {
+        return !exhausted;
+    }
+
+    /**
+     * Whether the ride sorts among the pages loaded so far. Rides below them come from the store
+     * with a later page, so adding them now would show them twice or out of order.
+     */
+    public boolean isWithinLoadedPages(FeedbackRequest feedback) {
+        if (exhausted) return true;
+        if (cursorTimestamp == null) return false;
+        int byTime = Long.compare(feedback.getTimestamp(), cursorTimestamp);
+        if (byTime != 0) return byTime > 0;
+        return cursorKey == null || feedback.getFeedbackId() == null || feedback.getFeedbackId().compareTo(cursorKey) >= 0;
+    }
+
+    public void loadNextPage(PageListener listener) {
+        if (loading || exhausted || released) return;
+        loading = true;
+        int requestGeneration = generation;
+        RideHistoryQuery pageQuery = query;
+        Long beforeTimestamp = cursorTimestamp;
+        String beforeKey = cursorKey;
+
+        executorService.execute(() -> {
+            try {
+                List<FeedbackRequest> page = store.queryPage(pageQuery, beforeTimestamp, beforeKey, pageSize);
+                postIfCurrent(requestGeneration, () -> {
+                    if (!page.isEmpty()) {
+                        FeedbackRequest oldest = page.get(page.size() - 1);
+                        cursorTimestamp = oldest.getTimestamp();
+                        cursorKey = oldest.getFeedbackId();
+                    }
+                    for (FeedbackRequest feedback : page) {
+                        // Rated rides are final; only pending ones can still change on the server
+                        if (!feedback.isSubmitted() && !watchers.containsKey(feedback.getFeedbackId())) {
+                            watch(feedback.getFeedbackId());
+                        }
+                    }
+                    loading = false;
+                    exhausted = page.size() < pageSize;
+                    listener.onPageLoaded(page, !exhausted);
+                });
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error reading history page: " + e.getMessage());
+                postIfCurrent(requestGeneration, () -> {
+                    loading = false;
+                    listener.onPageError(e.getMessage());
+                });
+            }
+        });
+    }
+
+    /**
+     * Fetches rides indexed or rated since the last completed sync and writes them to the store.
+     */
+    public void sync(SyncListener listener) {
+        if (syncing || released) return;
+        syncing = true;
+        executorService.execute(() -> {
+            long syncedUntil = store.getSyncedUntil(userId);
+            post(() -> fetchSince(syncedUntil, listener));
+        });
+    }
+
+    private void fetchSince(long syncedUntil, SyncListener listener) {
+        Query indexQuery = FirebaseHelper.getUserRidesRef().child(userId).orderByValue();
+        if (syncedUntil > 0) {
+            // Inclusive, so a ride indexed in the same millisecond as the last one is not missed
+            indexQuery = indexQuery.startAt(syncedUntil);
+        }
+        indexQuery.get()
+                .addOnSuccessListener(indexSnapshot -> {
+                    List<String> feedbackIds = new ArrayList<>();
+                    long newest = syncedUntil;
+                    for (DataSnapshot entry : indexSnapshot.getChildren()) {
+                        feedbackIds.add(entry.getKey());
+                        Long timestamp = entry.getValue(Long.class);
+                        if (timestamp != null) {
+                            newest = Math.max(newest, timestamp);
+                        }
+                    }
+                    fetchFeedback(feedbackIds, syncedUntil, newest, listener);
+                })
+                .addOnFailureListener(e -> {
+                    syncing = false;
+                    Log.e(TAG, "Error syncing ride history: " + e.getMessage());
+                    listener.onSyncError(e.getMessage());
+                });
+    }
+
+    private void fetchFeedback(List<String> feedbackIds, long syncedUntil, long newest, SyncListener listener) {
+        if (feedbackIds.isEmpty()) {
+            syncing = false;
+            listener.onSynced(Collections.emptyList(), syncedUntil == 0);
+            return;
+        }
+
+        List<FeedbackRequest> rides = new ArrayList<>(feedbackIds.size());
+        int[] remaining = {feedbackIds.size()};
+        boolean[] failed = {false};
+        Runnable onFetched = () -> {
+            if (--remaining[0] > 0) return;
+            // The screen may have gone away while rides were fetched, and its executor with it
+            if (released) return;
+            executorService.execute(() -> {
+                try {
+                    store.putRides(userId, driver, rides);
+                    // A failed ride is fetched again next time rather than skipped for good
+                    if (!failed[0]) {
+                        store.setSyncedUntil(userId, newest);
+                    }
+                    post(() -> {
+                        syncing = false;
+                        listener.onSynced(rides, syncedUntil == 0);
+                    });
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Error saving synced rides: " + e.getMessage());
+                    post(() -> {
+                        syncing = false;
+                        listener.onSyncError(e.getMessage());
+                    });
+                }
+            });
+        };
+
+        for (String feedbackId : feedbackIds) {
+            FirebaseHelper.getFeedbackRequestsRef().child(feedbackId).get()
+                    .addOnSuccessListener(snapshot -> {
+                        FeedbackRequest feedback = snapshot.getValue(FeedbackRequest.class);
+                        if (feedback != null) {
+                            rides.add(feedback);
+                        }
+                        onFetched.run();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Error loading feedback " + feedbackId + ": " + e.getMessage());
+                        failed[0] = true;
+                        onFetched.run();
+                    });
+        }
+    }
+
+    /**
+     * Every ride matching the current filter, newest first, e.g. for the map.
+     */
+    public void loadAll(ResultCallback<List<FeedbackRequest>> callback) {
+        RideHistoryQuery allQuery = query;
+        runOnStore(() -> store.queryAll(allQuery), callback);
+    }
+
+    /**
+     * Ride count and totals over every ride matching the current filter, not only loaded pages.
+     */
+    public void loadTotals(ResultCallback<RideHistoryStore.Totals> callback) {
+        RideHistoryQuery totalsQuery = query;
+        runOnStore(() -> store.queryTotals(totalsQuery), callback);
+    }
+
+    /**
+     * Writes every ride matching the current filter, newest first, to a PDF report.
+     */
+    public void writeReport(File file, ReportListener listener) {
+        writeRides(file, false, totals -> new RideHistoryReport(new FileOutputStream(file), driver, totals), listener);
+    }
+
+    /**
+     * Writes every ride matching the current filter, newest first, with its route details,
+     * to a CSV or NDJSON file, gzipped if asked.
+     */
+    public void exportRides(File file, RideExport.Format format, boolean gzip, ReportListener listener) {
+        writeRides(file, true, totals -> RideExport.open(new FileOutputStream(file), format, gzip), listener);
+    }
+
+    private interface WriterFactory {
+        RideExportWriter open(RideHistoryStore.Totals totals) throws IOException;
+    }
+
+    /**
+     * Rides are read from the store a chunk at a time and handed to the writer as they are
+     * read, so neither the rides nor the output are ever held whole. Progress is reported after
+     * every chunk; the file is deleted if writing fails or the screen goes away.
+     */
+    private void writeRides(File file, boolean withRequests, WriterFactory factory, ReportListener listener) {
+        if (released) return;
+        RideHistoryQuery writeQuery = query;
+        reportExecutor.execute(() -> {
+            try {
+                RideHistoryStore.Totals totals = store.queryTotals(writeQuery);
+                int written = 0;
+                try (RideExportWriter writer = factory.open(totals)) {
+                    Long beforeTimestamp = null;
+                    String beforeKey = null;
+                    List<FeedbackRequest> chunk;
+                    do {
+                        if (released) break;
+                        chunk = store.queryPage(writeQuery, beforeTimestamp, beforeKey, REPORT_CHUNK);
+                        Map<String, RideRequest> requests = withRequests ? loadRequests(chunk) : Collections.emptyMap();
+                        for (FeedbackRequest ride : chunk) {
+                            writer.write(ride, requests.get(ride.getRideRequestId()));
+                        }
+                        if (!chunk.isEmpty()) {
+                            FeedbackRequest oldest = chunk.get(chunk.size() - 1);
+                            beforeTimestamp = oldest.getTimestamp();
+                            beforeKey = oldest.getFeedbackId();
+                        }
+                        written += chunk.size();
+                        int progress = written;
+                        // Rides synced meanwhile can push the count past the total read up front
+                        int total = Math.max(totals.rideCount, written);
+                        post(() -> listener.onReportProgress(progress, total));
+                    } while (chunk.size() == REPORT_CHUNK);
+                }
+                if (released) {
+                    file.delete();
+                    return;
+                }
+                post(() -> listener.onReportReady(file));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error writing " + file.getName() + ": " + e.getMessage());
+                file.delete();
+                post(() -> listener.onReportError(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Ride requests stored for the rides. The rest were never opened on the map, so they are
+     * fetched here, on the export thread, and stored for next time; rides whose request could
+     * not be fetched in time are written without route details.
+     */
+    private Map<String, RideRequest> loadRequests(List<FeedbackRequest> rides) {
+        List<String> requestIds = new ArrayList<>(rides.size());
+        for (FeedbackRequest ride : rides) {
+            if (ride.getRideRequestId() != null) {
+                requestIds.add(ride.getRideRequestId());
+            }
+        }
+        Map<String, RideRequest> requests = new HashMap<>();
+        for (RideRequest request : store.getRideRequests(requestIds)) {
+            requests.put(request.getRequestId(), request);
+        }
+
+        Map<String, Task<DataSnapshot>> fetches = new HashMap<>();
+        for (String requestId : requestIds) {
+            if (!requests.containsKey(requestId) && !fetches.containsKey(requestId)) {
+                fetches.put(requestId, FirebaseHelper.getRideRequestsRef().child(requestId).get());
+            }
+        }
+        if (fetches.isEmpty()) return requests;
+
+        try {
+            Tasks.await(Tasks.whenAllComplete(fetches.values()), REQUEST_FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            Log.e(TAG, "Error fetching ride requests: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<RideRequest> fetched = new ArrayList<>();
+        for (Map.Entry<String, Task<DataSnapshot>> fetch : fetches.entrySet()) {
+            Task<DataSnapshot> task = fetch.getValue();
+            if (!task.isComplete() || !task.isSuccessful()) continue;
+            RideRequest request = task.getResult().getValue(RideRequest.class);
+            if (request == null) continue;
+            request.setRequestId(fetch.getKey());
+            fetched.add(request);
+            requests.put(fetch.getKey(), request);
+        }
+        if (!fetched.isEmpty()) {
+            store.putRideRequests(fetched);
+        }
+        return requests;
+    }
+
+    public void loadCounterpartyIds(ResultCallback<List<String>> callback) {
+        runOnStore(() -> store.queryCounterpartyIds(userId), callback);
+    }
+
+    private interface StoreRead<T> {
+        T read();
+    }
+
+    private <T> void runOnStore(StoreRead<T> read, ResultCallback<T> callback) {
+        if (released) return;
+        executorService.execute(() -> {
+            try {
+                T result = read.read();
+                post(() -> callback.onResult(result));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error reading ride history: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Listens to one ride's feedback and reports every value, including the first, as a change.
+     */
+    private void watch(String feedbackId) {
+        ValueEventListener watcher = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                FeedbackRequest feedback = snapshot.getValue(FeedbackRequest.class);
+                if (feedback == null) {
+                    removeRide(feedbackId);
+                    return;
+                }
+                if (!released) {
+                    executorService.execute(() ->
+                            store.putRides(userId, driver, Collections.singletonList(feedback)));
+                }
+                if (changeListener != null) {
+                    changeListener.onRideChanged(feedbackId, feedback);
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Error watching feedback " + feedbackId + ": " + error.getMessage());
+            }
+        };
+        watchers.put(feedbackId, watcher);
+        FirebaseHelper.getFeedbackRequestsRef().child(feedbackId).addValueEventListener(watcher);
+    }
+
+    private void unwatch(String feedbackId) {
+        ValueEventListener watcher = watchers.remove(feedbackId);
+        if (watcher != null) {
+            FirebaseHelper.getFeedbackRequestsRef().child(feedbackId).removeEventListener(watcher);
+        }
+    }
+
+    private void removeRide(String feedbackId) {
+        if (!released) {
+            executorService.execute(() -> store.deleteRide(userId, feedbackId));
+        }
+        if (changeListener != null) {
+            changeListener.onRideRemoved(feedbackId);
+        }
+    }
+
+    private void post(Runnable task) {
+        mainHandler.post(() -> {
+            if (!released) {
+                task.run();
+            }
+        });
+    }
+
+    private void postIfCurrent(int requestGeneration, Runnable task) {
+        post(() -> {
+            if (requestGeneration == generation) {
+                task.run();
+            }
+        });
+    }
+}
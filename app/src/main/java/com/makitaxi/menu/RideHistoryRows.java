@@ -0,0 +1,100 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Flattens rides into the rows of the history list: a date header followed by that day's
+ * rides, newest first.
+ *
+ * Rows copy the fields they display. Feedback objects are updated in place when a rating is
+ * submitted, so comparing the rows, not the objects, is what tells the diff a row changed.
+ */
+final class RideHistoryRows {
+
+    static final int TYPE_DATE = 0;
+    static final int TYPE_RIDE = 1;
+
+    static final class Row {
+        final int type;
+        // Date text for headers, feedback id for rides
+        final String key;
+        final FeedbackRequest feedback;
+        final long timestamp;
+        final double price;
+        final String pickupAddress;
+        final String dropoffAddress;
+        final boolean submitted;
+        final int rating;
+
+        private Row(String date) {
+            this.type = TYPE_DATE;
+            this.key = date;
+            this.feedback = null;
+            this.timestamp = 0;
+            this.price = 0;
+            this.pickupAddress = null;
+            this.dropoffAddress = null;
+            this.submitted = false;
+            this.rating = 0;
+        }
+
+        private Row(FeedbackRequest feedback) {
+            this.type = TYPE_RIDE;
+            this.key = feedback.getFeedbackId();
+            this.feedback = feedback;
+            this.timestamp = feedback.getTimestamp();
+            this.price = feedback.getPrice();
+            this.pickupAddress = feedback.getPickupAddress();
+            this.dropoffAddress = feedback.getDropoffAddress();
+            this.submitted = feedback.isSubmitted();
+            this.rating = feedback.getRating();
+        }
+
+        boolean isSameItem(Row other) {
+            return type == other.type && Objects.equals(key, other.key);
+        }
+
+        boolean hasSameContents(Row other) {
+            return timestamp == other.timestamp
+                    && price == other.price
+                    && submitted == other.submitted
+                    && rating == other.rating
+                    && Objects.equals(pickupAddress, other.pickupAddress)
+                    && Objects.equals(dropoffAddress, other.dropoffAddress);
+        }
+    }
+
+    private RideHistoryRows() {
+    }
+
+    static Row rideRow(FeedbackRequest feedback) {
+        return new Row(feedback);
+    }
+
+    /**
+     * @param dayFormat formats the date headers; rides on the same formatted day share one
+     */
+    static List<Row> build(List<FeedbackRequest> rides, DateFormat dayFormat) {
+        List<FeedbackRequest> sorted = new ArrayList<>(rides);
+        Collections.sort(sorted, (a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+
+        List<Row> rows = new ArrayList<>(sorted.size() + 8);
+        String currentDay = null;
+        for (FeedbackRequest feedback : sorted) {
+            String day = dayFormat.format(new Date(feedback.getTimestamp()));
+            if (!day.equals(currentDay)) {
+                rows.add(new Row(day));
+                currentDay = day;
+            }
+            rows.add(new Row(feedback));
+        }
+        return rows;
+    }
+}
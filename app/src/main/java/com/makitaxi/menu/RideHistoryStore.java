@@ -0,0 +1,476 @@
+package com.makitaxi.menu;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import com.makitaxi.model.FeedbackRequest;
+import com.makitaxi.model.RideRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * On-device copy of the ride history, so the history screen renders from disk and only asks
+ * the server for rides newer than the last sync.
+ *
+ * Rides are stored per signed-in user together with the id of the other person on the ride,
+ * and indexed by timestamp, by that person and by rating. Filtering and the rides for the PDF
+ * report are SQL over these indexes. Ride requests are kept by id for the map.
+ *
+ * Ride count, distance and earnings or spend are also kept per user in day, week and month
+ * buckets (see {@link HistoryPeriods}). Every write adjusts the buckets of the rides it adds,
+ * replaces or removes, so totals for a date range add up a handful of buckets instead of
+ * reading every ride in it.
+ *
+ * Every method does disk I/O and must be called off the main thread.
+ */
+public class RideHistoryStore extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "ride_history.db";
+    private static final int DATABASE_VERSION = 4;
+
+    static final String TABLE_RIDES = "rides";
+    static final String COL_USER_ID = "user_id";
+    static final String COL_FEEDBACK_ID = "feedback_id";
+    static final String COL_RIDE_REQUEST_ID = "ride_request_id";
+    static final String COL_PASSENGER_ID = "passenger_id";
+    static final String COL_DRIVER_ID = "driver_id";
+    static final String COL_PASSENGER_NAME = "passenger_name";
+    static final String COL_DRIVER_NAME = "driver_name";
+    static final String COL_COUNTERPARTY_ID = "counterparty_id";
+    static final String COL_PICKUP_ADDRESS = "pickup_address";
+    static final String COL_DROPOFF_ADDRESS = "dropoff_address";
+    static final String COL_PRICE = "price";
+    static final String COL_CAR_TYPE = "car_type";
+    static final String COL_DISTANCE = "distance";
+    static final String COL_TIMESTAMP = "timestamp";
+    static final String COL_SUBMITTED = "submitted";
+    static final String COL_RATING = "rating";
+    static final String COL_COMMENT = "comment";
+
+    private static final String TABLE_RIDE_REQUESTS = "ride_requests";
+    private static final String COL_REQUEST_ID = "request_id";
+    private static final String COL_PICKUP_LATITUDE = "pickup_latitude";
+    private static final String COL_PICKUP_LONGITUDE = "pickup_longitude";
+    private static final String COL_DROPOFF_LATITUDE = "dropoff_latitude";
+    private static final String COL_DROPOFF_LONGITUDE = "dropoff_longitude";
+    private static final String COL_DURATION = "duration";
+    private static final String COL_ESTIMATED_PRICE = "estimated_price";
+    private static final String COL_ROUTE_POLYLINE = "route_polyline";
+
+    private static final String TABLE_AGGREGATES = "ride_aggregates";
+    private static final String COL_PERIOD_KEY = "period_key";
+    private static final String COL_RIDE_COUNT = "ride_count";
+    private static final String COL_AMOUNT = "amount";
+
+    private static final String TABLE_SYNC_STATE = "sync_state";
+    private static final String COL_SYNCED_UNTIL = "synced_until";
+
+    private static final String[] RIDE_COLUMNS = {
+            COL_FEEDBACK_ID, COL_RIDE_REQUEST_ID, COL_PASSENGER_ID, COL_DRIVER_ID,
+            COL_PASSENGER_NAME, COL_DRIVER_NAME, COL_PICKUP_ADDRESS, COL_DROPOFF_ADDRESS,
+            COL_PRICE, COL_CAR_TYPE, COL_DISTANCE, COL_TIMESTAMP, COL_SUBMITTED, COL_RATING, COL_COMMENT
+    };
+
+    private static final int MAX_QUERY_ARGS = 500;
+
+    // Newest first, with the id breaking ties so keyset pages never skip or repeat a ride
+    private static final String NEWEST_FIRST = COL_TIMESTAMP + " DESC, " + COL_FEEDBACK_ID + " DESC";
+
+    public static class Totals {
+        public final int rideCount;
+        public final double totalPrice;
+        public final double totalDistance;
+
+        public Totals(int rideCount, double totalPrice, double totalDistance) {
+            this.rideCount = rideCount;
+            this.totalPrice = totalPrice;
+            this.totalDistance = totalDistance;
+        }
+    }
+
+    private static RideHistoryStore instance;
+
+    public static synchronized RideHistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new RideHistoryStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private RideHistoryStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_RIDES + " ("
+                + COL_USER_ID + " TEXT NOT NULL, "
+                + COL_FEEDBACK_ID + " TEXT NOT NULL, "
+                + COL_RIDE_REQUEST_ID + " TEXT, "
+                + COL_PASSENGER_ID + " TEXT, "
+                + COL_DRIVER_ID + " TEXT, "
+                + COL_PASSENGER_NAME + " TEXT, "
+                + COL_DRIVER_NAME + " TEXT, "
+                + COL_COUNTERPARTY_ID + " TEXT, "
+                + COL_PICKUP_ADDRESS + " TEXT, "
+                + COL_DROPOFF_ADDRESS + " TEXT, "
+                + COL_PRICE + " REAL NOT NULL DEFAULT 0, "
+                + COL_CAR_TYPE + " TEXT, "
+                + COL_DISTANCE + " REAL NOT NULL DEFAULT 0, "
+                + COL_TIMESTAMP + " INTEGER NOT NULL, "
+                + COL_SUBMITTED + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_RATING + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_COMMENT + " TEXT, "
+                + "PRIMARY KEY (" + COL_USER_ID + ", " + COL_FEEDBACK_ID + "))");
+        db.execSQL("CREATE INDEX rides_by_time ON " + TABLE_RIDES
+                + " (" + COL_USER_ID + ", " + COL_TIMESTAMP + ", " + COL_FEEDBACK_ID + ")");
+        db.execSQL("CREATE INDEX rides_by_counterparty ON " + TABLE_RIDES
+                + " (" + COL_USER_ID + ", " + COL_COUNTERPARTY_ID + ", " + COL_TIMESTAMP + ")");
+        db.execSQL("CREATE INDEX rides_by_rating ON " + TABLE_RIDES
+                + " (" + COL_USER_ID + ", " + COL_RATING + ")");
+
+        db.execSQL("CREATE TABLE " + TABLE_RIDE_REQUESTS + " ("
+                + COL_REQUEST_ID + " TEXT PRIMARY KEY, "
+                + COL_PASSENGER_ID + " TEXT, "
+                + COL_DRIVER_ID + " TEXT, "
+                + COL_PICKUP_LATITUDE + " REAL, "
+                + COL_PICKUP_LONGITUDE + " REAL, "
+                + COL_DROPOFF_LATITUDE + " REAL, "
+                + COL_DROPOFF_LONGITUDE + " REAL, "
+                + COL_PICKUP_ADDRESS + " TEXT, "
+                + COL_DROPOFF_ADDRESS + " TEXT, "
+                + COL_CAR_TYPE + " TEXT, "
+                + COL_DISTANCE + " REAL, "
+                + COL_DURATION + " REAL, "
+                + COL_ESTIMATED_PRICE + " REAL, "
+                + COL_TIMESTAMP + " INTEGER, "
+                + COL_PASSENGER_NAME + " TEXT, "
+                + COL_DRIVER_NAME + " TEXT, "
+                + COL_ROUTE_POLYLINE + " TEXT)");
+
+        // Amount is earnings for drivers and spend for passengers: the price of the user's rides
+        db.execSQL("CREATE TABLE " + TABLE_AGGREGATES + " ("
+                + COL_USER_ID + " TEXT NOT NULL, "
+                + COL_PERIOD_KEY + " TEXT NOT NULL, "
+                + COL_RIDE_COUNT + " INTEGER NOT NULL, "
+                + COL_DISTANCE + " REAL NOT NULL, "
+                + COL_AMOUNT + " REAL NOT NULL, "
+                + "PRIMARY KEY (" + COL_USER_ID + ", " + COL_PERIOD_KEY + "))");
+
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " ("
+                + COL_USER_ID + " TEXT PRIMARY KEY, "
+                + COL_SYNCED_UNTIL + " INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Everything here can be synced again from the server
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RIDES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RIDE_REQUESTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_AGGREGATES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+        onCreate(db);
+    }
+
+    List<FeedbackRequest> queryPage(RideHistoryQuery query, Long beforeTimestamp, String beforeId, int limit) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_RIDES, RIDE_COLUMNS,
+                query.selection(beforeTimestamp, beforeId), query.selectionArgs(beforeTimestamp, beforeId),
+                null, null, NEWEST_FIRST, String.valueOf(limit))) {
+            return readRides(cursor);
+        }
+    }
+
+    List<FeedbackRequest> queryAll(RideHistoryQuery query) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_RIDES, RIDE_COLUMNS,
+                query.selection(), query.selectionArgs(), null, null, NEWEST_FIRST)) {
+            return readRides(cursor);
+        }
+    }
+
+    /**
+     * Totals over the rides matching the query. Date bounds are taken as whole days, as the
+     * history screen sets them; without a person to filter by, only buckets are read.
+     */
+    Totals queryTotals(RideHistoryQuery query) {
+        if (query.counterpartyId != null) {
+            return sumRides(query);
+        }
+        SQLiteDatabase db = getReadableDatabase();
+        if (query.from <= 0 && query.to <= 0) {
+            return sumBuckets(db, query.userId, Collections.singletonList(HistoryPeriods.LIFETIME));
+        }
+
+        long from = query.from;
+        long to = query.to;
+        if (from <= 0 || to <= 0) {
+            // An open end only needs to reach the user's first or last ride
+            try (Cursor cursor = db.query(TABLE_RIDES,
+                    new String[]{"MIN(" + COL_TIMESTAMP + ")", "MAX(" + COL_TIMESTAMP + ")"},
+                    COL_USER_ID + " = ?", new String[]{query.userId}, null, null, null)) {
+                if (!cursor.moveToFirst() || cursor.isNull(0)) return new Totals(0, 0, 0);
+                if (from <= 0) from = cursor.getLong(0);
+                if (to <= 0) to = cursor.getLong(1);
+            }
+        }
+        if (from > to) return new Totals(0, 0, 0);
+        return sumBuckets(db, query.userId, HistoryPeriods.cover(from, to));
+    }
+
+    private Totals sumRides(RideHistoryQuery query) {
+        String[] columns = {"COUNT(*)", "TOTAL(" + COL_PRICE + ")", "TOTAL(" + COL_DISTANCE + ")"};
+        try (Cursor cursor = getReadableDatabase().query(TABLE_RIDES, columns,
+                query.selection(), query.selectionArgs(), null, null, null)) {
+            if (!cursor.moveToFirst()) return new Totals(0, 0, 0);
+            return new Totals(cursor.getInt(0), cursor.getDouble(1), cursor.getDouble(2));
+        }
+    }
+
+    private static Totals sumBuckets(SQLiteDatabase db, String userId, List<String> periodKeys) {
+        String[] columns = {"TOTAL(" + COL_RIDE_COUNT + ")", "TOTAL(" + COL_AMOUNT + ")", "TOTAL(" + COL_DISTANCE + ")"};
+        int rideCount = 0;
+        double amount = 0;
+        double distance = 0;
+        for (int start = 0; start < periodKeys.size(); start += MAX_QUERY_ARGS) {
+            List<String> chunk = periodKeys.subList(start, Math.min(periodKeys.size(), start + MAX_QUERY_ARGS));
+            String[] args = new String[chunk.size() + 1];
+            args[0] = userId;
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 1] = chunk.get(i);
+            }
+            try (Cursor cursor = db.query(TABLE_AGGREGATES, columns,
+                    COL_USER_ID + " = ? AND " + COL_PERIOD_KEY + " IN (" + placeholders(chunk.size()) + ")",
+                    args, null, null, null)) {
+                if (cursor.moveToFirst()) {
+                    rideCount += Math.round(cursor.getDouble(0));
+                    amount += cursor.getDouble(1);
+                    distance += cursor.getDouble(2);
+                }
+            }
+        }
+        return new Totals(rideCount, amount, distance);
+    }
+
+    /**
+     * Ids of everyone the user has ridden with.
+     */
+    public List<String> queryCounterpartyIds(String userId) {
+        List<String> ids = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(true, TABLE_RIDES, new String[]{COL_COUNTERPARTY_ID},
+                COL_USER_ID + " = ? AND " + COL_COUNTERPARTY_ID + " IS NOT NULL", new String[]{userId},
+                null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+            }
+        }
+        return ids;
+    }
+
+    public void putRides(String userId, boolean driver, Collection<FeedbackRequest> rides) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (FeedbackRequest feedback : rides) {
+                // A ride seen before is taken out of its old buckets first, e.g. if its price changed
+                removeFromBuckets(db, userId, feedback.getFeedbackId());
+                db.insertWithOnConflict(TABLE_RIDES, null, toValues(userId, driver, feedback),
+                        SQLiteDatabase.CONFLICT_REPLACE);
+                addToBuckets(db, userId, feedback.getTimestamp(), 1, feedback.getDistance(), feedback.getPrice());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void deleteRide(String userId, String feedbackId) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            removeFromBuckets(db, userId, feedbackId);
+            db.delete(TABLE_RIDES, COL_USER_ID + " = ? AND " + COL_FEEDBACK_ID + " = ?",
+                    new String[]{userId, feedbackId});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void removeFromBuckets(SQLiteDatabase db, String userId, String feedbackId) {
+        try (Cursor cursor = db.query(TABLE_RIDES, new String[]{COL_TIMESTAMP, COL_DISTANCE, COL_PRICE},
+                COL_USER_ID + " = ? AND " + COL_FEEDBACK_ID + " = ?", new String[]{userId, feedbackId},
+                null, null, null)) {
+            if (cursor.moveToFirst()) {
+                addToBuckets(db, userId, cursor.getLong(0), -1, -cursor.getDouble(1), -cursor.getDouble(2));
+            }
+        }
+    }
+
+    private static void addToBuckets(SQLiteDatabase db, String userId, long timestamp,
+                                     int rides, double distance, double amount) {
+        // UPSERT needs SQLite 3.24, which older supported Android versions do not ship
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_AGGREGATES + " SET "
+                + COL_RIDE_COUNT + " = " + COL_RIDE_COUNT + " + ?, "
+                + COL_DISTANCE + " = " + COL_DISTANCE + " + ?, "
+                + COL_AMOUNT + " = " + COL_AMOUNT + " + ?"
+                + " WHERE " + COL_USER_ID + " = ? AND " + COL_PERIOD_KEY + " = ?");
+        for (String periodKey : HistoryPeriods.bucketsFor(timestamp)) {
+            update.clearBindings();
+            update.bindLong(1, rides);
+            update.bindDouble(2, distance);
+            update.bindDouble(3, amount);
+            update.bindString(4, userId);
+            update.bindString(5, periodKey);
+            if (update.executeUpdateDelete() > 0) continue;
+
+            ContentValues values = new ContentValues();
+            values.put(COL_USER_ID, userId);
+            values.put(COL_PERIOD_KEY, periodKey);
+            values.put(COL_RIDE_COUNT, rides);
+            values.put(COL_DISTANCE, distance);
+            values.put(COL_AMOUNT, amount);
+            db.insert(TABLE_AGGREGATES, null, values);
+        }
+        update.close();
+    }
+
+    /**
+     * Newest user_rides index value included in the last completed sync, or 0 if the user has
+     * never synced on this device. Index values are server times of the last write to a ride,
+     * not ride times.
+     */
+    public long getSyncedUntil(String userId) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_SYNC_STATE, new String[]{COL_SYNCED_UNTIL},
+                COL_USER_ID + " = ?", new String[]{userId}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    public void setSyncedUntil(String userId, long timestamp) {
+        ContentValues values = new ContentValues();
+        values.put(COL_USER_ID, userId);
+        values.put(COL_SYNCED_UNTIL, timestamp);
+        getWritableDatabase().insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public List<RideRequest> getRideRequests(Collection<String> requestIds) {
+        List<RideRequest> requests = new ArrayList<>();
+        List<String> ids = new ArrayList<>(requestIds);
+        // Older SQLite builds allow at most 999 bound arguments per statement
+        for (int start = 0; start < ids.size(); start += MAX_QUERY_ARGS) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_QUERY_ARGS));
+            try (Cursor cursor = getReadableDatabase().query(TABLE_RIDE_REQUESTS, null,
+                    COL_REQUEST_ID + " IN (" + placeholders(chunk.size()) + ")", chunk.toArray(new String[0]),
+                    null, null, null)) {
+                while (cursor.moveToNext()) {
+                    requests.add(readRideRequest(cursor));
+                }
+            }
+        }
+        return requests;
+    }
+
+    public void putRideRequests(Collection<RideRequest> requests) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (RideRequest request : requests) {
+                ContentValues values = new ContentValues();
+                values.put(COL_REQUEST_ID, request.getRequestId());
+                values.put(COL_PASSENGER_ID, request.getPassengerId());
+                values.put(COL_DRIVER_ID, request.getDriverId());
+                values.put(COL_PICKUP_LATITUDE, request.getPickupLatitude());
+                values.put(COL_PICKUP_LONGITUDE, request.getPickupLongitude());
+                values.put(COL_DROPOFF_LATITUDE, request.getDropoffLatitude());
+                values.put(COL_DROPOFF_LONGITUDE, request.getDropoffLongitude());
+                values.put(COL_PICKUP_ADDRESS, request.getPickupAddress());
+                values.put(COL_DROPOFF_ADDRESS, request.getDropoffAddress());
+                values.put(COL_CAR_TYPE, request.getCarType());
+                values.put(COL_DISTANCE, request.getDistance());
+                values.put(COL_DURATION, request.getDuration());
+                values.put(COL_ESTIMATED_PRICE, request.getEstimatedPrice());
+                values.put(COL_TIMESTAMP, request.getTimestamp());
+                values.put(COL_PASSENGER_NAME, request.getPassengerName());
+                values.put(COL_DRIVER_NAME, request.getDriverName());
+                values.put(COL_ROUTE_POLYLINE, request.getRoutePolyline());
+                db.insertWithOnConflict(TABLE_RIDE_REQUESTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
+    private static ContentValues toValues(String userId, boolean driver, FeedbackRequest feedback) {
+        ContentValues values = new ContentValues();
+        values.put(COL_USER_ID, userId);
+        values.put(COL_FEEDBACK_ID, feedback.getFeedbackId());
+        values.put(COL_RIDE_REQUEST_ID, feedback.getRideRequestId());
+        values.put(COL_PASSENGER_ID, feedback.getPassengerId());
+        values.put(COL_DRIVER_ID, feedback.getDriverId());
+        values.put(COL_PASSENGER_NAME, feedback.getPassengerName());
+        values.put(COL_DRIVER_NAME, feedback.getDriverName());
+        values.put(COL_COUNTERPARTY_ID, RideHistoryIndex.counterpartyId(feedback, driver));
+        values.put(COL_PICKUP_ADDRESS, feedback.getPickupAddress());
+        values.put(COL_DROPOFF_ADDRESS, feedback.getDropoffAddress());
+        values.put(COL_PRICE, feedback.getPrice());
+        values.put(COL_CAR_TYPE, feedback.getCarType());
+        values.put(COL_DISTANCE, feedback.getDistance());
+        values.put(COL_TIMESTAMP, feedback.getTimestamp());
+        values.put(COL_SUBMITTED, feedback.isSubmitted() ? 1 : 0);
+        values.put(COL_RATING, feedback.getRating());
+        values.put(COL_COMMENT, feedback.getComment());
+        return values;
+    }
+
+    private static List<FeedbackRequest> readRides(Cursor cursor) {
+        List<FeedbackRequest> rides = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            FeedbackRequest feedback = new FeedbackRequest(
+                    cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getString(3),
+                    cursor.getString(4), cursor.getString(5), cursor.getString(6), cursor.getString(7),
+                    cursor.getDouble(8), cursor.getString(9), cursor.getDouble(10), cursor.getLong(11));
+            feedback.setSubmitted(cursor.getInt(12) != 0);
+            feedback.setRating(cursor.getInt(13));
+            feedback.setComment(cursor.getString(14));
+            rides.add(feedback);
+        }
+        return rides;
+    }
+
+    private static RideRequest readRideRequest(Cursor cursor) {
+        RideRequest request = new RideRequest();
+        request.setRequestId(cursor.getString(cursor.getColumnIndexOrThrow(COL_REQUEST_ID)));
+        request.setPassengerId(cursor.getString(cursor.getColumnIndexOrThrow(COL_PASSENGER_ID)));
+        request.setDriverId(cursor.getString(cursor.getColumnIndexOrThrow(COL_DRIVER_ID)));
+        request.setPickupLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COL_PICKUP_LATITUDE)));
+        request.setPickupLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COL_PICKUP_LONGITUDE)));
+        request.setDropoffLatitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COL_DROPOFF_LATITUDE)));
+        request.setDropoffLongitude(cursor.getDouble(cursor.getColumnIndexOrThrow(COL_DROPOFF_LONGITUDE)));
+        request.setPickupAddress(cursor.getString(cursor.getColumnIndexOrThrow(COL_PICKUP_ADDRESS)));
+        request.setDropoffAddress(cursor.getString(cursor.getColumnIndexOrThrow(COL_DROPOFF_ADDRESS)));
+        request.setCarType(cursor.getString(cursor.getColumnIndexOrThrow(COL_CAR_TYPE)));
+        request.setDistance(cursor.getDouble(cursor.getColumnIndexOrThrow(COL_DISTANCE)));
+        request.setDuration(cursor.getDouble(cursor.getColumnIndexOrThrow(COL_DURATION)));
+        request.setEstimatedPrice(cursor.getDouble(cursor.getColumnIndexOrThrow(COL_ESTIMATED_PRICE)));
+        request.setTimestamp(cursor.getLong(cursor.getColumnIndexOrThrow(COL_TIMESTAMP)));
+        request.setPassengerName(cursor.getString(cursor.getColumnIndexOrThrow(COL_PASSENGER_NAME)));
+        request.setDriverName(cursor.getString(cursor.getColumnIndexOrThrow(COL_DRIVER_NAME)));
+        request.setRoutePolyline(cursor.getString(cursor.getColumnIndexOrThrow(COL_ROUTE_POLYLINE)));
+        return request;
+    }
+}
@@ -0,0 +1,66 @@
+package com.makitaxi.menu;
+
+import com.google.gson.stream.JsonWriter;
+import com.makitaxi.model.FeedbackRequest;
+import com.makitaxi.model.RideRequest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+
+/**
+ * Writes rides as newline-delimited JSON, one object per line, with the same fields as the
+ * CSV export. Route details go in a nested "route" object, left out when the ride's request is
+ * not stored on the device.
+ */
+public final class RideNdjsonWriter implements RideExportWriter {
+
+    private final Writer out;
+    private final SimpleDateFormat timeFormat = RideExport.isoFormat();
+
+    public RideNdjsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(FeedbackRequest ride, RideRequest request) throws IOException {
+        // JsonWriter writes straight through and allows one value, so each line gets its own
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("feedback_id").value(ride.getFeedbackId());
+        json.name("ride_request_id").value(ride.getRideRequestId());
+        json.name("time").value(RideExport.formatTime(timeFormat, ride.getTimestamp()));
+        json.name("timestamp").value(ride.getTimestamp());
+        json.name("passenger_id").value(ride.getPassengerId());
+        json.name("passenger_name").value(ride.getPassengerName());
+        json.name("driver_id").value(ride.getDriverId());
+        json.name("driver_name").value(ride.getDriverName());
+        json.name("pickup_address").value(ride.getPickupAddress());
+        json.name("dropoff_address").value(ride.getDropoffAddress());
+        json.name("car_type").value(ride.getCarType());
+        json.name("price").value(ride.getPrice());
+        json.name("distance_km").value(ride.getDistance());
+        json.name("rated").value(ride.isSubmitted());
+        if (ride.isSubmitted()) {
+            json.name("rating").value(ride.getRating());
+            json.name("comment").value(ride.getComment());
+        }
+        if (request != null) {
+            json.name("route").beginObject();
+            json.name("pickup_latitude").value(request.getPickupLatitude());
+            json.name("pickup_longitude").value(request.getPickupLongitude());
+            json.name("dropoff_latitude").value(request.getDropoffLatitude());
+            json.name("dropoff_longitude").value(request.getDropoffLongitude());
+            json.name("duration_min").value(request.getDuration());
+            json.name("estimated_price").value(request.getEstimatedPrice());
+            json.endObject();
+        }
+        json.endObject();
+        out.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -31,6 +31,7 @@ public class RideRequest {
     private long timestamp;
     private String passengerName;
     private String driverName;
+    private String routePolyline;
 
     public RideRequest() {
     }
@@ -243,4 +244,12 @@ public class RideRequest {
     public void setDriverName(String driverName) {
         this.driverName = driverName;
     }
-}
\ No newline at end of file
+
+    public String getRoutePolyline() {
+        return routePolyline;
+    }
+
+    public void setRoutePolyline(String routePolyline) {
+        this.routePolyline = routePolyline;
+    }
+}
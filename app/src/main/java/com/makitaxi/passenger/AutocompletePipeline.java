@@ -0,0 +1,323 @@
+package com.makitaxi.passenger;
+
+import android.content.Context;
+import android.os.Handler;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
+import android.widget.Filter;
+
+import com.makitaxi.R;
+import com.makitaxi.utils.LatencyMetrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Address autocomplete shared by every input field: local suggestions are shown on each
+ * keystroke, remote ones after a debounce that adapts to how fast the user types.
+ *
+ * Each field keeps its own debounce, and a generation counter that is bumped on every
+ * keystroke, so a response that arrives for older text is dropped instead of overwriting
+ * newer suggestions.
+ * Latency from keystroke to suggestions shown is recorded per source in {@link #getMetrics()}.
+ *
+ * An empty field offers the passenger's own places instead, without any network request.
+ *
+ * Must be used from the main thread.
+ */
+public class AutocompletePipeline {
+
+    private static final String TAG = "AutocompletePipeline";
+
+    public static final String SOURCE_LOCAL = "local";
+    public static final String SOURCE_REMOTE = "photon";
+    public static final String SOURCE_PLACES = "places";
+
+    static final int MIN_QUERY_LENGTH = 2;
+
+    public interface Source {
+        /** Synchronous suggestions, called on every keystroke. */
+        List<String> getLocalSuggestions(String query);
+
+        /** Asynchronous suggestions; the listener may be called on any thread. */
+        void getRemoteSuggestions(String query, LocationService.LocationSuggestionsListener listener);
+
+        /** Suggestions for an empty field, such as recent places. */
+        List<String> getPlaceSuggestions();
+
+        void cancel();
+    }
+
+    public interface FieldListener {
+        void onLoadingChanged(boolean loading);
+
+        void onSuggestionsShown(List<String> suggestions);
+
+        /** Called after the field text was replaced by the chosen suggestion. */
+        void onSuggestionPicked(String suggestion);
+    }
+
+    private final Handler handler;
+    private final Source source;
+    private final int maxSuggestions;
+    private final LatencyMetrics metrics = new LatencyMetrics();
+    private final Map<AutoCompleteTextView, FieldState> fields = new LinkedHashMap<>();
+
+    private static class FieldState {
+        final AutoCompleteTextView field;
+        final FieldListener listener;
+        final SuggestionAdapter adapter;
+        // Per field, so the gap when moving to the other field is not taken as typing speed
+        final AdaptiveDebounce debounce = new AdaptiveDebounce();
+        int generation;
+        Runnable pending;
+        boolean settingText;
+
+        FieldState(AutoCompleteTextView field, FieldListener listener, SuggestionAdapter adapter) {
+            this.field = field;
+            this.listener = listener;
+            this.adapter = adapter;
+        }
+    }
+
+    public AutocompletePipeline(Handler handler, Source source, int maxSuggestions) {
+        this.handler = handler;
+        this.source = source;
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    public void attach(AutoCompleteTextView field, FieldListener listener) {
+        SuggestionAdapter adapter = new SuggestionAdapter(field.getContext());
+        field.setAdapter(adapter);
+        FieldState state = new FieldState(field, listener, adapter);
+        fields.put(field, state);
+
+        field.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                // Text put in by picking a suggestion or by the app is final, so it is not searched again
+                if (field.isPerformingCompletion() || state.settingText) {
+                    cancelPending(state);
+                    state.generation++;
+                    state.listener.onLoadingChanged(false);
+                    return;
+                }
+                onInput(state, s.toString());
+            }
+
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
+
+        field.setOnItemClickListener((parent, view, position, id) ->
+                listener.onSuggestionPicked(field.getText().toString()));
+    }
+
+    /**
+     * Offers the field's place suggestions if it is still empty, e.g. when it gains focus.
+     */
+    public void showPlaces(AutoCompleteTextView field) {
+        FieldState state = fields.get(field);
+        if (state == null || field.getText().toString().trim().length() > 0) return;
+        showPlaces(state, System.currentTimeMillis());
+    }
+
+    /**
+     * Puts in text the app resolved itself, such as a reverse geocoded map tap. It is not
+     * searched, so no suggestions show up later and clear the point it stands for.
+     */
+    public void setText(AutoCompleteTextView field, String text) {
+        FieldState state = fields.get(field);
+        if (state == null) {
+            field.setText(text);
+            return;
+        }
+        state.settingText = true;
+        try {
+            field.setText(text);
+        } finally {
+            state.settingText = false;
+        }
+        field.dismissDropDown();
+    }
+
+    /**
+     * Drops pending and in-flight requests for every field.
+     */
+    public void cancel() {
+        for (FieldState state : fields.values()) {
+            cancelPending(state);
+            state.generation++;
+            state.listener.onLoadingChanged(false);
+        }
+        source.cancel();
+        Log.d(TAG, "Autocomplete latency:\n" + metrics.summary());
+    }
+
+    public LatencyMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void onInput(FieldState state, String input) {
+        long typedAt = System.currentTimeMillis();
+        cancelPending(state);
+        int generation = ++state.generation;
+
+        if (input.trim().isEmpty()) {
+            state.listener.onLoadingChanged(false);
+            showPlaces(state, typedAt);
+            return;
+        }
+        if (input.trim().length() < MIN_QUERY_LENGTH || containsSpecialChars(input)) {
+            state.listener.onLoadingChanged(false);
+            return;
+        }
+
+        // Local names answer right away; the network is only asked when they are too few
+        List<String> local = source.getLocalSuggestions(input);
+        if (!local.isEmpty()) {
+            show(state, local);
+            metrics.recordSuccess(SOURCE_LOCAL, System.currentTimeMillis() - typedAt);
+        }
+        if (local.size() >= maxSuggestions) {
+            state.listener.onLoadingChanged(false);
+            return;
+        }
+
+        Runnable task = () -> {
+            state.pending = null;
+            source.getRemoteSuggestions(input, new LocationService.LocationSuggestionsListener() {
+                @Override
+                public void onSuggestionsFound(List<String> suggestions) {
+                    handler.post(() -> {
+                        if (generation != state.generation) return;
+                        show(state, suggestions);
+                        state.listener.onLoadingChanged(false);
+                        metrics.recordSuccess(SOURCE_REMOTE, System.currentTimeMillis() - typedAt);
+                    });
+                }
+
+                @Override
+                public void onSuggestionsFoundError(String error) {
+                    Log.e(TAG, "Error getting suggestions: " + error);
+                    handler.post(() -> {
+                        if (generation != state.generation) return;
+                        state.listener.onLoadingChanged(false);
+                        metrics.recordError(SOURCE_REMOTE, System.currentTimeMillis() - typedAt, false);
+                    });
+                }
+            });
+        };
+
+        state.pending = task;
+        state.listener.onLoadingChanged(true);
+        handler.postDelayed(task, state.debounce.nextDelay(typedAt));
+    }
+
+    private void showPlaces(FieldState state, long requestedAt) {
+        List<String> places = source.getPlaceSuggestions();
+        if (places.isEmpty()) return;
+        show(state, places);
+        metrics.recordSuccess(SOURCE_PLACES, System.currentTimeMillis() - requestedAt);
+    }
+
+    private void cancelPending(FieldState state) {
+        if (state.pending != null) {
+            handler.removeCallbacks(state.pending);
+            state.pending = null;
+        }
+    }
+
+    private void show(FieldState state, List<String> suggestions) {
+        state.adapter.setSuggestions(suggestions);
+        state.listener.onSuggestionsShown(suggestions);
+        if (!suggestions.isEmpty() && state.field.hasFocus()) {
+            state.field.showDropDown();
+        }
+    }
+
+    // Same set as the former ".*[\\p{Punct}\\d].*" regex: ASCII punctuation and digits
+    static boolean containsSpecialChars(CharSequence input) {
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') return true;
+            if (c > ' ' && c < 127 && !Character.isLetterOrDigit(c)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Waits about one and a half typical keystroke gaps, so fast typists are not held
+     * back by a fixed delay and slow ones do not fire a request on every letter.
+     */
+    static class AdaptiveDebounce {
+        static final long MIN_DELAY_MS = 250;
+        static final long MAX_DELAY_MS = 800;
+        private static final double GAP_MULTIPLIER = 1.5;
+        private static final double SMOOTHING = 0.3;
+
+        private long lastKeystroke = -1;
+        private double averageGap = -1;
+
+        long nextDelay(long now) {
+            if (lastKeystroke >= 0) {
+                long gap = now - lastKeystroke;
+                // Longer pauses start a new burst rather than describe typing speed
+                if (gap < MAX_DELAY_MS) {
+                    averageGap = averageGap < 0 ? gap : averageGap + SMOOTHING * (gap - averageGap);
+                }
+            }
+            lastKeystroke = now;
+            if (averageGap < 0) return MAX_DELAY_MS;
+            long delay = Math.round(averageGap * GAP_MULTIPLIER);
+            return Math.max(MIN_DELAY_MS, Math.min(MAX_DELAY_MS, delay));
+        }
+    }
+
+    /**
+     * Adapter whose contents are replaced in place. Its filter does not narrow anything
+     * down because suggestions are already matched to the text; it only lets the field
+     * know whether there is something to show.
+     */
+    private static class SuggestionAdapter extends ArrayAdapter<String> {
+
+        private final Filter filter = new Filter() {
+            @Override
+            protected FilterResults performFiltering(CharSequence constraint) {
+                return new FilterResults();
+            }
+
+            @Override
+            protected void publishResults(CharSequence constraint, FilterResults results) {
+                results.count = getCount();
+                notifyDataSetChanged();
+            }
+        };
+
+        SuggestionAdapter(Context context) {
+            super(context, R.layout.drop_down_item, new ArrayList<>());
+            setNotifyOnChange(false);
+        }
+
+        void setSuggestions(List<String> suggestions) {
+            clear();
+            addAll(suggestions);
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public Filter getFilter() {
+            return filter;
+        }
+    }
+}
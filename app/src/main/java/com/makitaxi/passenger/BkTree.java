@@ -0,0 +1,148 @@
+package com.makitaxi.passenger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Burkhard-Keller tree over words for "closest known word" lookups. Children are keyed by
+ * their edit distance to the parent, so a search only descends into the distance band the
+ * triangle inequality allows instead of comparing against every word.
+ *
+ * Not thread-safe; {@link Gazetteer} guards it with its own lock.
+ */
+final class BkTree {
+
+    static final class Match {
+        final String word;
+        final int distance;
+
+        Match(String word, int distance) {
+            this.word = word;
+            this.distance = distance;
+        }
+    }
+
+    private static final class Node {
+        final String word;
+        // Indexed by distance to this node's word
+        Node[] children;
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void add(String word) {
+        if (root == null) {
+            root = new Node(word);
+            size++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(word, node.word);
+            if (distance == 0) return;
+            if (node.children == null) {
+                node.children = new Node[distance + 1];
+            } else if (node.children.length <= distance) {
+                node.children = Arrays.copyOf(node.children, distance + 1);
+            }
+            Node child = node.children[distance];
+            if (child == null) {
+                node.children[distance] = new Node(word);
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Every word within {@code maxDistance} edits of the query, in no particular order.
+     */
+    List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) return matches;
+
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(query, node.word);
+            if (distance <= maxDistance) {
+                matches.add(new Match(node.word, distance));
+            }
+            if (node.children == null) continue;
+            int from = Math.max(1, distance - maxDistance);
+            int to = Math.min(node.children.length - 1, distance + maxDistance);
+            for (int i = from; i <= to; i++) {
+                if (node.children[i] != null) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Damerau-Levenshtein distance: insertions, deletions, substitutions and swaps of two
+     * neighbouring characters each cost one edit, so "mihajlova"/"mihailova" is 1 and
+     * "kenz"/"knez" is 1. Unlike the restricted (optimal string alignment) variant this is
+     * a metric, which the tree's pruning relies on.
+     */
+    static int distance(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+        if (n == 0) return m;
+        if (m == 0) return n;
+
+        int maxChar = 0;
+        for (int i = 0; i < n; i++) maxChar = Math.max(maxChar, a.charAt(i));
+        for (int j = 0; j < m; j++) maxChar = Math.max(maxChar, b.charAt(j));
+        // Last row in which each character was seen in a
+        int[] lastRow = new int[maxChar + 1];
+
+        int infinity = n + m;
+        int[][] d = new int[n + 2][m + 2];
+        d[0][0] = infinity;
+        for (int i = 0; i <= n; i++) {
+            d[i + 1][0] = infinity;
+            d[i + 1][1] = i;
+        }
+        for (int j = 0; j <= m; j++) {
+            d[0][j + 1] = infinity;
+            d[1][j + 1] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            char ca = a.charAt(i - 1);
+            // Last column in this row where the characters matched
+            int lastMatchColumn = 0;
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int k = lastRow[cb];
+                int l = lastMatchColumn;
+                int cost = 1;
+                if (ca == cb) {
+                    cost = 0;
+                    lastMatchColumn = j;
+                }
+                int value = Math.min(d[i][j] + cost, Math.min(d[i + 1][j] + 1, d[i][j + 1] + 1));
+                value = Math.min(value, d[k][l] + (i - k - 1) + 1 + (j - l - 1));
+                d[i + 1][j + 1] = value;
+            }
+            lastRow[ca] = i;
+        }
+        return d[n + 1][m + 1];
+    }
+}
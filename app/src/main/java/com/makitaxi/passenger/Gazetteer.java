@@ -0,0 +1,462 @@
+package com.makitaxi.passenger;
+
+import com.makitaxi.utils.TextUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * On-device list of Belgrade streets and places used for instant autocomplete.
+ *
+ * Every word of every name goes into a sorted token index, so a query is answered by a
+ * few range scans instead of a network call. When the prefix scans find too little,
+ * misspelled words are corrected against a BK-tree of every known word ("mihajlova" ->
+ * "mihailova") and the scans are repeated, and a trigram index catches the remaining
+ * typos and mid-word matches. Names are compared in a normalized form (Latin script,
+ * lower case, no diacritics), so "кнез мих", "Knez Mih" and "knez mih" all find
+ * "Knez Mihailova".
+ *
+ * The binary file is a flat list of (weight, name) records, read back with a buffered stream
+ * and indexed again on load.
+ * All methods are thread-safe.
+ */
+public class Gazetteer {
+
+    private static final int FILE_MAGIC = 0x4D4B475A; // "MKGZ"
+    // 2: files from version 1 may hold every Photon result the app ever saw
+    private static final int FILE_VERSION = 2;
+
+    private static final int SCORE_NAME_PREFIX = 1000;
+    private static final int SCORE_FIRST_WORD = 500;
+    private static final int SCORE_ALL_WORDS = 250;
+    // Matches found only after spelling correction rank below exact ones of the same kind
+    private static final int SCORE_CORRECTED_PENALTY = 500;
+
+    // Words shorter than this are never corrected, they are too easy to confuse
+    private static final int MIN_CORRECTABLE_LENGTH = 4;
+    private static final int TWO_EDITS_MIN_LENGTH = 7;
+
+    private static class Entry {
+        final String name;
+        final String normalized;
+        final String[] tokens;
+        int weight;
+
+        Entry(String name, String normalized, int weight) {
+            this.name = name;
+            this.normalized = normalized;
+            this.tokens = normalized.split(" ");
+            this.weight = weight;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Integer> entryByName = new HashMap<>();
+    private final NavigableMap<String, List<Integer>> tokenIndex = new TreeMap<>();
+    private final Map<String, List<Integer>> trigramIndex = new HashMap<>();
+    private final BkTree vocabulary = new BkTree();
+    private boolean dirty = false;
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean contains(String name) {
+        return name != null && entryByName.containsKey(normalize(name));
+    }
+
+    /**
+     * True when entries were added since the last load or write.
+     */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Adds a name, or raises its weight if it is already known.
+     */
+    public synchronized void add(String name, int weight) {
+        if (name == null || name.trim().isEmpty()) return;
+        String normalized = normalize(name);
+        if (normalized.isEmpty()) return;
+
+        Integer existing = entryByName.get(normalized);
+        if (existing != null) {
+            Entry entry = entries.get(existing);
+            if (weight > entry.weight) {
+                entry.weight = weight;
+                dirty = true;
+            }
+            return;
+        }
+
+        int id = entries.size();
+        Entry entry = new Entry(name.trim(), normalized, weight);
+        entries.add(entry);
+        entryByName.put(normalized, id);
+        for (String token : entry.tokens) {
+            if (addToIndex(tokenIndex, token, id) && isWord(token)) {
+                vocabulary.add(token);
+            }
+        }
+        for (String trigram : trigrams(normalized)) {
+            addToIndex(trigramIndex, trigram, id);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Returns up to {@code limit} names matching the query, best first.
+     */
+    public synchronized List<String> search(String query, int limit) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        String[] queryTokens = normalizedQuery.split(" ");
+        TopResults top = new TopResults(limit);
+        BitSet matched = new BitSet(entries.size());
+        collectPrefixMatches(normalizedQuery, queryTokens, 0, matched, top);
+        if (top.size < limit) {
+            String[] correctedTokens = correctTokens(queryTokens);
+            if (correctedTokens != queryTokens) {
+                collectPrefixMatches(String.join(" ", correctedTokens), correctedTokens,
+                        SCORE_CORRECTED_PENALTY, matched, top);
+            }
+        }
+        if (top.size < limit) {
+            collectTrigramMatches(normalizedQuery, matched, top);
+        }
+
+        List<String> results = new ArrayList<>(top.size);
+        for (int i = 0; i < top.size; i++) {
+            results.add(entries.get(top.ids[i]).name);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the normalized query with every misspelled word replaced by the closest known
+     * word. Words that start some known word are kept as typed, as are short words, house
+     * numbers and words with no close match.
+     */
+    public synchronized String correct(String query) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty()) return normalizedQuery;
+        return String.join(" ", correctTokens(normalizedQuery.split(" ")));
+    }
+
+    // Returns the same array when nothing had to be corrected
+    private String[] correctTokens(String[] queryTokens) {
+        String[] corrected = queryTokens;
+        for (int i = 0; i < queryTokens.length; i++) {
+            String replacement = correctToken(queryTokens[i]);
+            if (replacement.equals(queryTokens[i])) continue;
+            if (corrected == queryTokens) {
+                corrected = queryTokens.clone();
+            }
+            corrected[i] = replacement;
+        }
+        return corrected;
+    }
+
+    private String correctToken(String token) {
+        if (token.length() < MIN_CORRECTABLE_LENGTH || !isWord(token) || isKnownPrefix(token)) {
+            return token;
+        }
+        int maxDistance = token.length() < TWO_EDITS_MIN_LENGTH ? 1 : 2;
+        String best = token;
+        int bestDistance = maxDistance + 1;
+        int bestPostings = 0;
+        for (BkTree.Match match : vocabulary.search(token, maxDistance)) {
+            if (!isCloseMatch(token, match.word)) continue;
+            // Ties go to the word used by more names
+            int postings = tokenIndex.get(match.word).size();
+            if (match.distance < bestDistance || (match.distance == bestDistance && postings > bestPostings)) {
+                best = match.word;
+                bestDistance = match.distance;
+                bestPostings = postings;
+            }
+        }
+        return best;
+    }
+
+    // A typo swaps or drops a letter or two. A word that is the typed one cut short, or
+    // several letters shorter or longer, is more likely a different name the gazetteer lacks
+    // ("jovanovica" is not "jovanova", "vidikovacki" is not "vidikovac")
+    private static boolean isCloseMatch(String token, String word) {
+        return Math.abs(token.length() - word.length()) <= 1 && !token.startsWith(word);
+    }
+
+    // House numbers and other tokens with digits are matched exactly, never corrected
+    private static boolean isWord(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isDigit(token.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private boolean isKnownPrefix(String token) {
+        String ceiling = tokenIndex.ceilingKey(token);
+        return ceiling != null && ceiling.startsWith(token);
+    }
+
+    private void collectPrefixMatches(String normalizedQuery, String[] queryTokens, int penalty,
+                                      BitSet matched, TopResults top) {
+        // Start from the query word with the fewest postings, usually the most specific one
+        Collection<List<Integer>> anchor = null;
+        int anchorCount = Integer.MAX_VALUE;
+        for (String token : queryTokens) {
+            Collection<List<Integer>> postings = tokenIndex.subMap(token, true, token + Character.MAX_VALUE, false).values();
+            int count = 0;
+            for (List<Integer> ids : postings) {
+                count += ids.size();
+            }
+            if (count < anchorCount) {
+                anchor = postings;
+                anchorCount = count;
+            }
+        }
+
+        if (anchor == null || anchorCount == 0) {
+            return;
+        }
+        BitSet candidates = new BitSet(entries.size());
+        for (List<Integer> ids : anchor) {
+            for (int id : ids) {
+                candidates.set(id);
+            }
+        }
+
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            Entry entry = entries.get(id);
+            if (matched.get(id) || !allTokensMatch(entry, queryTokens)) continue;
+
+            int score = entry.weight - penalty;
+            if (entry.normalized.startsWith(normalizedQuery)) {
+                score += SCORE_NAME_PREFIX;
+            } else if (entry.tokens[0].startsWith(queryTokens[0])) {
+                score += SCORE_FIRST_WORD;
+            } else {
+                score += SCORE_ALL_WORDS;
+            }
+            matched.set(id);
+            top.offer(id, score);
+        }
+    }
+
+    private void collectTrigramMatches(String normalizedQuery, BitSet matched, TopResults top) {
+        Set<String> queryTrigrams = trigrams(normalizedQuery);
+        if (queryTrigrams.isEmpty()) return;
+
+        int[] hits = new int[entries.size()];
+        BitSet touched = new BitSet(entries.size());
+        for (String trigram : queryTrigrams) {
+            List<Integer> ids = trigramIndex.get(trigram);
+            if (ids == null) continue;
+            for (int id : ids) {
+                hits[id]++;
+                touched.set(id);
+            }
+        }
+
+        // At least half of the query trigrams must be present
+        int required = (queryTrigrams.size() + 1) / 2;
+        for (int id = touched.nextSetBit(0); id >= 0; id = touched.nextSetBit(id + 1)) {
+            if (hits[id] < required || matched.get(id)) continue;
+            int similarity = hits[id] * 100 / queryTrigrams.size();
+            top.offer(id, similarity + entries.get(id).weight);
+        }
+    }
+
+    /**
+     * Keeps the best {@code limit} results without sorting every candidate.
+     * Ties go to the shorter name.
+     */
+    private class TopResults {
+        final int[] ids;
+        final int[] scores;
+        int size = 0;
+
+        TopResults(int limit) {
+            ids = new int[limit];
+            scores = new int[limit];
+        }
+
+        void offer(int id, int score) {
+            int position = size;
+            while (position > 0 && isBetter(id, score, ids[position - 1], scores[position - 1])) {
+                position--;
+            }
+            if (position >= ids.length) return;
+
+            int last = Math.min(size, ids.length - 1);
+            for (int i = last; i > position; i--) {
+                ids[i] = ids[i - 1];
+                scores[i] = scores[i - 1];
+            }
+            ids[position] = id;
+            scores[position] = score;
+            if (size < ids.length) size++;
+        }
+
+        private boolean isBetter(int id, int score, int otherId, int otherScore) {
+            if (score != otherScore) return score > otherScore;
+            return entries.get(id).name.length() < entries.get(otherId).name.length();
+        }
+    }
+
+    private static boolean allTokensMatch(Entry entry, String[] queryTokens) {
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String token : entry.tokens) {
+                if (token.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    // Returns true when the key was new to the index
+    private static <K> boolean addToIndex(Map<K, List<Integer>> index, K key, int id) {
+        List<Integer> ids = index.get(key);
+        boolean added = ids == null;
+        if (added) {
+            ids = new ArrayList<>(2);
+            index.put(key, ids);
+        }
+        ids.add(id);
+        return added;
+    }
+
+    static Set<String> trigrams(String normalized) {
+        Set<String> result = new HashSet<>();
+        String padded = " " + normalized + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        String latin = TextUtils.transformToLatin(text);
+        if (latin == null) return "";
+
+        StringBuilder sb = new StringBuilder(latin.length());
+        boolean lastWasSpace = true;
+        for (int i = 0; i < latin.length(); i++) {
+            char c = Character.toLowerCase(latin.charAt(i));
+            if (c == 'đ') {
+                sb.append("dj");
+                lastWasSpace = false;
+            } else if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+                lastWasSpace = false;
+            } else if (!lastWasSpace) {
+                sb.append(' ');
+                lastWasSpace = true;
+            }
+        }
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) == ' ') {
+            sb.setLength(length - 1);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads the plain-text seed list: one "name|weight" per line, '#' starts a comment.
+     */
+    public static Gazetteer fromText(Reader reader) throws IOException {
+        Gazetteer gazetteer = new Gazetteer();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int separator = line.lastIndexOf('|');
+            int weight = 1;
+            String name = line;
+            if (separator > 0) {
+                name = line.substring(0, separator);
+                try {
+                    weight = Integer.parseInt(line.substring(separator + 1).trim());
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            gazetteer.add(name, weight);
+        }
+        gazetteer.dirty = true;
+        return gazetteer;
+    }
+
+    /**
+     * Reads a file written by {@link #writeTo}. Every record is indexed again as it is read;
+     * the file only spares parsing the text seed and keeps what was added since.
+     */
+    public static Gazetteer readFrom(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not a gazetteer file: " + file);
+            }
+
+            int count = in.readInt();
+            Gazetteer gazetteer = new Gazetteer();
+            for (int i = 0; i < count; i++) {
+                int weight = in.readShort();
+                byte[] name = new byte[in.readUnsignedShort()];
+                in.readFully(name);
+                gazetteer.add(new String(name, StandardCharsets.UTF_8), weight);
+            }
+            gazetteer.dirty = false;
+            return gazetteer;
+        } catch (EOFException e) {
+            throw new IOException("Truncated gazetteer file: " + file, e);
+        }
+    }
+
+    public synchronized void writeTo(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(Math.min(entry.weight, Short.MAX_VALUE));
+                out.writeShort(name.length);
+                out.write(name);
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+        dirty = false;
+    }
+}
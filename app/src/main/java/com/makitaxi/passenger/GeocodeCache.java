@@ -0,0 +1,34 @@
+package com.makitaxi.passenger;
+
+import org.osmdroid.util.GeoPoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of address to coordinates, keyed by the normalized address so the Latin and
+ * ASCII spellings of a suggestion resolve to the same entry. All methods are thread-safe.
+ */
+public class GeocodeCache {
+
+    private final LinkedHashMap<String, GeoPoint> entries;
+
+    public GeocodeCache(int maxEntries) {
+        this.entries = new LinkedHashMap<String, GeoPoint>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GeoPoint> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized GeoPoint get(String address) {
+        return entries.get(Gazetteer.normalize(address));
+    }
+
+    public synchronized void put(String address, GeoPoint location) {
+        String key = Gazetteer.normalize(address);
+        if (key.isEmpty() || location == null) return;
+        entries.put(key, location);
+    }
+}
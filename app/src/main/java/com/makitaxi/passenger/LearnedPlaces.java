@@ -0,0 +1,108 @@
+package com.makitaxi.passenger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Place names Photon returned that the bundled gazetteer does not know, so they can be
+ * suggested offline next time. Only the {@code maxPlaces} most recently seen are kept; the
+ * gazetteer itself stays the shipped list.
+ *
+ * All methods are thread-safe.
+ */
+public class LearnedPlaces {
+
+    private final int maxPlaces;
+    // Keyed by normalized name, oldest first; learning a name again moves it to the end
+    private final LinkedHashMap<String, String> names = new LinkedHashMap<>();
+    private boolean dirty = false;
+
+    public LearnedPlaces(int maxPlaces) {
+        this.maxPlaces = maxPlaces;
+    }
+
+    public synchronized void learn(String name) {
+        if (name == null) return;
+        String key = Gazetteer.normalize(name);
+        if (key.isEmpty()) return;
+
+        names.remove(key);
+        names.put(key, name.trim());
+        evictOverflow();
+        dirty = true;
+    }
+
+    /**
+     * Most recently seen names whose words start with every word of the query.
+     */
+    public synchronized List<String> search(String query, int limit) {
+        String normalizedQuery = Gazetteer.normalize(query);
+        if (normalizedQuery.isEmpty()) return Collections.emptyList();
+
+        String[] queryTokens = normalizedQuery.split(" ");
+        List<String> matches = new ArrayList<>();
+        for (Map.Entry<String, String> entry : names.entrySet()) {
+            if (matchesAllTokens(entry.getKey(), queryTokens)) {
+                matches.add(entry.getValue());
+            }
+        }
+        Collections.reverse(matches);
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    private void evictOverflow() {
+        while (names.size() > maxPlaces) {
+            names.remove(names.keySet().iterator().next());
+        }
+    }
+
+    private static boolean matchesAllTokens(String normalized, String[] queryTokens) {
+        String[] tokens = normalized.split(" ");
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    public synchronized String toJson() {
+        JSONArray array = new JSONArray();
+        for (String name : names.values()) {
+            array.put(name);
+        }
+        dirty = false;
+        return array.toString();
+    }
+
+    public synchronized void loadJson(String data) throws JSONException {
+        JSONArray array = new JSONArray(data);
+        for (int i = 0; i < array.length(); i++) {
+            String name = array.getString(i);
+            String key = Gazetteer.normalize(name);
+            if (key.isEmpty()) continue;
+            names.remove(key);
+            names.put(key, name);
+        }
+        evictOverflow();
+    }
+}
@@ -3,22 +3,28 @@ package com.makitaxi.passenger;
 import android.content.Context;
 import android.location.Address;
 import android.location.Geocoder;
-import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
-import org.json.JSONArray;
+import com.makitaxi.model.RideRequest;
+import com.makitaxi.utils.ServiceArea;
+
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.osmdroid.util.GeoPoint;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -27,6 +33,7 @@ import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 public class LocationService {
 
@@ -50,58 +57,318 @@ public class LocationService {
 
     private final Context context;
     private final ExecutorService executorService;
+    private final ExecutorService geocodeExecutor;
     private final Handler handler;
 
     private final OkHttpClient httpClient;
 
     private volatile Call activePhotonCall;
+    private volatile Gazetteer gazetteer;
+    private final LearnedPlaces learnedPlaces;
+    private final SuggestionCache suggestionCache;
+    private final ReverseGeocodeCache reverseGeocodeCache;
+    private final GeocodeCache geocodeCache;
+    private final PlaceStore placeStore;
+
+    // Geocoder makes no thread-safety promises, so each worker thread gets its own
+    private final ThreadLocal<Geocoder> geocoders;
+
+    public static final int MAX_SUGGESTIONS = 5;
 
     private static final int PHOTON_TIMEOUT_SECONDS = 15;
     private static final int PHOTON_MAX_RETRIES = 2;
 
+    private static final String GAZETTEER_ASSET = "gazetteer/belgrade.txt";
+    private static final String GAZETTEER_FILE = "gazetteer.bin";
+    // Photon names the gazetteer lacks, kept apart so the gazetteer file stays its shipped size
+    private static final String LEARNED_PLACES_FILE = "photon_places.json";
+    private static final int MAX_LEARNED_PLACES = 500;
+
+    // Results are already scoped to the service area, so few are thrown away
+    private static final int PHOTON_LIMIT = 15;
+    private static final String SUGGESTION_CACHE_FILE = "photon_suggestions.json";
+    private static final int SUGGESTION_CACHE_SIZE = 200;
+    private static final long SUGGESTION_CACHE_TTL_MS = 7L * 24 * 60 * 60 * 1000;
+
+    private static final String REVERSE_GEOCODE_CACHE_FILE = "reverse_geocode.json";
+    // Precision 8 is a ~38 x 19 m cell: nearby taps hit, the next street over does not
+    private static final int REVERSE_GEOCODE_PRECISION = 8;
+    private static final int REVERSE_GEOCODE_CACHE_SIZE = 500;
+    private static final long REVERSE_GEOCODE_CACHE_TTL_MS = 30L * 24 * 60 * 60 * 1000;
+
+    // Pickup and destination are looked up at the same time
+    private static final int GEOCODE_THREADS = 2;
+    private static final int GEOCODE_CACHE_SIZE = 200;
+
+    // The passenger's own places are user data, so they live in filesDir rather than the cache
+    private static final String PLACES_FILE = "places.json";
+    private static final int MAX_PLACES = 50;
+
     public LocationService(Context context) {
         // Use application context to prevent memory leaks
         this.context = context.getApplicationContext();
         this.executorService = Executors.newSingleThreadExecutor();
+        this.geocodeExecutor = Executors.newFixedThreadPool(GEOCODE_THREADS);
         this.handler = new Handler(Looper.getMainLooper());
         this.httpClient = new OkHttpClient.Builder()
                 .connectTimeout(PHOTON_TIMEOUT_SECONDS, java.util.concurrent.TimeUnit.SECONDS)
                 .readTimeout(PHOTON_TIMEOUT_SECONDS, java.util.concurrent.TimeUnit.SECONDS)
                 .writeTimeout(PHOTON_TIMEOUT_SECONDS, java.util.concurrent.TimeUnit.SECONDS)
                 .build();
+        this.suggestionCache = new SuggestionCache(SUGGESTION_CACHE_SIZE, SUGGESTION_CACHE_TTL_MS);
+        this.reverseGeocodeCache = new ReverseGeocodeCache(REVERSE_GEOCODE_PRECISION,
+                REVERSE_GEOCODE_CACHE_SIZE, REVERSE_GEOCODE_CACHE_TTL_MS);
+        this.geocodeCache = new GeocodeCache(GEOCODE_CACHE_SIZE);
+        this.placeStore = new PlaceStore(MAX_PLACES);
+        this.learnedPlaces = new LearnedPlaces(MAX_LEARNED_PLACES);
+        this.geocoders = ThreadLocal.withInitial(() -> new Geocoder(this.context, Locale.getDefault()));
+        executorService.execute(this::loadGazetteer);
+        executorService.execute(this::loadLearnedPlaces);
+        executorService.execute(this::loadSuggestionCache);
+        executorService.execute(this::loadReverseGeocodeCache);
+        executorService.execute(this::loadPlaces);
     }
 
-    private String cyrillicToSerbianLatin(String text) {
-        if (text == null) return null;
-        String[][] map = {
-                {"А", "A"}, {"а", "a"}, {"Б", "B"}, {"б", "b"}, {"В", "V"}, {"в", "v"}, {"Г", "G"}, {"г", "g"}, {"Д", "D"}, {"д", "d"},
-                {"Ђ", "Đ"}, {"ђ", "đ"}, {"Е", "E"}, {"е", "e"}, {"Ж", "Ž"}, {"ж", "ž"}, {"З", "Z"}, {"з", "z"}, {"И", "I"}, {"и", "i"},
-                {"Ј", "J"}, {"ј", "j"}, {"К", "K"}, {"к", "k"}, {"Л", "L"}, {"л", "l"}, {"Љ", "Lj"}, {"љ", "lj"}, {"М", "M"}, {"м", "m"},
-                {"Н", "N"}, {"н", "n"}, {"Њ", "Nj"}, {"њ", "nj"}, {"О", "O"}, {"о", "o"}, {"П", "P"}, {"п", "p"}, {"Р", "R"}, {"р", "r"},
-                {"С", "S"}, {"с", "s"}, {"Т", "T"}, {"т", "t"}, {"Ћ", "Ć"}, {"ћ", "ć"}, {"У", "U"}, {"у", "u"}, {"Ф", "F"}, {"ф", "f"},
-                {"Х", "H"}, {"х", "h"}, {"Ц", "C"}, {"ц", "c"}, {"Ч", "Č"}, {"ч", "č"}, {"Џ", "Dž"}, {"џ", "dž"}, {"Ш", "Š"}, {"ш", "š"}
-        };
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < text.length(); i++) {
-            String ch = String.valueOf(text.charAt(i));
-            boolean replaced = false;
-            for (String[] pair : map) {
-                if (pair[0].equals(ch)) {
-                    sb.append(pair[1]);
-                    replaced = true;
+    private void loadGazetteer() {
+        File file = new File(context.getFilesDir(), GAZETTEER_FILE);
+        if (file.exists()) {
+            try {
+                gazetteer = Gazetteer.readFrom(file);
+                Log.d("Gazetteer", "Loaded " + gazetteer.size() + " places");
+                return;
+            } catch (IOException e) {
+                Log.e("Gazetteer", "Error reading gazetteer, rebuilding from assets", e);
+            }
+        }
+
+        try (InputStreamReader reader = new InputStreamReader(
+                context.getAssets().open(GAZETTEER_ASSET), StandardCharsets.UTF_8)) {
+            Gazetteer seeded = Gazetteer.fromText(reader);
+            seeded.writeTo(file);
+            gazetteer = seeded;
+            Log.d("Gazetteer", "Built gazetteer with " + seeded.size() + " places");
+        } catch (IOException e) {
+            Log.e("Gazetteer", "Error building gazetteer", e);
+        }
+    }
+
+    private void loadLearnedPlaces() {
+        File file = new File(context.getCacheDir(), LEARNED_PLACES_FILE);
+        if (!file.exists()) return;
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            learnedPlaces.loadJson(new String(data, StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.e("Gazetteer", "Error loading learned places", e);
+        }
+    }
+
+    private void saveLearnedPlaces() {
+        if (!learnedPlaces.isDirty()) return;
+        File file = new File(context.getCacheDir(), LEARNED_PLACES_FILE);
+        try {
+            Files.write(file.toPath(), learnedPlaces.toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.e("Gazetteer", "Error saving learned places", e);
+        }
+    }
+
+    private void loadSuggestionCache() {
+        File file = new File(context.getCacheDir(), SUGGESTION_CACHE_FILE);
+        if (!file.exists()) return;
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            suggestionCache.loadJson(new String(data, StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.e("PhotonCache", "Error loading suggestion cache", e);
+        }
+    }
+
+    private void saveSuggestionCache() {
+        if (!suggestionCache.isDirty()) return;
+        File file = new File(context.getCacheDir(), SUGGESTION_CACHE_FILE);
+        try {
+            byte[] data = suggestionCache.toJson().getBytes(StandardCharsets.UTF_8);
+            Files.write(file.toPath(), data);
+        } catch (IOException | JSONException e) {
+            Log.e("PhotonCache", "Error saving suggestion cache", e);
+        }
+    }
+
+    private void loadReverseGeocodeCache() {
+        File file = new File(context.getCacheDir(), REVERSE_GEOCODE_CACHE_FILE);
+        if (!file.exists()) return;
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            reverseGeocodeCache.loadJson(new String(data, StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.e("ReverseGeocode", "Error loading reverse geocode cache", e);
+        }
+    }
+
+    private void saveReverseGeocodeCache() {
+        if (!reverseGeocodeCache.isDirty()) return;
+        File file = new File(context.getCacheDir(), REVERSE_GEOCODE_CACHE_FILE);
+        try {
+            byte[] data = reverseGeocodeCache.toJson().getBytes(StandardCharsets.UTF_8);
+            Files.write(file.toPath(), data);
+        } catch (IOException | JSONException e) {
+            Log.e("ReverseGeocode", "Error saving reverse geocode cache", e);
+        }
+    }
+
+    private void loadPlaces() {
+        File file = new File(context.getFilesDir(), PLACES_FILE);
+        if (!file.exists()) return;
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            placeStore.loadJson(new String(data, StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.e("Places", "Error loading places", e);
+        }
+    }
+
+    private void savePlaces() {
+        if (!placeStore.isDirty()) return;
+        File file = new File(context.getFilesDir(), PLACES_FILE);
+        try {
+            byte[] data = placeStore.toJson().getBytes(StandardCharsets.UTF_8);
+            Files.write(file.toPath(), data);
+        } catch (IOException | JSONException e) {
+            Log.e("Places", "Error saving places", e);
+        }
+    }
+
+    /**
+     * Remembers the pickup and dropoff of a finished ride with their coordinates.
+     */
+    public void recordRide(RideRequest rideRequest) {
+        placeStore.record(rideRequest.getPickupAddress(),
+                new GeoPoint(rideRequest.getPickupLatitude(), rideRequest.getPickupLongitude()));
+        placeStore.record(rideRequest.getDropoffAddress(),
+                new GeoPoint(rideRequest.getDropoffLatitude(), rideRequest.getDropoffLongitude()));
+        // Rides are rare, so they are written right away rather than on shutdown
+        executorService.execute(this::savePlaces);
+    }
+
+    public boolean setFavoritePlace(String name, boolean favorite) {
+        boolean found = placeStore.setFavorite(name, favorite);
+        if (found) executorService.execute(this::savePlaces);
+        return found;
+    }
+
+    /**
+     * The passenger's favorite and most used places, for an empty field. No network involved.
+     */
+    public List<String> getRecentPlaces(int limit) {
+        List<String> names = new ArrayList<>();
+        for (PlaceStore.Place place : placeStore.top(limit)) {
+            names.add(place.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Coordinates of an address that are already known from the passenger's places or an
+     * earlier lookup, or null when it would have to be geocoded.
+     */
+    public GeoPoint getKnownLocation(String address) {
+        if (address == null) return null;
+        GeoPoint place = placeStore.getLocation(address);
+        return place != null ? place : geocodeCache.get(address);
+    }
+
+    private Geocoder getGeocoder() {
+        return geocoders.get();
+    }
+
+    /**
+     * The passenger's matching places followed by suggestions from the on-device gazetteer,
+     * then by places Photon returned earlier. Fast enough to call on the main thread for every keystroke; gazetteer names are
+     * missing until it has loaded.
+     */
+    public List<String> getLocalSuggestions(String query) {
+        if (query == null || query.trim().length() < 2) {
+            return Collections.emptyList();
+        }
+        List<String> places = new ArrayList<>();
+        for (PlaceStore.Place place : placeStore.search(query, MAX_SUGGESTIONS)) {
+            places.add(place.getName());
+        }
+        Gazetteer current = gazetteer;
+        List<String> known = current != null
+                ? mergeSuggestions(places, current.search(query, MAX_SUGGESTIONS))
+                : places;
+        return mergeSuggestions(known, learnedPlaces.search(query, MAX_SUGGESTIONS));
+    }
+
+    // Local names first, then Photon names that are not just a longer form of one of them
+    private List<String> mergeSuggestions(List<String> local, List<String> remote) {
+        List<String> merged = new ArrayList<>(local);
+        List<String> seen = new ArrayList<>();
+        for (String suggestion : local) {
+            seen.add(Gazetteer.normalize(suggestion));
+        }
+        for (String suggestion : remote) {
+            if (merged.size() >= MAX_SUGGESTIONS) break;
+            String normalized = Gazetteer.normalize(suggestion);
+            boolean duplicate = false;
+            for (String known : seen) {
+                if (normalized.startsWith(known)) {
+                    duplicate = true;
                     break;
                 }
             }
-            if (!replaced) sb.append(ch);
+            if (!duplicate) {
+                merged.add(suggestion);
+                seen.add(normalized);
+            }
         }
-        return sb.toString();
+        return merged;
     }
 
     public void getPhotonSuggestions(String query, LocationSuggestionsListener listener) {
-        getPhotonSuggestionsWithRetry(query, listener, 0);
+        getPhotonSuggestions(query, null, 0, listener);
     }
 
-    private void getPhotonSuggestionsWithRetry(String query, LocationSuggestionsListener listener, int attempt) {
+    /**
+     * Asks Photon for places inside the service area, biased towards the visible map.
+     *
+     * @param mapCenter center of the map viewport, or null to bias towards the service area center
+     * @param zoom      map zoom level, narrows the bias radius as the user zooms in
+     */
+    public void getPhotonSuggestions(String query, GeoPoint mapCenter, double zoom, LocationSuggestionsListener listener) {
+        PhotonQueryBuilder photonQuery = new PhotonQueryBuilder(query, ServiceArea.BELGRADE)
+                .limit(PHOTON_LIMIT)
+                .viewport(mapCenter, zoom);
+        // The text is sent as typed; the spelling-corrected text is only tried when it finds nothing
+        String corrected = correctSpelling(query);
+        Runnable fallback = null;
+        if (corrected != null && !corrected.equals(query)) {
+            PhotonQueryBuilder correctedQuery = new PhotonQueryBuilder(corrected, ServiceArea.BELGRADE)
+                    .limit(PHOTON_LIMIT)
+                    .viewport(mapCenter, zoom);
+            fallback = () -> getPhotonSuggestionsWithRetry(corrected, correctedQuery, null, listener, 0);
+        }
+        getPhotonSuggestionsWithRetry(query, photonQuery, fallback, listener, 0);
+    }
+
+    /**
+     * The text with misspelled words replaced by known gazetteer words, in normalized form.
+     * Returns the text unchanged when nothing needed correcting or the gazetteer is not loaded.
+     */
+    private String correctSpelling(String text) {
+        Gazetteer current = gazetteer;
+        if (current == null || text == null) return text;
+        String corrected = current.correct(text);
+        return corrected.equals(Gazetteer.normalize(text)) ? text : corrected;
+    }
+
+    /**
+     * @param fallback run instead of answering when Photon has no places for the query, or null
+     */
+    private void getPhotonSuggestionsWithRetry(String query, PhotonQueryBuilder photonQuery, Runnable fallback,
+                                               LocationSuggestionsListener listener, int attempt) {
         if (query == null || query.trim().length() < 2) {
             listener.onSuggestionsFound(Collections.emptyList());
             return;
@@ -112,16 +379,19 @@ public class LocationService {
             activePhotonCall.cancel();
         }
 
-        String url = Uri.parse("https://photon.komoot.io/api/")
-                .buildUpon()
-                .appendQueryParameter("q", query)
-                .appendQueryParameter("lang", "default")
-                .appendQueryParameter("limit", "30")
-                .build()
-                .toString();
+        List<String> cached = suggestionCache.get(query, MAX_SUGGESTIONS);
+        if (cached != null && cached.isEmpty() && fallback != null) {
+            fallback.run();
+            return;
+        }
+        if (cached != null) {
+            List<String> merged = mergeSuggestions(getLocalSuggestions(query), cached);
+            handler.post(() -> listener.onSuggestionsFound(merged));
+            return;
+        }
 
         Request request = new Request.Builder()
-                .url(url)
+                .url(photonQuery.build())
                 .header("User-Agent", "MakiTaxi/1.0")
                 .build();
 
@@ -138,9 +408,10 @@ public class LocationService {
                 Log.e("PhotonAPI", "Request failed: " + e.getMessage());
                 if (attempt < PHOTON_MAX_RETRIES && e.getMessage() != null && e.getMessage().toLowerCase().contains("timeout")) {
                     Log.w("PhotonAPI", "Retrying Photon request, attempt " + (attempt + 1));
-                    getPhotonSuggestionsWithRetry(query, listener, attempt + 1);
+                    getPhotonSuggestionsWithRetry(query, photonQuery, fallback, listener, attempt + 1);
                 } else {
-                    handler.post(() -> listener.onSuggestionsFound(Collections.emptyList()));
+                    List<String> local = getLocalSuggestions(query);
+                    handler.post(() -> listener.onSuggestionsFound(local));
                 }
             }
 
@@ -151,46 +422,63 @@ public class LocationService {
                     return;
                 }
 
-                List<String> suggestions = new ArrayList<>();
-                HashSet<String> addedSuggestions = new HashSet<>();
-                try {
-                    String bodyString = response.body() != null ? response.body().string() : null;
-                    if (bodyString == null) {
-                        throw new JSONException("Empty response body");
+                List<String> suggestions = Collections.emptyList();
+                boolean parsed = false;
+                boolean exhaustive = false;
+                try (ResponseBody body = response.body()) {
+                    if (body == null) {
+                        throw new IOException("Empty response body");
                     }
-                    JSONObject root = new JSONObject(bodyString);
-                    JSONArray features = root.optJSONArray("features");
-                    if (features != null) {
-                        for (int i = 0; i < features.length(); i++) {
-                            JSONObject feature = features.getJSONObject(i);
-                            JSONObject props = feature.getJSONObject("properties");
-                            String country = props.optString("country", "");
-                            String name = props.optString("name", "");
-                            String city = props.optString("city", "");
-                            String state = props.optString("state", "");
-                            String full = name + (city.isEmpty() ? "" : ", " + city) + (state.isEmpty() ? "" : ", " + state);
-                            if (country.startsWith("Србија") && city.startsWith("Београд")) {
-                                String suggestion = cyrillicToSerbianLatin(full);
-                                if (!addedSuggestions.contains(suggestion)) {
-                                    suggestions.add(suggestion);
-                                    addedSuggestions.add(suggestion);
-                                }
-                            }
-                            if (suggestions.size() == 5) break;
-                        }
+                    // Every returned place is kept and ranked, so the cache can answer longer
+                    // queries from them; the dropdown is cut to MAX_SUGGESTIONS when merged
+                    PhotonParser.Result result = PhotonParser.parse(body.charStream(), ServiceArea.BELGRADE);
+                    suggestions = result.rankedBy(photonQuery.getBiasPoint());
+                    // A picked suggestion can then be routed without asking the Geocoder
+                    for (int i = 0; i < result.suggestions.size(); i++) {
+                        geocodeCache.put(result.suggestions.get(i), result.locations.get(i));
                     }
+                    exhaustive = result.featuresRead < PHOTON_LIMIT;
+                    parsed = true;
                 } catch (Exception e) {
                     Log.e("PhotonParse", "Error parsing suggestions: " + e.getMessage());
                 }
 
-                handler.post(() -> listener.onSuggestionsFound(suggestions));
+                // Cached as non-exhaustive unless Photon ran out of features, so longer
+                // queries are only filtered from it when that still fills the dropdown
+                if (parsed) {
+                    suggestionCache.put(query, suggestions, exhaustive);
+                }
+                // A newer query may have started meanwhile; the fallback would cancel it
+                if (parsed && suggestions.isEmpty() && fallback != null && call == activePhotonCall) {
+                    fallback.run();
+                    return;
+                }
+
+                Gazetteer current = gazetteer;
+                for (String suggestion : suggestions) {
+                    if (current == null || !current.contains(suggestion)) {
+                        learnedPlaces.learn(suggestion);
+                    }
+                }
+                List<String> merged = mergeSuggestions(getLocalSuggestions(query), suggestions);
+                handler.post(() -> listener.onSuggestionsFound(merged));
             }
         });
     }
 
+    /**
+     * Resolves an address for the point. Cached areas are answered synchronously on the
+     * calling thread; everything else goes through the Geocoder and is posted to the main thread.
+     */
     public void reverseGeocode(GeoPoint location, ReverseGeocodeListener listener) {
         if (location == null || listener == null) return;
 
+        String cached = reverseGeocodeCache.get(location);
+        if (cached != null) {
+            listener.onReverseGeocodeSuccess(cached);
+            return;
+        }
+
         if (!Geocoder.isPresent()) {
             handler.post(() -> listener.onReverseGeocodeError("Geocoder not available"));
             return;
@@ -198,11 +486,11 @@ public class LocationService {
 
         executorService.execute(() -> {
             try {
-                Geocoder geocoder = new Geocoder(context, Locale.getDefault());
-                List<Address> addresses = geocoder.getFromLocation(location.getLatitude(), location.getLongitude(), 1);
+                List<Address> addresses = getGeocoder().getFromLocation(location.getLatitude(), location.getLongitude(), 1);
 
                 if (addresses != null && !addresses.isEmpty()) {
                     String addressText = formatAddress(addresses.get(0));
+                    reverseGeocodeCache.put(location, addressText);
                     handler.post(() -> listener.onReverseGeocodeSuccess(addressText));
                 } else {
                     handler.post(() -> listener.onReverseGeocodeError("No address found"));
@@ -217,28 +505,89 @@ public class LocationService {
     }
 
     public void geocode(String address, GeocodeListener listener) {
-        executorService.execute(() -> {
-            try {
-                Geocoder geocoder = new Geocoder(context, Locale.getDefault());
-                List<Address> addresses = geocoder.getFromLocationName(address, 1);
-
-                if (addresses != null && !addresses.isEmpty()) {
-                    Address found = addresses.get(0);
-                    double lat = found.getLatitude();
-                    double lon = found.getLongitude();
-
-                    GeoPoint geoPoint = new GeoPoint(lat, lon);
+        geocodeAsync(address).whenComplete((geoPoint, error) -> {
+            if (error == null) {
+                handler.post(() -> listener.onGeocodeSuccess(geoPoint));
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            String message;
+            if (cause instanceof NoSuchElementException) {
+                message = cause.getMessage();
+            } else if (cause instanceof IOException) {
+                message = "Network error: " + cause.getMessage();
+            } else {
+                message = "Unexpected error: " + cause.getMessage();
+            }
+            handler.post(() -> listener.onGeocodeError(message));
+        });
+    }
 
-                    handler.post(() -> listener.onGeocodeSuccess(geoPoint));
-                }else {
-                    handler.post(() -> listener.onGeocodeError("No location found for address"));
+    /**
+     * Resolves an address to coordinates. The passenger's places and addresses that came
+     * from a Photon suggestion or were looked up before complete immediately. Others are
+     * geocoded on a small pool, so several lookups run at once; the text is looked up as
+     * typed, and spelling-corrected against the gazetteer only when that finds nothing.
+     * Completes exceptionally with NoSuchElementException when nothing matches. The future
+     * completes on a background thread.
+     */
+    public CompletableFuture<GeoPoint> geocodeAsync(String address) {
+        GeoPoint cached = getKnownLocation(address);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            GeoPoint geoPoint = geocode(address);
+            if (geoPoint == null) {
+                // Only a miss is worth the risk of the correction picking another street
+                String corrected = correctSpelling(address);
+                if (!corrected.equals(address)) {
+                    GeoPoint known = geocodeCache.get(corrected);
+                    geoPoint = known != null ? known : geocode(corrected);
                 }
+            }
+            if (geoPoint == null) {
+                throw new NoSuchElementException("No location found for address");
+            }
+            geocodeCache.put(address, geoPoint);
+            return geoPoint;
+        }, geocodeExecutor);
+    }
 
-            } catch (IOException e) {
-                handler.post(() -> listener.onGeocodeError("Network error: " + e.getMessage()));
-            } catch (Exception e) {
-                handler.post(() -> listener.onGeocodeError("Unexpected error: " + e.getMessage()));
+    // Blocking Geocoder lookup of the first match, null when there is none
+    private GeoPoint geocode(String address) {
+        List<Address> addresses;
+        try {
+            addresses = getGeocoder().getFromLocationName(address, 1);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        if (addresses == null || addresses.isEmpty()) {
+            return null;
+        }
+        Address found = addresses.get(0);
+        return new GeoPoint(found.getLatitude(), found.getLongitude());
+    }
+
+    /**
+     * Geocodes all addresses concurrently. The future completes once every lookup is done;
+     * entries that could not be resolved are null.
+     */
+    public CompletableFuture<List<GeoPoint>> geocodeBatch(List<String> addresses) {
+        List<CompletableFuture<GeoPoint>> lookups = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            lookups.add(geocodeAsync(address).exceptionally(error -> {
+                Log.w("Geocode", "Could not geocode \"" + address + "\": " + error.getMessage());
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<GeoPoint> points = new ArrayList<>(lookups.size());
+            for (CompletableFuture<GeoPoint> lookup : lookups) {
+                points.add(lookup.join());
             }
+            return points;
         });
     }
 
@@ -276,7 +625,13 @@ public class LocationService {
     }
 
     public void shutdown() {
+        // Queued before shutdown, so Photon places learned this session are kept
+        executorService.execute(this::saveLearnedPlaces);
+        executorService.execute(this::saveSuggestionCache);
+        executorService.execute(this::saveReverseGeocodeCache);
+        executorService.execute(this::savePlaces);
         executorService.shutdown();
+        geocodeExecutor.shutdown();
     }
 
     public void cancelOngoingRequests() {
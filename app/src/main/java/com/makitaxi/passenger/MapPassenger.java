@@ -13,10 +13,9 @@ import android.util.Log;
 import androidx.core.content.ContextCompat;
 
 import com.makitaxi.R;
+import com.makitaxi.utils.RouteService;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.osmdroid.api.IGeoPoint;
 import org.osmdroid.api.IMapController;
 import org.osmdroid.events.MapEventsReceiver;
 import org.osmdroid.events.MapListener;
@@ -33,29 +32,18 @@ import org.osmdroid.views.overlay.Polyline;
 import org.osmdroid.views.overlay.mylocation.GpsMyLocationProvider;
 import org.osmdroid.views.overlay.mylocation.MyLocationNewOverlay;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class MapPassenger {
 
-    public interface RoutingCallback {
-        void onRouteFound(List<GeoPoint> routePoints, double distance, double duration);
-
-        void onRoutingError(String error);
+    public interface RoutingCallback extends RouteService.RoutingCallback {
     }
 
     public interface CallbackMapTap {
         public void onTap(GeoPoint p);
     }
 
-    private static final String OSRM_BASE_URL = "https://router.project-osrm.org/route/v1/driving/";
-
     private CallbackMapTap callbackMapTap;
     private Context context;
     private MapView mapView;
@@ -68,7 +56,9 @@ public class MapPassenger {
 
     private Marker mapTapMarker;
 
-    private ExecutorService executorService;
+    private RouteService routeService;
+
+    private final List<RouteService.RouteHandle> pendingRoutes = new ArrayList<>();
 
     private Handler mainHandler;
 
@@ -83,8 +73,8 @@ public class MapPassenger {
     public MapPassenger(Context context, MapView mapView) {
         this.context = context;
         this.mapView = mapView;
-        // thread for executing
-        this.executorService = Executors.newSingleThreadExecutor();
+        // routes are fetched and shared through the app-wide routing client
+        this.routeService = RouteService.getInstance();
         // results are propagated to main thread here
         this.mainHandler = new Handler(Looper.getMainLooper());
         setupMapView();
@@ -122,8 +112,18 @@ public class MapPassenger {
                 });
             }
 
+            @Override
+            public void onRouteEstimated(List<GeoPoint> routePoints, double distance, double duration) {
+                mainHandler.post(() -> {
+                    displayRealRoute(routePoints, distance);
+                    externalCallback.onRouteEstimated(routePoints, distance, duration);
+                });
+            }
+
             @Override
             public void onRoutingError(String error) {
+                Log.e("drawRouteBetweenPoints", "Route calculation failed: " + error);
+                mainHandler.post(() -> externalCallback.onRoutingError(error));
             }
         });
     }
@@ -132,84 +132,21 @@ public class MapPassenger {
         if (start == null || end == null) {
             return;
         }
-        executorService.execute(() -> {
-            try {
-                String urlString = OSRM_BASE_URL +
-                        start.getLongitude() + "," + start.getLatitude() + ";" +
-                        end.getLongitude() + "," + end.getLatitude() +
-                        "?overview=full&geometries=geojson&steps=true";
-
-                URL url = new URL(urlString);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(10000);
-                connection.setReadTimeout(15000);
-                connection.setRequestProperty("User-Agent", "MakiTaxi/1.0");
-
-                int responseCode = connection.getResponseCode();
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    reader.close();
-
-                    parseOSRMResponse(response.toString(), callback);
-
-                } else {
-                    callback.onRoutingError("HTTP error: " + responseCode);
-                }
-
-                connection.disconnect();
-
-            } catch (Exception e) {
-                callback.onRoutingError("Network error: " + e.getMessage());
-            }
-        });
+        synchronized (pendingRoutes) {
+            pendingRoutes.removeIf(RouteService.RouteHandle::isDone);
+            pendingRoutes.add(routeService.getRoute(start, end, callback));
+        }
     }
 
-    private void parseOSRMResponse(String jsonResponse, RoutingCallback callback) {
-        try {
-            JSONObject response = new JSONObject(jsonResponse);
-            String code = response.getString("code");
-
-            if (!"Ok".equals(code)) {
-                callback.onRoutingError("OSRM returned: " + code);
-                return;
-            }
-
-            JSONArray routes = response.getJSONArray("routes");
-            if (routes.length() == 0) {
-                callback.onRoutingError("No routes found");
-                return;
-            }
-
-            JSONObject route = routes.getJSONObject(0);
-            JSONObject geometry = route.getJSONObject("geometry");
-            JSONArray coordinates = geometry.getJSONArray("coordinates");
-
-            double distance = route.getDouble("distance") / 1000.0;
-            double duration = route.getDouble("duration") / 60.0;
-
-            List<GeoPoint> routePoints = new ArrayList<>();
-            for (int i = 0; i < coordinates.length(); i++) {
-                JSONArray coord = coordinates.getJSONArray(i);
-                double lon = coord.getDouble(0);
-                double lat = coord.getDouble(1);
-                routePoints.add(new GeoPoint(lat, lon));
+    public void cancelPendingRoutes() {
+        synchronized (pendingRoutes) {
+            for (RouteService.RouteHandle handle : pendingRoutes) {
+                handle.cancel();
             }
-
-            callback.onRouteFound(routePoints, distance, duration);
-
-        } catch (JSONException e) {
-            callback.onRoutingError("Failed to parse route data");
+            pendingRoutes.clear();
         }
     }
 
-
     private void displayRealRoute(List<GeoPoint> routePoints, double distance) {
         if (routePoints == null || routePoints.isEmpty() || distance < 1.0) {
             return;
@@ -531,4 +468,13 @@ public class MapPassenger {
         return myLocationOverlay.getMyLocation();
     }
 
+    public GeoPoint getMapCenter() {
+        IGeoPoint center = mapView.getMapCenter();
+        return new GeoPoint(center.getLatitude(), center.getLongitude());
+    }
+
+    public double getZoomLevel() {
+        return mapView.getZoomLevelDouble();
+    }
+
 }
@@ -34,7 +34,8 @@ public class PassengerRideManager {
     }
 
     public void createRideRequest(String carType, GeoPoint pickupGeoPoint, GeoPoint destinationGeoPoint, 
-                                 String pickupAddress, String destinationAddress, double distance, double duration) {
+                                 String pickupAddress, String destinationAddress, double distance, double duration,
+                                 String routePolyline) {
         FirebaseAuth auth = FirebaseAuth.getInstance();
         String passengerId = Objects.requireNonNull(auth.getCurrentUser()).getUid();
 
@@ -54,6 +55,7 @@ public class PassengerRideManager {
         String cachedUserName = PreferencesManager.getCachedUserName(activity);
         String passengerName = (cachedUserName != null && !cachedUserName.isEmpty()) ? cachedUserName : "Passenger";
         request.setPassengerName(passengerName);
+        request.setRoutePolyline(routePolyline);
         
         DatabaseReference requestRef = FirebaseHelper.getRideRequestsRef().push();
         String requestId = requestRef.getKey();
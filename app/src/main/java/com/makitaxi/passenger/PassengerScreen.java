@@ -10,7 +10,6 @@ import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
-import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import android.widget.FrameLayout;
@@ -33,13 +32,14 @@ import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.makitaxi.R;
 import com.makitaxi.menu.MenuMainScreen;
 import com.makitaxi.utils.TextUtils;
+import com.makitaxi.utils.PolylineCodec;
+import com.makitaxi.utils.RouteService;
 
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class PassengerScreen extends AppCompatActivity implements MapPassenger.CallbackMapTap {
 
@@ -75,7 +75,7 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
     private boolean controlsVisible = true;
 
     private final Handler handler = new Handler(Looper.getMainLooper());
-    private final java.util.Map<AutoCompleteTextView, Runnable> debounceMap = new HashMap<>();
+    private AutocompletePipeline autocomplete;
 
     private ImageView pickupLoadingSpinner;
     private ImageView destinationLoadingSpinner;
@@ -86,6 +86,7 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
 
     private double lastRouteDistance;
     private double lastRouteDuration;
+    private String lastRoutePolyline;
 
     // Managers
     private PassengerUIManager uiManager;
@@ -163,6 +164,8 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
                 map.centerOnCurrentLocation();
             }
         });
+
+        uiManager.setRideFinishedListener(rideRequest -> locationService.recordRide(rideRequest));
     }
 
     private void handleSystemBars() {
@@ -235,6 +238,7 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
                 btnChoseCurrentLocation.setVisibility(View.VISIBLE);
                 iconCloseOverlay.setVisibility(View.VISIBLE);
                 frameMapButton.setVisibility(View.VISIBLE);
+                autocomplete.showPlaces(txtPickupLocation);
             }
             hasFocusPickup = hasFocus;
         });
@@ -245,6 +249,7 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
                 btnChoseCurrentLocation.setVisibility(View.VISIBLE);
                 iconCloseOverlay.setVisibility(View.VISIBLE);
                 frameMapButton.setVisibility(View.VISIBLE);
+                autocomplete.showPlaces(txtDestination);
             }
             hasFocusDestination = hasFocus;
         });
@@ -297,8 +302,7 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
             }
         });
 
-        setupDebouncedAutocomplete(txtPickupLocation, true);
-        setupDebouncedAutocomplete(txtDestination, false);
+        setupAutocomplete();
         
         // Add Latin transformation to input fields
         setupLatinTransformation(txtPickupLocation);
@@ -356,38 +360,46 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
             return;
         }
         map.clearMarkers();
-        AtomicInteger pendingGeocodeCount = new AtomicInteger();
 
         if (pickupGeoPoint != null && destinationGeoPoint != null) {
             drawRoute();
             return;
         }
 
-        if (pickupGeoPoint == null) {
-            pendingGeocodeCount.getAndIncrement();
-            geoCodeAddress(pickupLocation, true, () -> {
-                pendingGeocodeCount.getAndDecrement();
-                checkAndDrawRoute(pendingGeocodeCount.get());
-            });
-        }
-
-        if (destinationGeoPoint == null) {
-            pendingGeocodeCount.getAndIncrement();
-            geoCodeAddress(destinationLocation, false, () -> {
-                pendingGeocodeCount.getAndDecrement();
-                checkAndDrawRoute(pendingGeocodeCount.get());
-            });
-        }
-    }
-
-    private void checkAndDrawRoute(int remainingGeocodeCount) {
-        if (remainingGeocodeCount == 0) {
-            if (pickupGeoPoint != null && destinationGeoPoint != null) {
+        GeoPoint knownPickup = pickupGeoPoint;
+        GeoPoint knownDestination = destinationGeoPoint;
+        List<String> addresses = new ArrayList<>(2);
+        if (knownPickup == null) addresses.add(pickupLocation);
+        if (knownDestination == null) addresses.add(destinationLocation);
+
+        // Both lookups run at once and the route request starts from the geocoding thread
+        // as soon as the last one lands; drawRoute then joins that in-flight request
+        locationService.geocodeBatch(addresses).thenApply(points -> {
+            GeoPoint start = knownPickup != null ? knownPickup : points.get(0);
+            GeoPoint end = knownDestination != null ? knownDestination : points.get(points.size() - 1);
+            if (start != null && end != null) {
+                RouteService.getInstance().prefetch(start, end);
+            }
+            return new GeoPoint[]{start, end};
+        }).thenAccept(points -> runOnUiThread(() -> {
+            // Points found for text the user has since changed would route to the wrong place
+            if (!pickupLocation.equals(txtPickupLocation.getText().toString().trim())
+                    || !destinationLocation.equals(txtDestination.getText().toString().trim())) {
+                Log.d("PassengerScreen", "Dropping geocode results for outdated addresses");
+                return;
+            }
+            pickupGeoPoint = points[0];
+            destinationGeoPoint = points[1];
+            if (points[0] != null && points[1] != null) {
                 drawRoute();
+            } else if (points[0] == null && points[1] == null) {
+                ToastUtils.showError(this, "Could not find pickup or destination location");
+            } else if (points[0] == null) {
+                ToastUtils.showError(this, "Error finding pickup location");
             } else {
-                ToastUtils.showError(this, "Could not find one or both locations");
+                ToastUtils.showError(this, "Error finding destination location");
             }
-        }
+        }));
     }
 
     private void drawRoute() {
@@ -396,6 +408,7 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
             public void onRouteFound(List<GeoPoint> routePoints, double distanceKm, double durationMinutes) {
                 lastRouteDistance = distanceKm;
                 lastRouteDuration = durationMinutes;
+                lastRoutePolyline = PolylineCodec.encode(routePoints);
                 map.clearMarkerTap();
                 runOnUiThread(() -> {
                     if (distanceKm < AppConfig.MIN_RIDE_DISTANCE_KM) {
@@ -411,8 +424,16 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
                 });
             }
 
+            @Override
+            public void onRouteEstimated(List<GeoPoint> routePoints, double distanceKm, double durationMinutes) {
+                onRouteFound(routePoints, distanceKm, durationMinutes);
+                // A straight line is not worth storing for the driver and history screens
+                lastRoutePolyline = null;
+            }
+
             @Override
             public void onRoutingError(String error) {
+                lastRoutePolyline = null;
                 map.clearMarkerTap();
                 runOnUiThread(() -> {
                     ToastUtils.showError(PassengerScreen.this, "Route calculation failed. " + error);
@@ -422,113 +443,59 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
         });
     }
 
-    private void geoCodeAddress(String address, boolean isPickup, Runnable onComplete) {
-        locationService.geocode(address, new LocationService.GeocodeListener() {
+    private void setupAutocomplete() {
+        autocomplete = new AutocompletePipeline(handler, new AutocompletePipeline.Source() {
             @Override
-            public void onGeocodeSuccess(GeoPoint geoPoint) {
-                runOnUiThread(() -> {
-                    if (isPickup) {
-                        pickupGeoPoint = geoPoint;
-                    } else {
-                        destinationGeoPoint = geoPoint;
-                    }
-
-                    if (onComplete != null) {
-                        onComplete.run();
-                    }
-                });
+            public List<String> getLocalSuggestions(String query) {
+                return locationService.getLocalSuggestions(query);
             }
 
             @Override
-            public void onGeocodeError(String error) {
-                runOnUiThread(() -> {
-                    if (isPickup) {
-                        ToastUtils.showError(PassengerScreen.this, "Error finding pickup location. " + error);
-                        pickupGeoPoint = null;
-                    } else {
-                        ToastUtils.showError(PassengerScreen.this, "Error finding destination location. " + error);
-                        destinationGeoPoint = null;
-                    }
-
-                    if (onComplete != null) {
-                        onComplete.run();
-                    }
-                });
+            public void getRemoteSuggestions(String query, LocationService.LocationSuggestionsListener listener) {
+                locationService.getPhotonSuggestions(query, map.getMapCenter(), map.getZoomLevel(), listener);
             }
-        });
-    }
 
-    private void setupDebouncedAutocomplete(AutoCompleteTextView field, boolean isPickup) {
-        field.addTextChangedListener(new TextWatcher() {
             @Override
-            public void onTextChanged(CharSequence s, int start, int before, int count) {
-                Runnable previous = debounceMap.get(field);
-                if (previous != null) {
-                    handler.removeCallbacks(previous);
-                }
+            public List<String> getPlaceSuggestions() {
+                return locationService.getRecentPlaces(LocationService.MAX_SUGGESTIONS);
+            }
 
-                String input = s.toString();
+            @Override
+            public void cancel() {
+                locationService.cancelOngoingRequests();
+            }
+        }, LocationService.MAX_SUGGESTIONS);
 
-                Runnable task = () -> {
-                    boolean containsSpecialChars = input.matches(".*[\\p{Punct}\\d].*");
+        autocomplete.attach(txtPickupLocation, new AutocompletePipeline.FieldListener() {
+            @Override
+            public void onLoadingChanged(boolean loading) {
+                showPickupSpinner(loading);
+            }
 
-                    if (containsSpecialChars) {
-                        runOnUiThread(() -> {
-                            if (isPickup) showPickupSpinner(false);
-                            else showDestinationSpinner(false);
-                        });
-                        return;
-                    }
+            @Override
+            public void onSuggestionsShown(List<String> suggestions) {
+                pickupGeoPoint = null;
+            }
 
-                    locationService.getPhotonSuggestions(input, new LocationService.LocationSuggestionsListener() {
-                        @Override
-                        public void onSuggestionsFound(List<String> suggestions) {
-                            runOnUiThread(() -> {
-                                ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                                        field.getContext(),
-                                        R.layout.drop_down_item,
-                                        suggestions
-                                );
-                                field.setAdapter(adapter);
-                                if (isPickup) {
-                                    pickupGeoPoint = null;
-                                } else {
-                                    destinationGeoPoint = null;
-                                }
-                                if (!suggestions.isEmpty()) {
-                                    field.showDropDown();
-                                }
-
-                                if (isPickup) showPickupSpinner(false);
-                                else showDestinationSpinner(false);
-                            });
-                        }
-
-                        @Override
-                        public void onSuggestionsFoundError(String error) {
-                            Log.e("PassengerScreen", "Error getting suggestions: " + error);
-                            runOnUiThread(() -> {
-                                if (isPickup) showPickupSpinner(false);
-                                else showDestinationSpinner(false);
-                            });
-                        }
-                    });
-                };
-
-                debounceMap.put(field, task);
-
-                if (isPickup) showPickupSpinner(true);
-                else showDestinationSpinner(true);
-
-                handler.postDelayed(task, 800);
+            @Override
+            public void onSuggestionPicked(String suggestion) {
+                pickupGeoPoint = locationService.getKnownLocation(suggestion);
+            }
+        });
+        autocomplete.attach(txtDestination, new AutocompletePipeline.FieldListener() {
+            @Override
+            public void onLoadingChanged(boolean loading) {
+                showDestinationSpinner(loading);
             }
 
             @Override
-            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            public void onSuggestionsShown(List<String> suggestions) {
+                destinationGeoPoint = null;
             }
 
             @Override
-            public void afterTextChanged(Editable s) {
+            public void onSuggestionPicked(String suggestion) {
+                destinationGeoPoint = locationService.getKnownLocation(suggestion);
             }
         });
     }
@@ -542,10 +509,10 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
             public void onReverseGeocodeSuccess(String address) {
                 String latinAddress = TextUtils.transformToLatin(address);
                 if (hasFocusPickup) {
-                    txtPickupLocation.setText(latinAddress);
+                    autocomplete.setText(txtPickupLocation, latinAddress);
                     pickupGeoPoint = currentLocation;
                 } else {
-                    txtDestination.setText(latinAddress);
+                    autocomplete.setText(txtDestination, latinAddress);
                     destinationGeoPoint = currentLocation;
                 }
             }
@@ -553,9 +520,9 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
             @Override
             public void onReverseGeocodeError(String error) {
                 if (hasFocusPickup) {
-                    txtPickupLocation.setText(error);
+                    autocomplete.setText(txtPickupLocation, error);
                 } else {
-                    txtDestination.setText(error);
+                    autocomplete.setText(txtDestination, error);
                 }
             }
         });
@@ -631,23 +598,24 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
                 @Override
                 public void onReverseGeocodeSuccess(String address) {
                     String latinAddress = TextUtils.transformToLatin(address);
+                    // The text is not searched, so no suggestions show up later and clear the point
                     if (hasFocusPickup) {
+                        autocomplete.setText(txtPickupLocation, latinAddress);
                         pickupGeoPoint = p;
-                        txtPickupLocation.setText(latinAddress);
                     }
                     if (hasFocusDestination) {
+                        autocomplete.setText(txtDestination, latinAddress);
                         destinationGeoPoint = p;
-                        txtDestination.setText(latinAddress);
                     }
                 }
 
                 @Override
                 public void onReverseGeocodeError(String error) {
                     if (hasFocusPickup) {
-                        txtPickupLocation.setText(error);
+                        autocomplete.setText(txtPickupLocation, error);
                     }
                     if (hasFocusDestination) {
-                        txtDestination.setText(error);
+                        autocomplete.setText(txtDestination, error);
                     }
                 }
             });
@@ -740,7 +708,7 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
         
         rideManager.createRideRequest(carType, pickupGeoPoint, destinationGeoPoint,
                 txtPickupLocation.getText().toString(), txtDestination.getText().toString(),
-                lastRouteDistance, lastRouteDuration);
+                lastRouteDistance, lastRouteDuration, lastRoutePolyline);
         dialog.dismiss();
     }
 
@@ -761,11 +729,8 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
             if (mapView != null) {
                 mapView.onPause();
             }
-            if (debounceMap != null && !debounceMap.isEmpty()) {
-                for (Runnable r : debounceMap.values()) {
-                    handler.removeCallbacks(r);
-                }
-                debounceMap.clear();
+            if (autocomplete != null) {
+                autocomplete.cancel();
             }
             if (pickupLoadingSpinner != null) {
                 pickupLoadingSpinner.clearAnimation();
@@ -798,5 +763,9 @@ public class PassengerScreen extends AppCompatActivity implements MapPassenger.C
         if (locationService != null) {
             locationService.shutdown();
         }
+
+        if (map != null) {
+            map.cancelPendingRoutes();
+        }
     }
 }
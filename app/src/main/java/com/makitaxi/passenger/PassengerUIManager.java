@@ -5,13 +5,8 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
-import android.text.Editable;
-import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
-import android.view.animation.Animation;
-import android.view.animation.LinearInterpolator;
-import android.view.animation.RotateAnimation;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
@@ -39,6 +34,7 @@ import com.makitaxi.model.RideRequest;
 import com.makitaxi.model.User;
 import com.makitaxi.utils.CircularImageView;
 import com.makitaxi.utils.FirebaseHelper;
+import com.makitaxi.utils.GeoDistance;
 import com.makitaxi.utils.NotificationStatus;
 
 import org.osmdroid.util.GeoPoint;
@@ -59,8 +55,6 @@ import androidx.annotation.Nullable;
 
 public class PassengerUIManager {
     private final AppCompatActivity activity;
-    private final Handler handler = new Handler(Looper.getMainLooper());
-    private final Map<AutoCompleteTextView, Runnable> debounceMap = new HashMap<>();
 
     private AutoCompleteTextView txtPickupLocation;
     private AutoCompleteTextView txtDestination;
@@ -82,9 +76,6 @@ public class PassengerUIManager {
     private AlertDialog waitForDriverDialog;
     private View bottomSheetDriverDetailsView;
     private BottomSheetDialog bottomSheetDriverDetailsDialog;
-    private ImageView pickupLoadingSpinner;
-    private ImageView destinationLoadingSpinner;
-    private RotateAnimation spinnerAnimation;
     private boolean controlsVisible = true;
     private boolean shouldShowBottomSheet = false;
     private MapPassenger mapPassenger;
@@ -104,6 +95,7 @@ public class PassengerUIManager {
     private OnRouteRequestListener routeRequestListener;
     private OnLocationSelectedListener locationSelectedListener;
     private OnMapInteractionListener mapInteractionListener;
+    private OnRideFinishedListener rideFinishedListener;
 
     public interface OnRouteRequestListener {
         void onShowRouteRequested();
@@ -127,10 +119,13 @@ public class PassengerUIManager {
         void onMyLocation();
     }
 
+    public interface OnRideFinishedListener {
+        void onRideFinished(RideRequest rideRequest);
+    }
+
     public PassengerUIManager(AppCompatActivity activity) {
         this.activity = activity;
         initializeViews();
-        setupAnimations();
         setupUIInteractions();
     }
 
@@ -152,23 +147,12 @@ public class PassengerUIManager {
         btnMyLocation = activity.findViewById(R.id.btnMyLocation);
         pickupLocationContainer = activity.findViewById(R.id.pickupLocationContainer);
         destinationLocationContainer = activity.findViewById(R.id.destinationLocationContainer);
-        pickupLoadingSpinner = activity.findViewById(R.id.pickupLoadingSpinner);
-        destinationLoadingSpinner = activity.findViewById(R.id.destinationLoadingSpinner);
 
         // Initialize ride button state
         btnRide.setEnabled(false);
         btnRide.setAlpha(0.5f);
     }
 
-    private void setupAnimations() {
-        spinnerAnimation = new RotateAnimation(0f, 360f,
-                Animation.RELATIVE_TO_SELF, 0.5f,
-                Animation.RELATIVE_TO_SELF, 0.5f);
-        spinnerAnimation.setDuration(900);
-        spinnerAnimation.setRepeatCount(Animation.INFINITE);
-        spinnerAnimation.setInterpolator(new LinearInterpolator());
-    }
-
     private void setupUIInteractions() {
         toggleControls.setOnClickListener(v -> toggleControls());
 
@@ -229,56 +213,6 @@ public class PassengerUIManager {
                 routeRequestListener.onRideRequested();
             }
         });
-
-        setupDebouncedAutocomplete(txtPickupLocation, true);
-        setupDebouncedAutocomplete(txtDestination, false);
-    }
-
-    private void setupDebouncedAutocomplete(AutoCompleteTextView field, boolean isPickup) {
-        field.addTextChangedListener(new TextWatcher() {
-            @Override
-            public void onTextChanged(CharSequence s, int start, int before, int count) {
-                Runnable previous = debounceMap.get(field);
-                if (previous != null) {
-                    handler.removeCallbacks(previous);
-                }
-
-                String input = s.toString();
-                Runnable task = () -> {
-                    boolean containsSpecialChars = input.matches(".*[\\p{Punct}\\d].*");
-
-                    if (containsSpecialChars) {
-                        activity.runOnUiThread(() -> {
-                            if (isPickup) showPickupSpinner(false);
-                            else showDestinationSpinner(false);
-                        });
-                        return;
-                    }
-
-                    // This would typically call a location service for suggestions
-                    // For now, we'll just hide the spinner
-                    activity.runOnUiThread(() -> {
-                        if (isPickup) showPickupSpinner(false);
-                        else showDestinationSpinner(false);
-                    });
-                };
-
-                debounceMap.put(field, task);
-
-                if (isPickup) showPickupSpinner(true);
-                else showDestinationSpinner(true);
-
-                handler.postDelayed(task, 800);
-            }
-
-            @Override
-            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
-            }
-
-            @Override
-            public void afterTextChanged(Editable s) {
-            }
-        });
     }
 
     private void toggleControls() {
@@ -334,30 +268,6 @@ public class PassengerUIManager {
         activity.startActivity(intent);
     }
 
-    private void showPickupSpinner(boolean show) {
-        if (pickupLoadingSpinner != null) {
-            if (show) {
-                pickupLoadingSpinner.setVisibility(View.VISIBLE);
-                pickupLoadingSpinner.startAnimation(spinnerAnimation);
-            } else {
-                pickupLoadingSpinner.clearAnimation();
-                pickupLoadingSpinner.setVisibility(View.GONE);
-            }
-        }
-    }
-
-    private void showDestinationSpinner(boolean show) {
-        if (destinationLoadingSpinner != null) {
-            if (show) {
-                destinationLoadingSpinner.setVisibility(View.VISIBLE);
-                destinationLoadingSpinner.startAnimation(spinnerAnimation);
-            } else {
-                destinationLoadingSpinner.clearAnimation();
-                destinationLoadingSpinner.setVisibility(View.GONE);
-            }
-        }
-    }
-
     public void setRouteRequestListener(OnRouteRequestListener listener) {
         this.routeRequestListener = listener;
     }
@@ -370,6 +280,10 @@ public class PassengerUIManager {
         this.mapInteractionListener = listener;
     }
 
+    public void setRideFinishedListener(OnRideFinishedListener listener) {
+        this.rideFinishedListener = listener;
+    }
+
     public void setMapPassenger(MapPassenger mapPassenger) {
         this.mapPassenger = mapPassenger;
     }
@@ -758,6 +672,9 @@ public class PassengerUIManager {
                             rideAcceptedByDriver = false;
                             hideRideControls();
                             ToastUtils.showSuccess(activity, "Ride completed!");
+                            if (rideFinishedListener != null) {
+                                rideFinishedListener.onRideFinished(rideRequest);
+                            }
                         }
                     }
                 }
@@ -810,20 +727,6 @@ public class PassengerUIManager {
         return rideRequestListener != null || driverLocationListener != null;
     }
 
-    private double calculateDirectDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371;
-
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c;
-
-        return distance;
-    }
-
     public void updateRideStatus(NotificationStatus status) {
         try {
             if (currentRideRequestId == null || currentRideRequestId.isEmpty()) return;
@@ -924,7 +827,7 @@ public class PassengerUIManager {
                                 @Override
                                 public void onRoutingError(String error) {
                                     new Handler(Looper.getMainLooper()).post(() -> {
-                                        double directDistance = calculateDirectDistance(driverLat, driverLng,
+                                        double directDistance = GeoDistance.haversineKm(driverLat, driverLng,
                                             rideRequest.getDropoffLatitude(), rideRequest.getDropoffLongitude());
                                         int arrivalTimeMinutes = (int) Math.ceil((directDistance / 30.0) * 60);
                                         txtDriverArrival.setText(String.format("Arrives in: %d min", arrivalTimeMinutes));
@@ -938,7 +841,7 @@ public class PassengerUIManager {
                             });
                         } else {
                             new Handler(Looper.getMainLooper()).post(() -> {
-                                double directDistance = calculateDirectDistance(driverLat, driverLng,
+                                double directDistance = GeoDistance.haversineKm(driverLat, driverLng,
                                     rideRequest.getDropoffLatitude(), rideRequest.getDropoffLongitude());
                                 int arrivalTimeMinutes = (int) Math.ceil((directDistance / 30.0) * 60);
                                 txtDriverArrival.setText(String.format("Arrives in: %d min", arrivalTimeMinutes));
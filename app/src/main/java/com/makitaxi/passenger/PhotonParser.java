@@ -0,0 +1,225 @@
+package com.makitaxi.passenger;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.makitaxi.utils.GeoDistance;
+import com.makitaxi.utils.ServiceArea;
+import com.makitaxi.utils.Transliterator;
+
+import org.osmdroid.util.GeoPoint;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming parser for Photon GeoJSON responses. Only the name/city/state/country
+ * properties and the point coordinates of each feature are read; every other field is
+ * skipped without being materialized. Every feature is read, since the whole result set
+ * is ranked and cached; the request's limit is what bounds the body.
+ */
+public final class PhotonParser {
+
+    private static final String COUNTRY_PREFIX = "Србија";
+    private static final String CITY_PREFIX = "Београд";
+
+    // One place further down Photon's ranking is worth this much distance from the bias point
+    private static final double KM_PER_RANK = 2.0;
+
+    public static final class Result {
+        public final List<String> suggestions;
+        /** Location of each suggestion, null when the feature had no point geometry. */
+        public final List<GeoPoint> locations;
+        /** Number of features in the response, before any were dropped. */
+        public final int featuresRead;
+
+        Result(List<String> suggestions, List<GeoPoint> locations, int featuresRead) {
+            this.suggestions = suggestions;
+            this.locations = locations;
+            this.featuresRead = featuresRead;
+        }
+
+        /**
+         * Suggestions reordered by Photon's rank plus a penalty for distance from origin,
+         * so a close match can overtake a slightly better ranked one across town.
+         */
+        public List<String> rankedBy(GeoPoint origin) {
+            int count = suggestions.size();
+            if (origin == null || count < 2) return suggestions;
+
+            double[] scores = new double[count];
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                GeoPoint location = locations.get(i);
+                double distance = location == null ? 0 : GeoDistance.haversineKm(origin, location);
+                scores[i] = i + distance / KM_PER_RANK;
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(i -> scores[i]));
+
+            List<String> ranked = new ArrayList<>(count);
+            for (int index : order) {
+                ranked.add(suggestions.get(index));
+            }
+            return ranked;
+        }
+    }
+
+    private static final class Feature {
+        String name = "";
+        String city = "";
+        String state = "";
+        String country = "";
+        GeoPoint location;
+    }
+
+    private PhotonParser() {
+    }
+
+    public static Result parse(Reader body) throws IOException {
+        return parse(body, null);
+    }
+
+    /**
+     * @param area when set, features located outside it are dropped
+     */
+    public static Result parse(Reader body, ServiceArea area) throws IOException {
+        JsonReader reader = new JsonReader(body);
+        Map<String, GeoPoint> suggestions = new LinkedHashMap<>();
+        int featuresRead = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"features".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Feature feature = readFeature(reader);
+                featuresRead++;
+                if (feature.location != null && area != null && !area.contains(feature.location)) {
+                    continue;
+                }
+                String suggestion = toSuggestion(feature);
+                if (suggestion != null && !suggestions.containsKey(suggestion)) {
+                    suggestions.put(suggestion, feature.location);
+                }
+            }
+            reader.endArray();
+        }
+        return new Result(new ArrayList<>(suggestions.keySet()), new ArrayList<>(suggestions.values()),
+                featuresRead);
+    }
+
+    private static Feature readFeature(JsonReader reader) throws IOException {
+        Feature feature = new Feature();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+            } else if ("properties".equals(field)) {
+                readProperties(reader, feature);
+            } else if ("geometry".equals(field)) {
+                feature.location = readPoint(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return feature;
+    }
+
+    private static void readProperties(JsonReader reader, Feature feature) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    feature.name = readString(reader);
+                    break;
+                case "city":
+                    feature.city = readString(reader);
+                    break;
+                case "state":
+                    feature.state = readString(reader);
+                    break;
+                case "country":
+                    feature.country = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    // GeoJSON points are [lon, lat]; anything else yields null
+    private static GeoPoint readPoint(JsonReader reader) throws IOException {
+        boolean point = false;
+        double[] coordinates = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("type".equals(field) && reader.peek() == JsonToken.STRING) {
+                point = "Point".equals(reader.nextString());
+            } else if ("coordinates".equals(field) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                coordinates = readCoordinates(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return point && coordinates != null ? new GeoPoint(coordinates[1], coordinates[0]) : null;
+    }
+
+    private static double[] readCoordinates(JsonReader reader) throws IOException {
+        double[] coordinates = new double[2];
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (count < 2 && reader.peek() == JsonToken.NUMBER) {
+                coordinates[count++] = reader.nextDouble();
+            } else {
+                // Extra values such as elevation are ignored
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+        return count == 2 ? coordinates : null;
+    }
+
+    // Returns the Latin suggestion for a Belgrade feature, null for anything else
+    private static String toSuggestion(Feature feature) {
+        if (!feature.country.startsWith(COUNTRY_PREFIX) || !feature.city.startsWith(CITY_PREFIX)) {
+            return null;
+        }
+        StringBuilder full = new StringBuilder(
+                feature.name.length() + feature.city.length() + feature.state.length() + 4);
+        Transliterator.SERBIAN_LATIN.transliterate(feature.name, full);
+        full.append(", ");
+        Transliterator.SERBIAN_LATIN.transliterate(feature.city, full);
+        if (!feature.state.isEmpty()) {
+            full.append(", ");
+            Transliterator.SERBIAN_LATIN.transliterate(feature.state, full);
+        }
+        return full.toString();
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return "";
+        }
+        if (reader.peek() != JsonToken.STRING) {
+            reader.skipValue();
+            return "";
+        }
+        return reader.nextString();
+    }
+}
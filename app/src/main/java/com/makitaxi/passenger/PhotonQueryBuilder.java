@@ -0,0 +1,68 @@
+package com.makitaxi.passenger;
+
+import com.makitaxi.utils.ServiceArea;
+
+import org.osmdroid.util.GeoPoint;
+
+import java.util.Locale;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Builds Photon search URLs scoped to the service area. The bounding box is always the
+ * whole service area so destinations across town stay reachable, while the map viewport
+ * only biases ranking through lat/lon/zoom.
+ */
+public class PhotonQueryBuilder {
+
+    private static final HttpUrl BASE_URL = HttpUrl.get("https://photon.komoot.io/api/");
+    private static final int MIN_BIAS_ZOOM = 10;
+    private static final int MAX_BIAS_ZOOM = 18;
+
+    private final String query;
+    private final ServiceArea area;
+    private int limit = 15;
+    private GeoPoint mapCenter;
+    private double zoom;
+
+    public PhotonQueryBuilder(String query, ServiceArea area) {
+        this.query = query;
+        this.area = area;
+    }
+
+    public PhotonQueryBuilder limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public PhotonQueryBuilder viewport(GeoPoint mapCenter, double zoom) {
+        this.mapCenter = mapCenter;
+        this.zoom = zoom;
+        return this;
+    }
+
+    /**
+     * The point results are biased towards: the map center when it is inside the
+     * service area, otherwise the middle of the area.
+     */
+    public GeoPoint getBiasPoint() {
+        return area.contains(mapCenter) ? mapCenter : area.getCenter();
+    }
+
+    public HttpUrl build() {
+        GeoPoint bias = getBiasPoint();
+        HttpUrl.Builder url = BASE_URL.newBuilder()
+                .addQueryParameter("q", query)
+                .addQueryParameter("lang", "default")
+                .addQueryParameter("limit", String.valueOf(limit))
+                .addQueryParameter("bbox", String.format(Locale.US, "%.4f,%.4f,%.4f,%.4f",
+                        area.getWest(), area.getSouth(), area.getEast(), area.getNorth()))
+                .addQueryParameter("lat", String.format(Locale.US, "%.5f", bias.getLatitude()))
+                .addQueryParameter("lon", String.format(Locale.US, "%.5f", bias.getLongitude()));
+        if (bias == mapCenter) {
+            int biasZoom = (int) Math.round(Math.max(MIN_BIAS_ZOOM, Math.min(MAX_BIAS_ZOOM, zoom)));
+            url.addQueryParameter("zoom", String.valueOf(biasZoom));
+        }
+        return url.build();
+    }
+}
@@ -0,0 +1,220 @@
+package com.makitaxi.passenger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.osmdroid.util.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The passenger's own places with their coordinates, ranked by how often and how recently
+ * they were used. Each use adds one to a score that halves every {@link #HALF_LIFE_MS}, so a
+ * daily commute outranks a one-off trip from last month. Favorites always come first.
+ *
+ * All methods are thread-safe.
+ */
+public class PlaceStore {
+
+    static final long HALF_LIFE_MS = 30L * 24 * 60 * 60 * 1000;
+
+    interface Clock {
+        long now();
+    }
+
+    public static class Place {
+        final String name;
+        final double latitude;
+        final double longitude;
+        final double score;
+        final long lastUsed;
+        final boolean favorite;
+
+        Place(String name, double latitude, double longitude, double score, long lastUsed, boolean favorite) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.score = score;
+            this.lastUsed = lastUsed;
+            this.favorite = favorite;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public GeoPoint getLocation() {
+            return new GeoPoint(latitude, longitude);
+        }
+
+        public boolean isFavorite() {
+            return favorite;
+        }
+
+        double scoreAt(long now) {
+            return score * Math.pow(0.5, (double) Math.max(0, now - lastUsed) / HALF_LIFE_MS);
+        }
+    }
+
+    private final int maxPlaces;
+    private final Clock clock;
+    // Keyed by normalized name so spellings of the same address share an entry
+    private final Map<String, Place> places = new LinkedHashMap<>();
+    private boolean dirty = false;
+
+    public PlaceStore(int maxPlaces) {
+        this(maxPlaces, System::currentTimeMillis);
+    }
+
+    PlaceStore(int maxPlaces, Clock clock) {
+        this.maxPlaces = maxPlaces;
+        this.clock = clock;
+    }
+
+    /**
+     * Counts one use of the place. The stored location is replaced by the latest one.
+     */
+    public synchronized void record(String name, GeoPoint location) {
+        if (name == null || location == null) return;
+        String key = Gazetteer.normalize(name);
+        if (key.isEmpty()) return;
+
+        long now = clock.now();
+        Place existing = places.get(key);
+        double score = existing != null ? existing.scoreAt(now) + 1 : 1;
+        boolean favorite = existing != null && existing.favorite;
+        places.put(key, new Place(name.trim(), location.getLatitude(), location.getLongitude(), score, now, favorite));
+        evictOverflow(now);
+        dirty = true;
+    }
+
+    /**
+     * @return false when the place is not known
+     */
+    public synchronized boolean setFavorite(String name, boolean favorite) {
+        String key = Gazetteer.normalize(name);
+        Place place = places.get(key);
+        if (place == null) return false;
+        places.put(key, new Place(place.name, place.latitude, place.longitude, place.score, place.lastUsed, favorite));
+        dirty = true;
+        return true;
+    }
+
+    public synchronized GeoPoint getLocation(String name) {
+        Place place = places.get(Gazetteer.normalize(name));
+        return place != null ? place.getLocation() : null;
+    }
+
+    /**
+     * Best places overall, for an empty field.
+     */
+    public synchronized List<Place> top(int limit) {
+        return rank(new ArrayList<>(places.values()), limit);
+    }
+
+    /**
+     * Best places whose words start with every word of the query.
+     */
+    public synchronized List<Place> search(String query, int limit) {
+        String normalizedQuery = Gazetteer.normalize(query);
+        if (normalizedQuery.isEmpty()) return Collections.emptyList();
+
+        String[] queryTokens = normalizedQuery.split(" ");
+        List<Place> matches = new ArrayList<>();
+        for (Map.Entry<String, Place> entry : places.entrySet()) {
+            if (matchesAllTokens(entry.getKey(), queryTokens)) {
+                matches.add(entry.getValue());
+            }
+        }
+        return rank(matches, limit);
+    }
+
+    public synchronized int size() {
+        return places.size();
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    private List<Place> rank(List<Place> candidates, int limit) {
+        long now = clock.now();
+        Collections.sort(candidates, byRank(now));
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    private static Comparator<Place> byRank(long now) {
+        return (a, b) -> {
+            if (a.favorite != b.favorite) return a.favorite ? -1 : 1;
+            return Double.compare(b.scoreAt(now), a.scoreAt(now));
+        };
+    }
+
+    // Drops the lowest ranked places that are not favorites
+    private void evictOverflow(long now) {
+        while (places.size() > maxPlaces) {
+            String weakestKey = null;
+            double weakestScore = Double.MAX_VALUE;
+            for (Map.Entry<String, Place> entry : places.entrySet()) {
+                Place place = entry.getValue();
+                if (place.favorite) continue;
+                double score = place.scoreAt(now);
+                if (score < weakestScore) {
+                    weakestScore = score;
+                    weakestKey = entry.getKey();
+                }
+            }
+            if (weakestKey == null) return;
+            places.remove(weakestKey);
+        }
+    }
+
+    private static boolean matchesAllTokens(String normalized, String[] queryTokens) {
+        String[] tokens = normalized.split(" ");
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    public synchronized String toJson() throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Place place : places.values()) {
+            JSONObject json = new JSONObject();
+            json.put("n", place.name);
+            json.put("lat", place.latitude);
+            json.put("lon", place.longitude);
+            json.put("s", place.score);
+            json.put("t", place.lastUsed);
+            json.put("f", place.favorite);
+            array.put(json);
+        }
+        dirty = false;
+        return array.toString();
+    }
+
+    public synchronized void loadJson(String data) throws JSONException {
+        JSONArray array = new JSONArray(data);
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject json = array.getJSONObject(i);
+            String name = json.getString("n");
+            String key = Gazetteer.normalize(name);
+            if (key.isEmpty()) continue;
+            places.put(key, new Place(name, json.getDouble("lat"), json.getDouble("lon"),
+                    json.getDouble("s"), json.getLong("t"), json.optBoolean("f", false)));
+        }
+        evictOverflow(clock.now());
+    }
+}
@@ -0,0 +1,107 @@
+package com.makitaxi.passenger;
+
+import com.makitaxi.utils.GeoHash;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.osmdroid.util.GeoPoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of reverse-geocoded addresses keyed by the geohash of the point, so taps a
+ * few meters apart share one Geocoder lookup. All methods are thread-safe.
+ */
+public class ReverseGeocodeCache {
+
+    interface Clock {
+        long now();
+    }
+
+    private static class Entry {
+        final String address;
+        final long createdAt;
+
+        Entry(String address, long createdAt) {
+            this.address = address;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final int precision;
+    private final long ttlMs;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries;
+    private boolean dirty = false;
+
+    public ReverseGeocodeCache(int precision, int maxEntries, long ttlMs) {
+        this(precision, maxEntries, ttlMs, System::currentTimeMillis);
+    }
+
+    ReverseGeocodeCache(int precision, int maxEntries, long ttlMs, Clock clock) {
+        this.precision = precision;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized String get(GeoPoint point) {
+        String key = key(point);
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (clock.now() - entry.createdAt > ttlMs) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.address;
+    }
+
+    public synchronized void put(GeoPoint point, String address) {
+        entries.put(key(point), new Entry(address, clock.now()));
+        dirty = true;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    private String key(GeoPoint point) {
+        return GeoHash.encode(point.getLatitude(), point.getLongitude(), precision);
+    }
+
+    public synchronized String toJson() throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            JSONObject json = new JSONObject();
+            json.put("h", item.getKey());
+            json.put("a", item.getValue().address);
+            json.put("t", item.getValue().createdAt);
+            array.put(json);
+        }
+        dirty = false;
+        return array.toString();
+    }
+
+    /**
+     * Restores entries written by {@link #toJson()}, skipping expired ones and ones saved
+     * with a different geohash precision.
+     */
+    public synchronized void loadJson(String data) throws JSONException {
+        JSONArray array = new JSONArray(data);
+        long now = clock.now();
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject json = array.getJSONObject(i);
+            String hash = json.getString("h");
+            long createdAt = json.getLong("t");
+            if (hash.length() != precision || now - createdAt > ttlMs) continue;
+            entries.put(hash, new Entry(json.getString("a"), createdAt));
+        }
+    }
+}
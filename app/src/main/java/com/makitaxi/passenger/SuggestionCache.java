@@ -0,0 +1,190 @@
+package com.makitaxi.passenger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of Photon suggestions keyed by normalized query, with a TTL per entry.
+ *
+ * A query that is not cached can still be answered from a shorter cached prefix:
+ * typing "knez mih" after "knez" filters the "knez" results locally. That is only done
+ * when the prefix result was exhaustive (Photon returned fewer features than requested)
+ * or when filtering still leaves enough suggestions to fill the dropdown.
+ *
+ * All methods are thread-safe.
+ */
+public class SuggestionCache {
+
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    interface Clock {
+        long now();
+    }
+
+    private static class Entry {
+        final List<String> suggestions;
+        final List<String> normalized;
+        final boolean exhaustive;
+        final long createdAt;
+
+        Entry(List<String> suggestions, boolean exhaustive, long createdAt) {
+            this.suggestions = suggestions;
+            this.exhaustive = exhaustive;
+            this.createdAt = createdAt;
+            this.normalized = new ArrayList<>(suggestions.size());
+            for (String suggestion : suggestions) {
+                normalized.add(Gazetteer.normalize(suggestion));
+            }
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries;
+    private boolean dirty = false;
+
+    public SuggestionCache(int maxEntries, long ttlMs) {
+        this(maxEntries, ttlMs, System::currentTimeMillis);
+    }
+
+    SuggestionCache(int maxEntries, long ttlMs, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SuggestionCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param suggestions every Belgrade suggestion Photon returned, not just the ones shown
+     * @param exhaustive  true when Photon returned fewer results than the request limit
+     */
+    public synchronized void put(String query, List<String> suggestions, boolean exhaustive) {
+        String key = Gazetteer.normalize(query);
+        if (key.isEmpty()) return;
+        entries.put(key, new Entry(new ArrayList<>(suggestions), exhaustive, clock.now()));
+        dirty = true;
+    }
+
+    /**
+     * Returns cached suggestions for the query, or null when Photon has to be asked.
+     */
+    public synchronized List<String> get(String query, int limit) {
+        String key = Gazetteer.normalize(query);
+        if (key.isEmpty()) return null;
+
+        Entry exact = freshEntry(key);
+        if (exact != null) {
+            return truncate(exact.suggestions, limit);
+        }
+
+        String[] queryTokens = key.split(" ");
+        for (int length = key.length() - 1; length >= MIN_PREFIX_LENGTH; length--) {
+            String prefix = key.substring(0, length).trim();
+            Entry entry = freshEntry(prefix);
+            if (entry == null) continue;
+
+            List<String> filtered = filter(entry, queryTokens, limit);
+            if (entry.exhaustive || filtered.size() >= limit) {
+                return filtered;
+            }
+            // The longest cached prefix decides; shorter ones are less specific
+            return null;
+        }
+        return null;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    private Entry freshEntry(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (clock.now() - entry.createdAt > ttlMs) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private static List<String> filter(Entry entry, String[] queryTokens, int limit) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < entry.suggestions.size() && result.size() < limit; i++) {
+            if (matchesAllTokens(entry.normalized.get(i), queryTokens)) {
+                result.add(entry.suggestions.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static boolean matchesAllTokens(String normalized, String[] queryTokens) {
+        String[] tokens = normalized.split(" ");
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static List<String> truncate(List<String> suggestions, int limit) {
+        if (suggestions.size() <= limit) {
+            return Collections.unmodifiableList(suggestions);
+        }
+        return Collections.unmodifiableList(suggestions.subList(0, limit));
+    }
+
+    public synchronized String toJson() throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Map.Entry<String, Entry> item : entries.entrySet()) {
+            Entry entry = item.getValue();
+            JSONObject json = new JSONObject();
+            json.put("q", item.getKey());
+            json.put("t", entry.createdAt);
+            json.put("x", entry.exhaustive);
+            json.put("s", new JSONArray(entry.suggestions));
+            array.put(json);
+        }
+        dirty = false;
+        return array.toString();
+    }
+
+    /**
+     * Restores entries written by {@link #toJson()}, skipping the ones that already expired.
+     * Entries are written least recently used first, so the LRU order survives the round trip.
+     */
+    public synchronized void loadJson(String data) throws JSONException {
+        JSONArray array = new JSONArray(data);
+        long now = clock.now();
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject json = array.getJSONObject(i);
+            long createdAt = json.getLong("t");
+            if (now - createdAt > ttlMs) continue;
+
+            JSONArray suggestionsJson = json.getJSONArray("s");
+            List<String> suggestions = new ArrayList<>(suggestionsJson.length());
+            for (int j = 0; j < suggestionsJson.length(); j++) {
+                suggestions.add(suggestionsJson.getString(j));
+            }
+            entries.put(json.getString("q"), new Entry(suggestions, json.getBoolean("x"), createdAt));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.makitaxi.utils;
+
+/**
+ * Consecutive-failure circuit breaker for a remote endpoint.
+ *
+ * After {@code failureThreshold} failures or slow calls in a row the breaker opens and
+ * rejects calls for {@code openDurationMs}. It then lets a single trial call through;
+ * a good trial closes it again, a bad one reopens it.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    interface Clock {
+        long now();
+    }
+
+    private final int failureThreshold;
+    private final long slowCallMs;
+    private final long openDurationMs;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    public CircuitBreaker(int failureThreshold, long slowCallMs, long openDurationMs) {
+        this(failureThreshold, slowCallMs, openDurationMs, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int failureThreshold, long slowCallMs, long openDurationMs, Clock clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.slowCallMs = slowCallMs;
+        this.openDurationMs = openDurationMs;
+        this.clock = clock;
+    }
+
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case OPEN:
+                if (clock.now() - openedAt < openDurationMs) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            case CLOSED:
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Records a call that got an answer from the server. Calls slower than the
+     * slow-call limit count as failures, since they are what users end up waiting on.
+     */
+    public synchronized void recordSuccess(long latencyMs) {
+        if (latencyMs > slowCallMs) {
+            recordFailure();
+            return;
+        }
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.now();
+        }
+    }
+
+    /**
+     * Releases a half-open trial that ended without telling us anything, e.g. a cancelled call.
+     */
+    public synchronized void recordIgnored() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
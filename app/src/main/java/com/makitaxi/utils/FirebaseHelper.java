@@ -35,6 +35,30 @@ public class FirebaseHelper {
         return rootRef.child(AppConfig.NODE_FEEDBACK_REQUESTS);
     }
 
+    /**
+     * Per-user index of feedback ids, user_rides/{uid}/{feedbackId} = server time the ride was
+     * last written, so history reads only the caller's rides instead of the whole
+     * feedback_requests node, and only the ones changed since its last sync.
+     */
+    public static DatabaseReference getUserRidesRef() {
+        return rootRef.child(AppConfig.NODE_USER_RIDES);
+    }
+
+    /**
+     * Per-user state of the user_rides index, e.g. user_rides_meta/{uid}/backfilled once rides
+     * from before the index was introduced have been added to it.
+     */
+    public static DatabaseReference getUserRidesMetaRef() {
+        return rootRef.child(AppConfig.NODE_USER_RIDES_META);
+    }
+
+    /**
+     * Milliseconds to add to the device clock to estimate the server's.
+     */
+    public static DatabaseReference getServerTimeOffsetRef() {
+        return rootRef.getDatabase().getReference(".info/serverTimeOffset");
+    }
+
     public static DatabaseReference getRootRef() {
         return rootRef;
     }
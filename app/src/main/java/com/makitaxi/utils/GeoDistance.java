@@ -0,0 +1,28 @@
+package com.makitaxi.utils;
+
+import org.osmdroid.util.GeoPoint;
+
+/**
+ * Great-circle distance between two points on a spherical Earth, good to about half a
+ * percent, which is plenty for estimates and ranking.
+ */
+public class GeoDistance {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private GeoDistance() {
+    }
+
+    public static double haversineKm(GeoPoint start, GeoPoint end) {
+        return haversineKm(start.getLatitude(), start.getLongitude(), end.getLatitude(), end.getLongitude());
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
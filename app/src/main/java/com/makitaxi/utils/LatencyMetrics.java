@@ -0,0 +1,153 @@
+package com.makitaxi.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory latency histograms and outcome counters, one set per named source, e.g. the
+ * OSRM server and the route cache for routing, or the gazetteer and Photon for autocomplete.
+ */
+public class LatencyMetrics {
+
+    // Upper bounds of the latency buckets in milliseconds; the last bucket is open-ended
+    static final long[] BUCKET_LIMITS_MS = {100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final Map<String, Source> sources = new LinkedHashMap<>();
+
+    public static class Source {
+        private final long[] buckets = new long[BUCKET_LIMITS_MS.length + 1];
+        private long successes;
+        private long errors;
+        private long timeouts;
+        private long rejected;
+        private long totalLatencyMs;
+        private long maxLatencyMs;
+
+        public long getSuccesses() {
+            return successes;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getCount() {
+            long count = 0;
+            for (long bucket : buckets) {
+                count += bucket;
+            }
+            return count;
+        }
+
+        public long getMaxLatencyMs() {
+            return maxLatencyMs;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile, or -1 when there are no samples.
+         * Returns Long.MAX_VALUE when it falls in the open-ended last bucket.
+         */
+        public long getPercentileMs(double percentile) {
+            long count = getCount();
+            if (count == 0) return -1;
+
+            long target = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= Math.max(1, target)) {
+                    return i < BUCKET_LIMITS_MS.length ? BUCKET_LIMITS_MS[i] : Long.MAX_VALUE;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        private void recordLatency(long latencyMs) {
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS_MS.length && latencyMs > BUCKET_LIMITS_MS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+            totalLatencyMs += latencyMs;
+            maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+        }
+
+        private Source copy() {
+            Source copy = new Source();
+            System.arraycopy(buckets, 0, copy.buckets, 0, buckets.length);
+            copy.successes = successes;
+            copy.errors = errors;
+            copy.timeouts = timeouts;
+            copy.rejected = rejected;
+            copy.totalLatencyMs = totalLatencyMs;
+            copy.maxLatencyMs = maxLatencyMs;
+            return copy;
+        }
+    }
+
+    public synchronized void recordSuccess(String source, long latencyMs) {
+        Source stats = source(source);
+        stats.successes++;
+        stats.recordLatency(latencyMs);
+    }
+
+    public synchronized void recordError(String source, long latencyMs, boolean timeout) {
+        Source stats = source(source);
+        if (timeout) {
+            stats.timeouts++;
+        } else {
+            stats.errors++;
+        }
+        stats.recordLatency(latencyMs);
+    }
+
+    /**
+     * Counts a call that never reached the source, e.g. because the circuit breaker was open.
+     */
+    public synchronized void recordRejected(String source) {
+        source(source).rejected++;
+    }
+
+    public synchronized Source getSnapshot(String source) {
+        Source stats = sources.get(source);
+        return stats != null ? stats.copy() : new Source();
+    }
+
+    public synchronized String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Source> entry : sources.entrySet()) {
+            Source stats = entry.getValue();
+            long count = stats.getCount();
+            sb.append(String.format(Locale.US,
+                    "%s: ok=%d err=%d timeout=%d rejected=%d avg=%dms p95<=%s max=%dms%n",
+                    entry.getKey(), stats.successes, stats.errors, stats.timeouts, stats.rejected,
+                    count > 0 ? stats.totalLatencyMs / count : 0,
+                    formatBound(stats.getPercentileMs(95)), stats.maxLatencyMs));
+        }
+        return sb.toString();
+    }
+
+    private static String formatBound(long boundMs) {
+        if (boundMs < 0) return "-";
+        if (boundMs == Long.MAX_VALUE) return "inf";
+        return boundMs + "ms";
+    }
+
+    private Source source(String name) {
+        Source stats = sources.get(name);
+        if (stats == null) {
+            stats = new Source();
+            sources.put(name, stats);
+        }
+        return stats;
+    }
+}
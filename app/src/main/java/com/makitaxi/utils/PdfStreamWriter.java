@@ -0,0 +1,245 @@
+package com.makitaxi.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a text-only PDF one page at a time.
+ *
+ * Each page is compressed and written to the output as soon as it is finished, so memory use
+ * stays at one page however long the document gets; only the byte offset of every object is
+ * kept until {@link #close} writes the page tree and cross-reference table.
+ *
+ * Text uses the standard Helvetica fonts, which every reader has and which cover Latin-1, so
+ * Cyrillic and Serbian diacritics are folded to ASCII with {@link Transliterator#ASCII_LATIN}.
+ * Coordinates are measured from the top left corner, as on an Android canvas.
+ */
+public final class PdfStreamWriter implements Closeable {
+
+    public enum Align {LEFT, CENTER, RIGHT}
+
+    // Fixed objects, written last so the page tree can list every page
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT_REGULAR = 3;
+    private static final int FONT_BOLD = 4;
+    private static final int FIRST_PAGE_OBJECT = 5;
+
+    // Glyph widths of printable ASCII in 1/1000 em, from the Helvetica and Helvetica-Bold metrics
+    private static final short[] REGULAR_WIDTHS = {
+            278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+            1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+            333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+            556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+    private static final short[] BOLD_WIDTHS = {
+            278, 333, 474, 556, 556, 889, 722, 238, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 333, 333, 584, 584, 584, 611,
+            975, 722, 722, 722, 722, 667, 611, 778, 722, 278, 556, 722, 611, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 333, 278, 333, 584, 556,
+            333, 556, 611, 556, 611, 556, 333, 611, 611, 278, 278, 556, 278, 889, 611, 611,
+            611, 611, 389, 556, 333, 611, 556, 778, 556, 556, 500, 389, 280, 389, 584
+    };
+
+    private final OutputStream out;
+    private final int pageWidth;
+    private final int pageHeight;
+
+    private long position = 0;
+    // Byte offset of every object, indexed by object number
+    private long[] offsets = new long[64];
+    private int nextObject = FIRST_PAGE_OBJECT;
+    private int pageCount = 0;
+
+    private StringBuilder content;
+
+    /**
+     * @param out written to as pages finish and closed by {@link #close}
+     */
+    public PdfStreamWriter(OutputStream out, int pageWidth, int pageHeight) throws IOException {
+        this.out = out;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        // The binary comment marks the file as binary for transfer tools
+        write("%PDF-1.4\n%âãÏÓ\n");
+    }
+
+    public void startPage() {
+        if (content != null) {
+            throw new IllegalStateException("Previous page is not finished");
+        }
+        content = new StringBuilder(4096);
+    }
+
+    public void drawText(String text, float x, float y, float size, boolean bold, Align align) {
+        if (content == null) {
+            throw new IllegalStateException("No page started");
+        }
+        String printable = toPrintable(text);
+        float left = x;
+        if (align == Align.CENTER) {
+            left -= textWidth(printable, size, bold) / 2;
+        } else if (align == Align.RIGHT) {
+            left -= textWidth(printable, size, bold);
+        }
+
+        content.append("BT /").append(bold ? "F2 " : "F1 ").append(format(size)).append(" Tf ")
+                .append(format(left)).append(' ').append(format(pageHeight - y)).append(" Td (");
+        for (int i = 0; i < printable.length(); i++) {
+            char c = printable.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                content.append('\\');
+            }
+            content.append(c);
+        }
+        content.append(") Tj ET\n");
+    }
+
+    /**
+     * Compresses the page and writes it out.
+     */
+    public void finishPage() throws IOException {
+        if (content == null) {
+            throw new IllegalStateException("No page started");
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length() / 3);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            deflater.write(content.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+        content = null;
+
+        int contentObject = nextObject++;
+        beginObject(contentObject);
+        write("<< /Length " + compressed.size() + " /Filter /FlateDecode >>\nstream\n");
+        write(compressed.toByteArray());
+        write("\nendstream\nendobj\n");
+
+        beginObject(nextObject++);
+        write("<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + pageWidth + " " + pageHeight + "]"
+                + " /Resources << /Font << /F1 " + FONT_REGULAR + " 0 R /F2 " + FONT_BOLD + " 0 R >> >>"
+                + " /Contents " + contentObject + " 0 R >>\nendobj\n");
+        pageCount++;
+        out.flush();
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Width of the text in points once drawn, after the same folding {@link #drawText} applies.
+     */
+    public static float textWidth(String text, float size, boolean bold) {
+        String printable = toPrintable(text);
+        short[] widths = bold ? BOLD_WIDTHS : REGULAR_WIDTHS;
+        int total = 0;
+        for (int i = 0; i < printable.length(); i++) {
+            total += widths[printable.charAt(i) - ' '];
+        }
+        return total * size / 1000f;
+    }
+
+    /**
+     * The text, folded as {@link #drawText} would, cut short with "..." if it is wider than
+     * {@code width} points.
+     */
+    public static String fit(String text, float width, float size, boolean bold) {
+        String printable = toPrintable(text);
+        short[] widths = bold ? BOLD_WIDTHS : REGULAR_WIDTHS;
+        float limit = width * 1000f / size;
+        if (textWidth(printable, size, bold) <= width) return printable;
+
+        float available = limit - 3 * widths['.' - ' '];
+        int total = 0;
+        int end = 0;
+        while (end < printable.length() && total + widths[printable.charAt(end) - ' '] <= available) {
+            total += widths[printable.charAt(end) - ' '];
+            end++;
+        }
+        return printable.substring(0, end).trim() + "...";
+    }
+
+    /**
+     * Finishes the document. A page still open is finished first; a document without pages
+     * gets one empty page, as readers reject an empty page tree.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (content != null) {
+                finishPage();
+            }
+            if (pageCount == 0) {
+                startPage();
+                finishPage();
+            }
+
+            beginObject(FONT_REGULAR);
+            write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n");
+            beginObject(FONT_BOLD);
+            write("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>\nendobj\n");
+
+            StringBuilder kids = new StringBuilder();
+            for (int page = 0; page < pageCount; page++) {
+                // Each page is written right after its content stream
+                kids.append(FIRST_PAGE_OBJECT + page * 2 + 1).append(" 0 R ");
+            }
+            beginObject(PAGES);
+            write("<< /Type /Pages /Count " + pageCount + " /Kids [" + kids + "] >>\nendobj\n");
+            beginObject(CATALOG);
+            write("<< /Type /Catalog /Pages " + PAGES + " 0 R >>\nendobj\n");
+
+            long xref = position;
+            StringBuilder table = new StringBuilder("xref\n0 " + nextObject + "\n0000000000 65535 f \n");
+            for (int object = 1; object < nextObject; object++) {
+                table.append(String.format(Locale.US, "%010d 00000 n \n", offsets[object]));
+            }
+            write(table.toString());
+            write("trailer\n<< /Size " + nextObject + " /Root " + CATALOG + " 0 R >>\nstartxref\n" + xref + "\n%%EOF\n");
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void beginObject(int object) throws IOException {
+        if (object >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[object] = position;
+        write(object + " 0 obj\n");
+    }
+
+    private void write(String text) throws IOException {
+        write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    // Printable ASCII only, so text widths are known and no encoding is needed
+    private static String toPrintable(String text) {
+        if (text == null) return "";
+        String folded = Transliterator.ASCII_LATIN.transliterate(text);
+        StringBuilder printable = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            printable.append(c >= ' ' && c <= '~' ? c : c == '\t' ? ' ' : '?');
+        }
+        return printable.toString();
+    }
+
+    private static String format(float value) {
+        return String.format(Locale.US, "%.2f", value);
+    }
+}
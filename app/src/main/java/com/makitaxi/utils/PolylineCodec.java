@@ -0,0 +1,85 @@
+package com.makitaxi.utils;
+
+import org.osmdroid.util.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encoded polyline format with 6 decimal places (polyline6), the same format OSRM
+ * returns for geometries=polyline6. Used to store a ride's route on the RideRequest.
+ */
+public class PolylineCodec {
+
+    private static final double PRECISION = 1e6;
+
+    public static String encode(List<GeoPoint> points) {
+        if (points == null || points.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder result = new StringBuilder(points.size() * 8);
+        long lastLat = 0;
+        long lastLon = 0;
+        for (GeoPoint point : points) {
+            long lat = Math.round(point.getLatitude() * PRECISION);
+            long lon = Math.round(point.getLongitude() * PRECISION);
+            encodeValue(lat - lastLat, result);
+            encodeValue(lon - lastLon, result);
+            lastLat = lat;
+            lastLon = lon;
+        }
+        return result.toString();
+    }
+
+    public static List<GeoPoint> decode(String encoded) {
+        List<GeoPoint> points = new ArrayList<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return points;
+        }
+
+        int index = 0;
+        long lat = 0;
+        long lon = 0;
+        int length = encoded.length();
+        try {
+            while (index < length) {
+                long[] result = decodeValue(encoded, index);
+                lat += result[0];
+                index = (int) result[1];
+
+                result = decodeValue(encoded, index);
+                lon += result[0];
+                index = (int) result[1];
+
+                points.add(new GeoPoint(lat / PRECISION, lon / PRECISION));
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // Truncated string, nothing usable in it
+            points.clear();
+        }
+        return points;
+    }
+
+    private static void encodeValue(long value, StringBuilder out) {
+        long shifted = value < 0 ? ~(value << 1) : (value << 1);
+        while (shifted >= 0x20) {
+            out.append((char) ((0x20 | (shifted & 0x1f)) + 63));
+            shifted >>= 5;
+        }
+        out.append((char) (shifted + 63));
+    }
+
+    private static long[] decodeValue(String encoded, int index) {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = encoded.charAt(index++) - 63;
+            result |= (long) (b & 0x1f) << shift;
+            shift += 5;
+        } while (b >= 0x20);
+        long value = (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+        return new long[]{value, index};
+    }
+}
@@ -18,6 +18,7 @@ public final class PreferencesManager {
     private static final String USER_EMAIL_KEY = "user_email";
     private static final String LOGIN_TIME_KEY = "login_time";
     private static final String CACHED_USER_OBJECT_KEY = "cached_user_object";
+    private static final String HISTORY_INDEX_BACKFILLED_KEY = "history_index_backfilled_";
 
     /**
      * Private constructor to prevent instantiation of this utility class.
@@ -224,4 +225,29 @@ public final class PreferencesManager {
             editor.apply();
         }
     }
+
+    // ========== RIDE HISTORY ==========
+
+    /**
+     * Check if rides from before the per-user history index were already indexed
+     *
+     * @param context The application context
+     * @param userId The user whose history is indexed
+     * @return True if this device has seen the backfill done for this user
+     */
+    public static boolean isHistoryIndexBackfilled(Context context, String userId) {
+        return getPrefs(context).getBoolean(HISTORY_INDEX_BACKFILLED_KEY + userId, false);
+    }
+
+    /**
+     * Mark the history index backfill as done for a user
+     *
+     * @param context The application context
+     * @param userId The user whose history was indexed
+     */
+    public static void setHistoryIndexBackfilled(Context context, String userId) {
+        SharedPreferences.Editor editor = getPrefs(context).edit();
+        editor.putBoolean(HISTORY_INDEX_BACKFILLED_KEY + userId, true);
+        editor.apply();
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,514 @@
+package com.makitaxi.utils;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.osmdroid.util.GeoPoint;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Shared OSRM client for the driver, passenger and history maps.
+ *
+ * Callers asking for the same route while a request is still running are attached to
+ * that request instead of starting a new one. Endpoints are quantized before comparison,
+ * so a driver location that moved a few meters between two calls still coalesces.
+ *
+ * Lookups go through a fallback chain: local sources first (the route cache, then any
+ * registered embedded router), then OSRM behind a circuit breaker. When OSRM is failing
+ * or too slow the breaker opens and callers get a straight-line estimate right away.
+ * Each call is also cut off once it takes as long as the breaker's slow-call limit, so even
+ * before the breaker opens nobody waits longer than that for a route.
+ *
+ * Remote results are delivered on a background thread. Results from local sources and
+ * estimates are delivered on the calling thread, before getRoute returns.
+ */
+public class RouteService {
+
+    private static final String TAG = "RouteService";
+    private static final String OSRM_BASE_URL = "https://router.project-osrm.org/route/v1/driving/";
+
+    // 1e-4 degrees is roughly 11 m in Belgrade
+    private static final double COORDINATE_QUANTUM = 1e-4;
+
+    static final String ENDPOINT_OSRM = "osrm";
+    static final String ENDPOINT_ESTIMATE = "estimate";
+
+    private static final int BREAKER_FAILURE_THRESHOLD = 3;
+    private static final long BREAKER_SLOW_CALL_MS = 4000;
+    private static final long BREAKER_OPEN_MS = 30000;
+    // A call slower than this would count as a breaker failure anyway, so stop waiting for it
+    private static final long CALL_TIMEOUT_MS = BREAKER_SLOW_CALL_MS;
+
+    private static final int ROUTE_CACHE_SIZE = 64;
+    private static final int METRICS_LOG_INTERVAL = 20;
+
+    // Straight-line estimate: city streets are ~30% longer than the direct line,
+    // and average taxi speed in Belgrade traffic is around 25 km/h
+    private static final double ESTIMATE_DETOUR_FACTOR = 1.3;
+    private static final double ESTIMATE_SPEED_KMH = 25.0;
+
+    private static RouteService instance;
+
+    private final Call.Factory httpClient;
+    private final Map<String, InFlightRoute> inFlight = new HashMap<>();
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyMetrics metrics = new LatencyMetrics();
+    private final List<RouteSource> localSources = new CopyOnWriteArrayList<>();
+    private int remoteCallCount = 0;
+
+    // Cache entries put there by a prefetch nobody else asked for, with the request that
+    // fetched them; guarded by the routeCache lock
+    private final Map<String, InFlightRoute> prefetchedRoutes = new HashMap<>();
+
+    private final Map<String, RouteResult> routeCache = new LinkedHashMap<String, RouteResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RouteResult> eldest) {
+            if (size() <= ROUTE_CACHE_SIZE) return false;
+            prefetchedRoutes.remove(eldest.getKey());
+            return true;
+        }
+    };
+
+    public interface RoutingCallback {
+        void onRouteFound(List<GeoPoint> routePoints, double distance, double duration);
+
+        void onRoutingError(String error);
+
+        /**
+         * Called instead of onRouteFound when OSRM could not be used and the route is only a
+         * straight line with estimated distance and duration. Treated as a normal route by default.
+         */
+        default void onRouteEstimated(List<GeoPoint> routePoints, double distance, double duration) {
+            onRouteFound(routePoints, distance, duration);
+        }
+    }
+
+    /**
+     * A source that can answer route lookups without the network, such as a cache or an
+     * embedded router. Returns null when it has no route for the given points.
+     */
+    public interface RouteSource {
+        String getName();
+
+        RouteResult findRoute(GeoPoint start, GeoPoint end);
+    }
+
+    public static class RouteResult {
+        public final List<GeoPoint> routePoints;
+        public final double distance;
+        public final double duration;
+        public final boolean estimated;
+
+        public RouteResult(List<GeoPoint> routePoints, double distance, double duration, boolean estimated) {
+            this.routePoints = routePoints;
+            this.distance = distance;
+            this.duration = duration;
+            this.estimated = estimated;
+        }
+    }
+
+    /**
+     * Ticket for one caller waiting on a route. Cancelling it detaches only that caller;
+     * the HTTP call is cancelled once nobody is waiting on it anymore.
+     */
+    public interface RouteHandle {
+        void cancel();
+
+        boolean isDone();
+    }
+
+    public static synchronized RouteService getInstance() {
+        if (instance == null) {
+            instance = new RouteService();
+        }
+        return instance;
+    }
+
+    private RouteService() {
+        this(new OkHttpClient.Builder()
+                        .callTimeout(CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                        .build(),
+                new CircuitBreaker(BREAKER_FAILURE_THRESHOLD, BREAKER_SLOW_CALL_MS, BREAKER_OPEN_MS));
+    }
+
+    RouteService(Call.Factory httpClient, CircuitBreaker circuitBreaker) {
+        this.httpClient = httpClient;
+        this.circuitBreaker = circuitBreaker;
+        this.localSources.add(new CacheSource());
+    }
+
+    public RouteHandle getRoute(GeoPoint start, GeoPoint end, RoutingCallback callback) {
+        return getRoute(start, end, callback, false);
+    }
+
+    private RouteHandle getRoute(GeoPoint start, GeoPoint end, RoutingCallback callback, boolean prefetch) {
+        Waiter waiter = new Waiter(callback);
+        if (start == null || end == null) {
+            waiter.deliverError("Invalid coordinates");
+            return waiter;
+        }
+
+        for (RouteSource source : localSources) {
+            long startTime = System.currentTimeMillis();
+            RouteResult result = source.findRoute(start, end);
+            if (result != null) {
+                metrics.recordSuccess(source.getName(), System.currentTimeMillis() - startTime);
+                waiter.deliver(result);
+                return waiter;
+            }
+        }
+
+        String key = routeKey(start, end);
+        synchronized (inFlight) {
+            InFlightRoute route = inFlight.get(key);
+            if (route != null) {
+                Log.d(TAG, "Joining in-flight route request " + key);
+                if (!prefetch) {
+                    route.wanted = true;
+                }
+                route.waiters.add(waiter);
+                waiter.route = route;
+                return waiter;
+            }
+
+            if (circuitBreaker.allowRequest()) {
+                route = new InFlightRoute(key, start, end);
+                route.wanted = !prefetch;
+                inFlight.put(key, route);
+                route.waiters.add(waiter);
+                waiter.route = route;
+                route.start();
+                return waiter;
+            }
+        }
+
+        Log.w(TAG, "OSRM circuit open, using straight-line estimate for " + key);
+        metrics.recordRejected(ENDPOINT_OSRM);
+        metrics.recordSuccess(ENDPOINT_ESTIMATE, 0);
+        waiter.deliver(estimateRoute(start, end));
+        return waiter;
+    }
+
+    /**
+     * Fetches a route into the cache without anyone waiting on it, so a later getRoute for
+     * the same points is answered locally. Cancelling the handle drops the request if it is
+     * still running and nobody else joined it; {@link #discardPrefetch} also drops the route.
+     */
+    public RouteHandle prefetch(GeoPoint start, GeoPoint end) {
+        return getRoute(start, end, new RoutingCallback() {
+            @Override
+            public void onRouteFound(List<GeoPoint> routePoints, double distance, double duration) {
+            }
+
+            @Override
+            public void onRoutingError(String error) {
+                Log.d(TAG, "Prefetch failed: " + error);
+            }
+        }, true);
+    }
+
+    /**
+     * Cancels a prefetch and removes its route from the cache, but only if this prefetch put it
+     * there and no other caller has asked for that route since.
+     */
+    public void discardPrefetch(RouteHandle handle) {
+        handle.cancel();
+        InFlightRoute route = ((Waiter) handle).route;
+        if (route == null) return;
+        synchronized (routeCache) {
+            if (prefetchedRoutes.get(route.key) == route) {
+                prefetchedRoutes.remove(route.key);
+                routeCache.remove(route.key);
+            }
+        }
+    }
+
+    /**
+     * Adds a local source (e.g. an offline router) to the fallback chain. Local sources are
+     * asked in registration order, after the route cache and before OSRM.
+     */
+    public void registerLocalSource(RouteSource source) {
+        localSources.add(source);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public LatencyMetrics getMetrics() {
+        return metrics;
+    }
+
+    static String routeKey(GeoPoint start, GeoPoint end) {
+        return quantize(start.getLatitude()) + "," + quantize(start.getLongitude()) + ";" +
+                quantize(end.getLatitude()) + "," + quantize(end.getLongitude());
+    }
+
+    private static long quantize(double coordinate) {
+        return Math.round(coordinate / COORDINATE_QUANTUM);
+    }
+
+    static RouteResult estimateRoute(GeoPoint start, GeoPoint end) {
+        double distance = GeoDistance.haversineKm(start, end) * ESTIMATE_DETOUR_FACTOR;
+        double duration = distance / ESTIMATE_SPEED_KMH * 60.0;
+        List<GeoPoint> routePoints = new ArrayList<>(2);
+        routePoints.add(start);
+        routePoints.add(end);
+        return new RouteResult(routePoints, distance, duration, true);
+    }
+
+    private void recordRemoteCall() {
+        boolean logSummary;
+        synchronized (this) {
+            remoteCallCount++;
+            logSummary = remoteCallCount % METRICS_LOG_INTERVAL == 0;
+        }
+        if (logSummary) {
+            Log.d(TAG, "Routing metrics (breaker " + circuitBreaker.getState() + "):\n" + metrics.summary());
+        }
+    }
+
+    private class CacheSource implements RouteSource {
+        @Override
+        public String getName() {
+            return "cache";
+        }
+
+        @Override
+        public RouteResult findRoute(GeoPoint start, GeoPoint end) {
+            String key = routeKey(start, end);
+            synchronized (routeCache) {
+                RouteResult result = routeCache.get(key);
+                if (result != null) {
+                    // Someone is using it now, so a discarded prefetch must leave it
+                    prefetchedRoutes.remove(key);
+                }
+                return result;
+            }
+        }
+    }
+
+    private static List<GeoPoint> parseCoordinates(JSONArray coordinates) throws JSONException {
+        List<GeoPoint> routePoints = new ArrayList<>(coordinates.length());
+        for (int i = 0; i < coordinates.length(); i++) {
+            JSONArray coord = coordinates.getJSONArray(i);
+            double lon = coord.getDouble(0);
+            double lat = coord.getDouble(1);
+            routePoints.add(new GeoPoint(lat, lon));
+        }
+        return routePoints;
+    }
+
+    private class InFlightRoute implements Callback {
+        private final String key;
+        private final GeoPoint start;
+        private final GeoPoint end;
+        private final List<Waiter> waiters = new ArrayList<>();
+        private Call call;
+        private boolean done;
+        private long startTime;
+        // Some caller other than a prefetch asked for this route
+        private volatile boolean wanted;
+
+        InFlightRoute(String key, GeoPoint start, GeoPoint end) {
+            this.key = key;
+            this.start = start;
+            this.end = end;
+        }
+
+        void start() {
+            String url = OSRM_BASE_URL + start.getLongitude() + "," + start.getLatitude() + ";" +
+                    end.getLongitude() + "," + end.getLatitude() + "?overview=full&geometries=geojson";
+
+            Request request = new Request.Builder()
+                    .url(url)
+                    .header("User-Agent", "MakiTaxi/1.0")
+                    .build();
+
+            startTime = System.currentTimeMillis();
+            call = httpClient.newCall(request);
+            call.enqueue(this);
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            // Not call.isCanceled(): the call timeout cancels the call too, and that is a failure
+            if (isDetached()) {
+                Log.d(TAG, "Route request canceled: " + key);
+                circuitBreaker.recordIgnored();
+                return;
+            }
+            Log.e(TAG, "Error getting route", e);
+            failOver(e instanceof InterruptedIOException);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            try (ResponseBody body = response.body()) {
+                if (response.code() >= 500 || response.code() == 429 || body == null) {
+                    Log.e(TAG, "OSRM unavailable, HTTP " + response.code());
+                    failOver(false);
+                    return;
+                }
+
+                if (!response.isSuccessful()) {
+                    // A bad request says nothing about OSRM's health or speed
+                    circuitBreaker.recordIgnored();
+                    complete(null, "HTTP Error: " + response.code());
+                    return;
+                }
+
+                // Read before recording, so a body cut off by the call timeout counts only as a failure
+                String json = body.string();
+                long latency = System.currentTimeMillis() - startTime;
+                circuitBreaker.recordSuccess(latency);
+                metrics.recordSuccess(ENDPOINT_OSRM, latency);
+                recordRemoteCall();
+
+                JSONObject jsonResponse = new JSONObject(json);
+                if (jsonResponse.has("routes") && jsonResponse.getJSONArray("routes").length() > 0) {
+                    JSONObject route = jsonResponse.getJSONArray("routes").getJSONObject(0);
+                    JSONArray coordinates = route.getJSONObject("geometry").getJSONArray("coordinates");
+
+                    List<GeoPoint> routePoints = parseCoordinates(coordinates);
+                    double distance = route.getDouble("distance") / 1000.0; // Convert to km
+                    double duration = route.getDouble("duration") / 60.0; // Convert to minutes
+
+                    RouteResult result = new RouteResult(routePoints, distance, duration, false);
+                    synchronized (routeCache) {
+                        routeCache.put(key, result);
+                        if (wanted) {
+                            prefetchedRoutes.remove(key);
+                        } else {
+                            prefetchedRoutes.put(key, this);
+                        }
+                    }
+                    complete(result, null);
+                } else {
+                    complete(null, "No route found");
+                }
+            } catch (IOException | JSONException e) {
+                if (isDetached()) {
+                    circuitBreaker.recordIgnored();
+                    return;
+                }
+                Log.e(TAG, "Error parsing route", e);
+                failOver(e instanceof InterruptedIOException);
+            }
+        }
+
+        // OSRM itself failed: count it against the breaker and hand out an estimate instead
+        private void failOver(boolean timeout) {
+            circuitBreaker.recordFailure();
+            metrics.recordError(ENDPOINT_OSRM, System.currentTimeMillis() - startTime, timeout);
+            metrics.recordSuccess(ENDPOINT_ESTIMATE, 0);
+            recordRemoteCall();
+            complete(estimateRoute(start, end), null);
+        }
+
+        private void complete(RouteResult result, String error) {
+            List<Waiter> toNotify;
+            synchronized (inFlight) {
+                done = true;
+                if (inFlight.get(key) == this) {
+                    inFlight.remove(key);
+                }
+                toNotify = new ArrayList<>(waiters);
+                waiters.clear();
+            }
+
+            for (Waiter waiter : toNotify) {
+                if (result != null) {
+                    waiter.deliver(result);
+                } else {
+                    waiter.deliverError(error);
+                }
+            }
+        }
+
+        // True once every caller left and the call was cancelled on their behalf
+        private boolean isDetached() {
+            synchronized (inFlight) {
+                return done && call.isCanceled();
+            }
+        }
+
+        // Called with the inFlight lock held
+        private void detach(Waiter waiter) {
+            waiters.remove(waiter);
+            if (waiters.isEmpty() && !done) {
+                done = true;
+                if (inFlight.get(key) == this) {
+                    inFlight.remove(key);
+                }
+                if (call != null) {
+                    call.cancel();
+                }
+                Log.d(TAG, "All callers left, cancelled route request " + key);
+            }
+        }
+    }
+
+    private class Waiter implements RouteHandle {
+        private final RoutingCallback callback;
+        private InFlightRoute route;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        Waiter(RoutingCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (inFlight) {
+                if (done || cancelled) return;
+                cancelled = true;
+                if (route != null) {
+                    route.detach(this);
+                }
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            return done || cancelled;
+        }
+
+        void deliver(RouteResult result) {
+            if (cancelled) return;
+            done = true;
+            // Each caller gets its own list; MapDriver hands it straight to a Polyline
+            List<GeoPoint> routePoints = new ArrayList<>(result.routePoints);
+            if (result.estimated) {
+                callback.onRouteEstimated(routePoints, result.distance, result.duration);
+            } else {
+                callback.onRouteFound(routePoints, result.distance, result.duration);
+            }
+        }
+
+        void deliverError(String error) {
+            if (cancelled) return;
+            done = true;
+            callback.onRoutingError(error);
+        }
+    }
+}
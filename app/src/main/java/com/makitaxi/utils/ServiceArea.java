@@ -0,0 +1,85 @@
+package com.makitaxi.utils;
+
+import org.osmdroid.util.GeoPoint;
+
+/**
+ * Polygon of the area the app serves, used to scope and filter place searches.
+ */
+public final class ServiceArea {
+
+    public static final ServiceArea BELGRADE = new ServiceArea(new double[][]{
+            {44.95, 20.30},
+            {44.93, 20.50},
+            {44.87, 20.62},
+            {44.78, 20.62},
+            {44.68, 20.55},
+            {44.65, 20.40},
+            {44.70, 20.25},
+            {44.82, 20.20}
+    });
+
+    private final double[] lats;
+    private final double[] lons;
+    private final double north;
+    private final double south;
+    private final double east;
+    private final double west;
+
+    /**
+     * @param vertices {lat, lon} pairs in order around the polygon
+     */
+    public ServiceArea(double[][] vertices) {
+        lats = new double[vertices.length];
+        lons = new double[vertices.length];
+        double n = -90, s = 90, e = -180, w = 180;
+        for (int i = 0; i < vertices.length; i++) {
+            lats[i] = vertices[i][0];
+            lons[i] = vertices[i][1];
+            n = Math.max(n, lats[i]);
+            s = Math.min(s, lats[i]);
+            e = Math.max(e, lons[i]);
+            w = Math.min(w, lons[i]);
+        }
+        north = n;
+        south = s;
+        east = e;
+        west = w;
+    }
+
+    public boolean contains(double lat, double lon) {
+        if (lat > north || lat < south || lon > east || lon < west) return false;
+        // Ray casting towards increasing longitude
+        boolean inside = false;
+        for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+            if ((lats[i] > lat) != (lats[j] > lat)) {
+                double crossLon = lons[j] + (lat - lats[j]) * (lons[i] - lons[j]) / (lats[i] - lats[j]);
+                if (lon < crossLon) inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    public boolean contains(GeoPoint point) {
+        return point != null && contains(point.getLatitude(), point.getLongitude());
+    }
+
+    public GeoPoint getCenter() {
+        return new GeoPoint((north + south) / 2, (east + west) / 2);
+    }
+
+    public double getNorth() {
+        return north;
+    }
+
+    public double getSouth() {
+        return south;
+    }
+
+    public double getEast() {
+        return east;
+    }
+
+    public double getWest() {
+        return west;
+    }
+}
@@ -0,0 +1,146 @@
+package com.makitaxi.utils;
+
+import java.text.Normalizer;
+
+/**
+ * Single-pass Serbian Cyrillic to Latin transliteration driven by a char-indexed table.
+ *
+ * {@link #SERBIAN_LATIN} keeps Latin diacritics (Ж -> Ž) and is used for display text.
+ * {@link #ASCII_LATIN} also folds diacritics away (Ж -> Z, Č -> C), matching what
+ * Normalizer NFD plus stripping combining marks produced before; it is used for input
+ * fields and search keys.
+ *
+ * Strings that need no change are returned as-is without allocating.
+ */
+public final class Transliterator {
+
+    // Covers ASCII, Latin-1, Latin Extended-A/B, combining marks and the Cyrillic block
+    private static final int TABLE_SIZE = 0x500;
+
+    private static final String[][] SERBIAN_CYRILLIC = {
+            {"А", "A"}, {"а", "a"}, {"Б", "B"}, {"б", "b"}, {"В", "V"}, {"в", "v"}, {"Г", "G"}, {"г", "g"},
+            {"Д", "D"}, {"д", "d"}, {"Ђ", "Đ"}, {"ђ", "đ"}, {"Е", "E"}, {"е", "e"}, {"Ж", "Ž"}, {"ж", "ž"},
+            {"З", "Z"}, {"з", "z"}, {"И", "I"}, {"и", "i"}, {"Ј", "J"}, {"ј", "j"}, {"К", "K"}, {"к", "k"},
+            {"Л", "L"}, {"л", "l"}, {"Љ", "Lj"}, {"љ", "lj"}, {"М", "M"}, {"м", "m"}, {"Н", "N"}, {"н", "n"},
+            {"Њ", "Nj"}, {"њ", "nj"}, {"О", "O"}, {"о", "o"}, {"П", "P"}, {"п", "p"}, {"Р", "R"}, {"р", "r"},
+            {"С", "S"}, {"с", "s"}, {"Т", "T"}, {"т", "t"}, {"Ћ", "Ć"}, {"ћ", "ć"}, {"У", "U"}, {"у", "u"},
+            {"Ф", "F"}, {"ф", "f"}, {"Х", "H"}, {"х", "h"}, {"Ц", "C"}, {"ц", "c"}, {"Ч", "Č"}, {"ч", "č"},
+            {"Џ", "Dž"}, {"џ", "dž"}, {"Ш", "Š"}, {"ш", "š"}
+    };
+
+    // Where the ASCII form differs from simply folding the Serbian Latin one
+    private static final String[][] ASCII_OVERRIDES = {
+            {"Ђ", "Dj"}, {"ђ", "dj"}
+    };
+
+    public static final Transliterator SERBIAN_LATIN = new Transliterator(false);
+    public static final Transliterator ASCII_LATIN = new Transliterator(true);
+
+    // null means "copy the char unchanged"
+    private final String[] table = new String[TABLE_SIZE];
+    private final boolean foldDiacritics;
+    private final ThreadLocal<StringBuilder> buffer = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(64);
+        }
+    };
+
+    private Transliterator(boolean foldDiacritics) {
+        this.foldDiacritics = foldDiacritics;
+        for (String[] pair : SERBIAN_CYRILLIC) {
+            table[pair[0].charAt(0)] = pair[1];
+        }
+
+        if (foldDiacritics) {
+            for (String[] pair : ASCII_OVERRIDES) {
+                table[pair[0].charAt(0)] = pair[1];
+            }
+            // Precompute the NFD + strip-marks result for every char the table covers
+            for (int c = 0x80; c < TABLE_SIZE; c++) {
+                String source = table[c] != null ? table[c] : String.valueOf((char) c);
+                String folded = foldSlow(source);
+                if (!folded.equals(String.valueOf((char) c))) {
+                    table[c] = folded;
+                }
+            }
+        }
+    }
+
+    public String transliterate(String text) {
+        if (text == null) return null;
+
+        int length = text.length();
+        int first = 0;
+        while (first < length && !needsChange(text.charAt(first))) {
+            first++;
+        }
+        if (first == length) {
+            return text;
+        }
+
+        StringBuilder sb = buffer.get();
+        sb.setLength(0);
+        sb.append(text, 0, first);
+        if (!appendFrom(text, first, sb)) {
+            // Some char is outside the table, let Normalizer handle the whole string
+            return foldSlow(transliterateCyrillicOnly(text));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends the transliterated text to {@code out}, for callers that build larger strings.
+     */
+    public void transliterate(CharSequence text, StringBuilder out) {
+        int start = out.length();
+        if (!appendFrom(text, 0, out)) {
+            out.setLength(start);
+            out.append(foldSlow(transliterateCyrillicOnly(text.toString())));
+        }
+    }
+
+    private boolean needsChange(char c) {
+        if (c < 0x80) return false;
+        return c >= TABLE_SIZE ? foldDiacritics : table[c] != null;
+    }
+
+    private boolean appendFrom(CharSequence text, int from, StringBuilder out) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < TABLE_SIZE) {
+                String replacement = table[c];
+                if (replacement == null) {
+                    out.append(c);
+                } else {
+                    out.append(replacement);
+                }
+            } else if (foldDiacritics) {
+                return false;
+            } else {
+                out.append(c);
+            }
+        }
+        return true;
+    }
+
+    private String transliterateCyrillicOnly(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = c >= 0x400 && c < TABLE_SIZE ? table[c] : null;
+            if (replacement == null) {
+                sb.append(c);
+            } else {
+                sb.append(replacement);
+            }
+        }
+        return sb.toString();
+    }
+
+    private String foldSlow(String text) {
+        if (!foldDiacritics) return text;
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return normalized.replaceAll("[\\p{InCombiningDiacriticalMarks}]", "");
+    }
+}
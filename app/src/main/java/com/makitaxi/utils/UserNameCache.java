@@ -0,0 +1,98 @@
+package com.makitaxi.utils;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full names of other users by id, cached for the life of the process.
+ *
+ * Only users/{id}/fullName is read, one small request per missing id, all in parallel, so
+ * resolving a few names never downloads whole user records with their profile pictures.
+ * All methods must be called on the main thread.
+ */
+public class UserNameCache {
+
+    private static final String TAG = "UserNameCache";
+    private static final int MAX_ENTRIES = 500;
+
+    public interface Listener {
+        /**
+         * @param names id to full name, in the order the ids were asked for; ids that could
+         *              not be read are left out
+         */
+        void onNamesLoaded(Map<String, String> names);
+    }
+
+    private static UserNameCache instance;
+
+    private final LinkedHashMap<String, String> names = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public static synchronized UserNameCache getInstance() {
+        if (instance == null) {
+            instance = new UserNameCache();
+        }
+        return instance;
+    }
+
+    private UserNameCache() {
+    }
+
+    /**
+     * Calls back straight away when every name is cached, otherwise once all reads finish.
+     */
+    public void load(Collection<String> userIds, Listener listener) {
+        List<String> requested = new ArrayList<>(userIds);
+        List<String> missing = new ArrayList<>();
+        for (String userId : requested) {
+            if (userId != null && !names.containsKey(userId)) {
+                missing.add(userId);
+            }
+        }
+        if (missing.isEmpty()) {
+            listener.onNamesLoaded(collect(requested));
+            return;
+        }
+
+        int[] remaining = {missing.size()};
+        Runnable onRead = () -> {
+            if (--remaining[0] == 0) {
+                listener.onNamesLoaded(collect(requested));
+            }
+        };
+        for (String userId : missing) {
+            FirebaseHelper.getUserRequestsRef().child(userId).child("fullName").get()
+                    .addOnSuccessListener(snapshot -> {
+                        String fullName = snapshot.getValue(String.class);
+                        if (fullName != null) {
+                            names.put(userId, fullName);
+                        }
+                        onRead.run();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Error loading name of user " + userId + ": " + e.getMessage());
+                        onRead.run();
+                    });
+        }
+    }
+
+    private Map<String, String> collect(List<String> userIds) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            String fullName = userId != null ? names.get(userId) : null;
+            if (fullName != null) {
+                result.put(userId, fullName);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package com.makitaxi.menu;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class HistoryPeriodsTest {
+
+    private static long at(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, hour, 30);
+        return calendar.getTimeInMillis();
+    }
+
+    // Expands a bucket key back into the days it stands for, as "yyyy-MM-dd"
+    private static Set<String> days(String key) {
+        String[] parts = key.substring(1).split("-");
+        Calendar day = Calendar.getInstance();
+        day.clear();
+        day.set(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) - 1,
+                parts.length > 2 ? Integer.parseInt(parts[2]) : 1);
+
+        int count;
+        if (key.startsWith("M")) {
+            count = day.getActualMaximum(Calendar.DAY_OF_MONTH);
+        } else if (key.startsWith("W")) {
+            count = 7;
+        } else {
+            count = 1;
+        }
+        Set<String> days = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            days.add(format(day));
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return days;
+    }
+
+    private static String format(Calendar day) {
+        return String.format("%04d-%02d-%02d", day.get(Calendar.YEAR),
+                day.get(Calendar.MONTH) + 1, day.get(Calendar.DAY_OF_MONTH));
+    }
+
+    @Test
+    public void testBucketsForRide() {
+        assertEquals(Arrays.asList("T", "D2025-03-05", "W2025-03-03", "M2025-03"),
+                HistoryPeriods.bucketsFor(at(2025, Calendar.MARCH, 5, 14)));
+        // Sunday is the last day of the week that started on Monday
+        assertEquals("W2025-03-03", HistoryPeriods.bucketsFor(at(2025, Calendar.MARCH, 9, 23)).get(2));
+        // A week crossing into the next year keeps its Monday's key
+        assertEquals("W2024-12-30", HistoryPeriods.bucketsFor(at(2025, Calendar.JANUARY, 2, 8)).get(2));
+    }
+
+    @Test
+    public void testWholeMonthIsOneBucket() {
+        assertEquals(Arrays.asList("M2025-03"),
+                HistoryPeriods.cover(at(2025, Calendar.MARCH, 1, 0), at(2025, Calendar.MARCH, 31, 23)));
+    }
+
+    @Test
+    public void testCoverUsesMonthsWeeksThenDays() {
+        List<String> keys = HistoryPeriods.cover(at(2025, Calendar.FEBRUARY, 26, 9), at(2025, Calendar.APRIL, 15, 9));
+
+        assertEquals(Arrays.asList(
+                "D2025-02-26", "D2025-02-27", "D2025-02-28",
+                "M2025-03",
+                "D2025-04-01", "D2025-04-02", "D2025-04-03", "D2025-04-04", "D2025-04-05", "D2025-04-06",
+                "W2025-04-07",
+                "D2025-04-14", "D2025-04-15"), keys);
+    }
+
+    @Test
+    public void testSingleDay() {
+        assertEquals(Arrays.asList("D2025-03-05"),
+                HistoryPeriods.cover(at(2025, Calendar.MARCH, 5, 1), at(2025, Calendar.MARCH, 5, 22)));
+    }
+
+    @Test
+    public void testCoverHasNoGapsOrOverlaps() {
+        Random random = new Random(46);
+        for (int run = 0; run < 200; run++) {
+            long from = at(2024, Calendar.JANUARY, 1 + random.nextInt(700), 12);
+            long to = from + random.nextInt(400) * 24L * 3600 * 1000;
+
+            Set<String> expected = new HashSet<>();
+            Calendar day = Calendar.getInstance();
+            day.setTimeInMillis(from);
+            Calendar last = Calendar.getInstance();
+            last.setTimeInMillis(to);
+            String lastDay = format(last);
+            while (true) {
+                expected.add(format(day));
+                if (format(day).equals(lastDay)) break;
+                day.add(Calendar.DAY_OF_MONTH, 1);
+            }
+
+            Set<String> covered = new HashSet<>();
+            int coveredDays = 0;
+            for (String key : HistoryPeriods.cover(from, to)) {
+                Set<String> keyDays = days(key);
+                coveredDays += keyDays.size();
+                covered.addAll(keyDays);
+            }
+            assertEquals(expected, covered);
+            assertEquals(expected.size(), coveredDays);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.makitaxi.menu;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.makitaxi.model.FeedbackRequest;
+import com.makitaxi.model.RideRequest;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static com.makitaxi.menu.RideFixtures.rideFrom;
+import static org.junit.Assert.*;
+
+public class RideExportTest {
+
+    private static RideRequest request(String id) {
+        RideRequest request = new RideRequest("p1", 44.8, 20.46, 44.81, 20.47,
+                "Slavija", "Terazije", "BASIC", 2.5, 7);
+        request.setRequestId(id);
+        return request;
+    }
+
+    private static String export(RideExport.Format format, boolean gzip, FeedbackRequest... rides) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RideExportWriter writer = RideExport.open(out, format, gzip)) {
+            for (FeedbackRequest ride : rides) {
+                writer.write(ride, ride.getFeedbackId().equals("a") ? request("a_ride") : null);
+            }
+        }
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        if (gzip) {
+            in = new GZIPInputStream(in);
+        }
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            text.write(buffer, 0, read);
+        }
+        return new String(text.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCsvRows() throws IOException {
+        String[] lines = export(RideExport.Format.CSV, false, rideFrom("a", "Slavija"), rideFrom("b", "Slavija")).split("\r\n");
+
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("feedback_id,ride_request_id,time,timestamp,"));
+        assertEquals("a,a_ride,1970-01-01T00:00:00Z,0,p1,Ana,d1,Marko,Slavija,Terazije,BASIC,450,2.5,false,,,"
+                + "44.8,20.46,44.81,20.47,7," + RideExport.formatNumber(request("a_ride").getEstimatedPrice()), lines[1]);
+        // No stored request leaves the route columns empty
+        assertTrue(lines[2].endsWith(",false,,,,,,,,"));
+        assertEquals(RideCsvWriter.COLUMNS.length, lines[2].split(",", -1).length);
+    }
+
+    @Test
+    public void testCsvEscaping() {
+        assertEquals("Slavija", RideCsvWriter.escape("Slavija"));
+        assertEquals("\"Nemanjina 4, Beograd\"", RideCsvWriter.escape("Nemanjina 4, Beograd"));
+        assertEquals("\"Rekao je \"\"hvala\"\"\"", RideCsvWriter.escape("Rekao je \"hvala\""));
+        assertEquals("\"prvi\ndrugi\"", RideCsvWriter.escape("prvi\ndrugi"));
+        assertEquals("'=1+1", RideCsvWriter.escape("=1+1"));
+        assertEquals("", RideCsvWriter.escape(null));
+    }
+
+    @Test
+    public void testNdjsonOneObjectPerLine() throws IOException {
+        FeedbackRequest rated = rideFrom("b", "Knez \"Mihailova\"\n2");
+        rated.setSubmitted(true);
+        rated.setRating(5);
+        rated.setComment("Odlično");
+        String[] lines = export(RideExport.Format.NDJSON, false, rideFrom("a", "Slavija"), rated).split("\n");
+
+        assertEquals(2, lines.length);
+        JsonObject first = JsonParser.parseString(lines[0]).getAsJsonObject();
+        assertEquals("a", first.get("feedback_id").getAsString());
+        assertEquals(44.8, first.getAsJsonObject("route").get("pickup_latitude").getAsDouble(), 0);
+        assertFalse(first.has("rating"));
+
+        JsonObject second = JsonParser.parseString(lines[1]).getAsJsonObject();
+        assertEquals("Knez \"Mihailova\"\n2", second.get("pickup_address").getAsString());
+        assertEquals(5, second.get("rating").getAsInt());
+        assertEquals("Odlično", second.get("comment").getAsString());
+        assertFalse(second.has("route"));
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws IOException {
+        String plain = export(RideExport.Format.CSV, false, rideFrom("a", "Čukarica"), rideFrom("b", "Zvezdara"));
+        String gzipped = export(RideExport.Format.CSV, true, rideFrom("a", "Čukarica"), rideFrom("b", "Zvezdara"));
+
+        assertEquals(plain, gzipped);
+    }
+
+    @Test
+    public void testFileNames() {
+        assertEquals("MakiTaxi_Rides_1.csv", RideExport.fileName(RideExport.Format.CSV, false, 1));
+        assertEquals("MakiTaxi_Rides_1.ndjson.gz", RideExport.fileName(RideExport.Format.NDJSON, true, 1));
+        assertEquals("application/gzip", RideExport.mimeType(RideExport.Format.CSV, true));
+    }
+}
@@ -0,0 +1,58 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+
+import java.util.Random;
+
+/**
+ * Rides for the history tests. Every ride is taken by passenger "p1" from Slavija to Terazije
+ * with driver "d1" (Marko) unless a factory takes that field; the ride request id is the
+ * feedback id with "_ride" appended.
+ */
+public final class RideFixtures {
+
+    private static final String[] STREETS = {
+            "Bulevar kralja Aleksandra", "Knez Mihailova", "Немањина", "Cara Dušana", "Takovska",
+            "Šumadijska", "Đure Đakovića", "Omladinskih brigada", "Gavrila Principa"
+    };
+
+    // Generated histories end here and go back a minute per ride
+    private static final long NEWEST = 1_700_000_000_000L;
+    private static final long MINUTE_MS = 60_000L;
+
+    private RideFixtures() {
+    }
+
+    public static FeedbackRequest ride(String id, long timestamp) {
+        return ride(id, "d1", "Marko", timestamp);
+    }
+
+    public static FeedbackRequest ride(String id, String driverId, long timestamp) {
+        return ride(id, driverId, "Marko", timestamp);
+    }
+
+    public static FeedbackRequest ride(String id, String driverId, String driverName, long timestamp) {
+        return new FeedbackRequest(id, id + "_ride", "p1", driverId, "Ana", driverName,
+                "Slavija", "Terazije", 450, "BASIC", 2.5, timestamp);
+    }
+
+    public static FeedbackRequest rideFrom(String id, String pickup) {
+        return new FeedbackRequest(id, id + "_ride", "p1", "d1", "Ana", "Marko",
+                pickup, "Terazije", 450, "BASIC", 2.5, 0);
+    }
+
+    /**
+     * Ride {@code i} of a generated history, newest first, with one of 100 drivers and random
+     * streets, price and distance.
+     */
+    public static FeedbackRequest randomRide(Random random, int i) {
+        return randomRide(random, i, "driver" + random.nextInt(100), "Marko", NEWEST - i * MINUTE_MS);
+    }
+
+    public static FeedbackRequest randomRide(Random random, int i, String driverId, String driverName, long timestamp) {
+        return new FeedbackRequest("f" + i, "f" + i + "_ride", "p1", driverId, "Ana", driverName,
+                STREETS[random.nextInt(STREETS.length)] + " " + random.nextInt(200) + ", Beograd",
+                STREETS[random.nextInt(STREETS.length)] + " " + random.nextInt(200) + ", Beograd",
+                400 + random.nextInt(800), "BASIC", 1 + random.nextInt(10), timestamp);
+    }
+}
@@ -0,0 +1,106 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.makitaxi.menu.RideFixtures.ride;
+import static org.junit.Assert.*;
+
+public class RideHistoryIndexTest {
+
+    private static List<String> ids(List<FeedbackRequest> rides) {
+        List<String> ids = new ArrayList<>();
+        for (FeedbackRequest ride : rides) {
+            ids.add(ride.getFeedbackId());
+        }
+        return ids;
+    }
+
+    private static RideHistoryIndex index() {
+        return new RideHistoryIndex(Arrays.asList(
+                ride("c", "d1", "Marko", 300),
+                ride("a", "d1", "Marko", 100),
+                ride("b", "d2", "Marko", 200),
+                ride("d", "d2", "Marko", 400),
+                ride("e", "d3", "Jovan", 400)), false);
+    }
+
+    @Test
+    public void testUnfilteredNewestFirst() {
+        RideHistoryIndex index = index();
+
+        assertEquals(5, index.size());
+        // Same timestamp falls back to the id
+        assertEquals(Arrays.asList("e", "d", "c", "b", "a"), ids(index.query(0, 0, null)));
+    }
+
+    @Test
+    public void testRangeIsInclusive() {
+        RideHistoryIndex index = index();
+
+        assertEquals(Arrays.asList("c", "b"), ids(index.query(200, 300, null)));
+        assertEquals(3, index.count(0, 300, null));
+        assertEquals(3, index.count(300, 0, null));
+        assertEquals(0, index.count(301, 399, null));
+    }
+
+    @Test
+    public void testSameNameDifferentIds() {
+        RideHistoryIndex index = index();
+
+        assertEquals(Arrays.asList("c", "a"), ids(index.query(0, 0, "d1")));
+        assertEquals(Arrays.asList("d", "b"), ids(index.query(0, 0, "d2")));
+    }
+
+    @Test
+    public void testCounterpartyWithinRange() {
+        RideHistoryIndex index = index();
+
+        assertEquals(Collections.singletonList("b"), ids(index.query(150, 350, "d2")));
+        assertEquals(0, index.count(150, 250, "d1"));
+        assertEquals(0, index.count(0, 0, "unknown"));
+    }
+
+    @Test
+    public void testDriverSeesPassengers() {
+        RideHistoryIndex index = new RideHistoryIndex(Arrays.asList(
+                ride("a", "d1", "Marko", 100),
+                ride("b", "d1", "Marko", 200)), true);
+
+        assertEquals(2, index.count(0, 0, "p1"));
+        assertEquals(0, index.count(0, 0, "d1"));
+    }
+
+    @Test
+    public void testAddAndRemoveKeepOrder() {
+        RideHistoryIndex index = index();
+
+        index.add(ride("f", "d1", "Marko", 250));
+        index.add(ride("g", "d4", "Jovan", 50));
+        assertEquals(Arrays.asList("e", "d", "c", "f", "b", "a", "g"), ids(index.query(0, 0, null)));
+        assertEquals(Arrays.asList("c", "f", "a"), ids(index.query(0, 0, "d1")));
+        assertEquals(1, index.count(0, 0, "d4"));
+
+        assertTrue(index.remove(ride("c", "d1", "Marko", 300)));
+        assertFalse(index.remove(ride("c", "d1", "Marko", 300)));
+        assertTrue(index.remove(ride("g", "d4", "Jovan", 50)));
+        assertEquals(Arrays.asList("e", "d", "f", "b", "a"), ids(index.query(0, 0, null)));
+        assertEquals(Arrays.asList("f", "a"), ids(index.query(0, 0, "d1")));
+        assertEquals(0, index.count(0, 0, "d4"));
+    }
+
+    @Test
+    public void testEmpty() {
+        RideHistoryIndex index = new RideHistoryIndex(Collections.emptyList(), false);
+
+        assertEquals(0, index.size());
+        assertTrue(index.query(100, 200, "d1").isEmpty());
+        assertTrue(index.query(0, 0, null).isEmpty());
+    }
+}
@@ -0,0 +1,119 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+
+import org.junit.Test;
+
+import static com.makitaxi.menu.RideFixtures.ride;
+import static org.junit.Assert.*;
+
+public class RideHistoryModelTest {
+
+    private static RideHistoryQuery withDriver(String driverId) {
+        return new RideHistoryQuery("p1", false, 0, 0, driverId);
+    }
+
+    @Test
+    public void testCountFollowsPutAndRemove() {
+        RideHistoryModel model = new RideHistoryModel();
+        assertTrue(model.put("a", ride("a", "d1", 1000)));
+        assertTrue(model.put("b", ride("b", "d1", 1000)));
+
+        assertEquals(2, model.getVisibleCount());
+
+        assertTrue(model.remove("a"));
+        assertFalse(model.remove("a"));
+        assertEquals(1, model.getVisibleCount());
+    }
+
+    @Test
+    public void testReplaceCountsRideOnce() {
+        RideHistoryModel model = new RideHistoryModel();
+        model.put("a", ride("a", "d1", 1000));
+
+        FeedbackRequest rated = ride("a", "d1", 1000);
+        rated.setRating(5);
+        rated.setSubmitted(true);
+        assertTrue(model.put("a", rated));
+
+        assertEquals(1, model.size());
+        assertEquals(1, model.getVisibleCount());
+    }
+
+    @Test
+    public void testVisibleFollowsChangesAfterFilter() {
+        RideHistoryModel model = new RideHistoryModel();
+        model.put("a", ride("a", "d1", 1000));
+        model.setFilter(withDriver("d1"));
+
+        model.put("b", ride("b", "d1", 1000));
+        model.put("c", ride("c", "d2", 1000));
+        assertEquals(2, model.getVisible().size());
+
+        FeedbackRequest rated = ride("a", "d1", 1000);
+        rated.setSubmitted(true);
+        model.put("a", rated);
+        model.remove("b");
+        assertEquals(1, model.getVisible().size());
+        assertTrue(model.getVisible().get(0).isSubmitted());
+
+        model.setFilter(null);
+        assertEquals(2, model.getVisible().size());
+    }
+
+    @Test
+    public void testFilterRecomputesCount() {
+        RideHistoryModel model = new RideHistoryModel();
+        model.put("a", ride("a", "d1", 1000));
+        model.put("b", ride("b", "d2", 1000));
+
+        model.setFilter(withDriver("d2"));
+        assertEquals(1, model.getVisibleCount());
+        assertEquals(1, model.getVisible().size());
+        assertEquals(2, model.getAll().size());
+
+        model.setFilter(null);
+        assertEquals(2, model.getVisibleCount());
+    }
+
+    @Test
+    public void testHiddenRidesDoNotChangeVisibleList() {
+        RideHistoryModel model = new RideHistoryModel();
+        model.setFilter(withDriver("d2"));
+
+        assertFalse(model.put("a", ride("a", "d1", 1000)));
+        assertFalse(model.remove("a"));
+        assertEquals(0, model.getVisibleCount());
+
+        // A ride that leaves the filter still changes what is shown
+        model.put("b", ride("b", "d2", 1000));
+        assertTrue(model.put("b", ride("b", "d1", 1000)));
+        assertEquals(0, model.getVisibleCount());
+    }
+
+    @Test
+    public void testVisibleNewestFirstAfterChanges() {
+        RideHistoryModel model = new RideHistoryModel();
+        model.setFilter(new RideHistoryQuery("p1", false, 1000, 0, null));
+        model.put("a", ride("a", "d1", 500));
+        model.put("b", ride("b", "d1", 2000));
+        assertEquals(1, model.getVisible().size());
+
+        // Moving a ride into the range after the list was read shows it in order
+        assertTrue(model.put("a", ride("a", "d1", 3000)));
+        assertEquals(2, model.getVisibleCount());
+        assertEquals("a", model.getVisible().get(0).getFeedbackId());
+        assertEquals("b", model.getVisible().get(1).getFeedbackId());
+    }
+
+    @Test
+    public void testClear() {
+        RideHistoryModel model = new RideHistoryModel();
+        model.put("a", ride("a", "d1", 1000));
+        model.clear();
+
+        assertEquals(0, model.size());
+        assertEquals(0, model.getVisibleCount());
+        assertTrue(model.getVisible().isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+
+import org.junit.Test;
+
+import static com.makitaxi.menu.RideFixtures.ride;
+import static org.junit.Assert.*;
+
+public class RideHistoryQueryTest {
+
+    @Test
+    public void testUnfilteredSelectsOnlyUser() {
+        RideHistoryQuery query = new RideHistoryQuery("u1", false, 0, 0, null);
+
+        assertEquals("user_id = ?", query.selection());
+        assertArrayEquals(new String[]{"u1"}, query.selectionArgs());
+        assertFalse(query.isFiltered());
+    }
+
+    @Test
+    public void testArgsFollowSelectionOrder() {
+        RideHistoryQuery query = new RideHistoryQuery("u1", true, 100, 200, "p1");
+
+        assertEquals("user_id = ? AND timestamp >= ? AND timestamp <= ? AND counterparty_id = ?",
+                query.selection());
+        assertArrayEquals(new String[]{"u1", "100", "200", "p1"}, query.selectionArgs());
+    }
+
+    @Test
+    public void testCursorBreaksTimestampTiesById() {
+        RideHistoryQuery query = new RideHistoryQuery("u1", false, 0, 0, null);
+
+        assertEquals("user_id = ? AND (timestamp < ? OR (timestamp = ? AND feedback_id < ?))",
+                query.selection(150L, "f7"));
+        assertArrayEquals(new String[]{"u1", "150", "150", "f7"}, query.selectionArgs(150L, "f7"));
+    }
+
+    @Test
+    public void testMatchesUsesOtherPersonForRole() {
+        RideHistoryQuery asDriver = new RideHistoryQuery("u1", true, 0, 0, "p1");
+        RideHistoryQuery asPassenger = new RideHistoryQuery("u1", false, 0, 0, "p1");
+        FeedbackRequest feedback = ride("a", 150);
+
+        assertTrue(asDriver.matches(feedback));
+        assertFalse(asPassenger.matches(feedback));
+    }
+
+    @Test
+    public void testMatchesIdNotName() {
+        RideHistoryQuery query = new RideHistoryQuery("u1", false, 0, 0, "d2");
+
+        // Both drivers are called Marko
+        assertTrue(query.matches(ride("a", "d2", 150)));
+        assertFalse(query.matches(ride("b", "d1", 150)));
+    }
+
+    @Test
+    public void testMatchesDateRangeInclusive() {
+        RideHistoryQuery query = new RideHistoryQuery("u1", false, 100, 200, null);
+
+        assertTrue(query.matches(ride("a", 100)));
+        assertTrue(query.matches(ride("a", 200)));
+        assertFalse(query.matches(ride("a", 99)));
+        assertFalse(query.matches(ride("a", 201)));
+    }
+}
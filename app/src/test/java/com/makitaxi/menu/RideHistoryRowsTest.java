@@ -0,0 +1,81 @@
+package com.makitaxi.menu;
+
+import com.makitaxi.model.FeedbackRequest;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static com.makitaxi.menu.RideFixtures.ride;
+import static org.junit.Assert.*;
+
+public class RideHistoryRowsTest {
+
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("dd / MM / yyyy", Locale.getDefault());
+
+    private static long at(int day, int hour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2025, Calendar.MARCH, day, hour, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void testGroupsByDayNewestFirst() {
+        List<FeedbackRequest> rides = Arrays.asList(
+                ride("a", at(3, 9)),
+                ride("b", at(4, 18)),
+                ride("c", at(3, 20)),
+                ride("d", at(4, 7)));
+
+        List<RideHistoryRows.Row> rows = RideHistoryRows.build(rides, dayFormat);
+
+        assertEquals(6, rows.size());
+        assertEquals(RideHistoryRows.TYPE_DATE, rows.get(0).type);
+        assertEquals("04 / 03 / 2025", rows.get(0).key);
+        assertEquals("b", rows.get(1).key);
+        assertEquals("d", rows.get(2).key);
+        assertEquals(RideHistoryRows.TYPE_DATE, rows.get(3).type);
+        assertEquals("03 / 03 / 2025", rows.get(3).key);
+        assertEquals("c", rows.get(4).key);
+        assertEquals("a", rows.get(5).key);
+    }
+
+    @Test
+    public void testRatingChangeIsSeenDespiteInPlaceUpdate() {
+        FeedbackRequest feedback = ride("a", at(3, 9));
+        RideHistoryRows.Row before = RideHistoryRows.build(Collections.singletonList(feedback), dayFormat).get(1);
+
+        feedback.setRating(5);
+        feedback.setSubmitted(true);
+        RideHistoryRows.Row after = RideHistoryRows.build(Collections.singletonList(feedback), dayFormat).get(1);
+
+        assertTrue(before.isSameItem(after));
+        assertFalse(before.hasSameContents(after));
+    }
+
+    @Test
+    public void testUnchangedRowsMatch() {
+        List<FeedbackRequest> rides = Arrays.asList(ride("a", at(3, 9)), ride("b", at(3, 10)));
+
+        List<RideHistoryRows.Row> first = RideHistoryRows.build(rides, dayFormat);
+        List<RideHistoryRows.Row> second = RideHistoryRows.build(rides, dayFormat);
+
+        for (int i = 0; i < first.size(); i++) {
+            assertTrue(first.get(i).isSameItem(second.get(i)));
+            assertTrue(first.get(i).hasSameContents(second.get(i)));
+        }
+        // A header never matches a ride, whatever the keys
+        assertFalse(first.get(0).isSameItem(first.get(1)));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(RideHistoryRows.build(Collections.emptyList(), dayFormat).isEmpty());
+    }
+}
@@ -0,0 +1,56 @@
+package com.makitaxi.passenger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AutocompletePipelineTest {
+
+    @Test
+    public void testSpecialCharsMatchFormerRegex() {
+        String[] inputs = {"Knez Mihailova", "Knez Mihailova 5", "Bul. Oslobođenja", "Čika Ljubina",
+                "Ђорђа Ћирића", "Trg (Republike)", "Cara Dušana-", "Terazije ", "Ulica_1", "€ bar"};
+
+        for (String input : inputs) {
+            assertEquals(input, input.matches(".*[\\p{Punct}\\d].*"),
+                    AutocompletePipeline.containsSpecialChars(input));
+        }
+    }
+
+    @Test
+    public void testDebounceStartsAtMaximum() {
+        AutocompletePipeline.AdaptiveDebounce debounce = new AutocompletePipeline.AdaptiveDebounce();
+
+        assertEquals(AutocompletePipeline.AdaptiveDebounce.MAX_DELAY_MS, debounce.nextDelay(1_000));
+    }
+
+    @Test
+    public void testDebounceFollowsTypingSpeed() {
+        AutocompletePipeline.AdaptiveDebounce fast = new AutocompletePipeline.AdaptiveDebounce();
+        AutocompletePipeline.AdaptiveDebounce slow = new AutocompletePipeline.AdaptiveDebounce();
+        long fastDelay = 0;
+        long slowDelay = 0;
+        for (int i = 0; i < 10; i++) {
+            fastDelay = fast.nextDelay(i * 90L);
+            slowDelay = slow.nextDelay(i * 400L);
+        }
+
+        assertEquals(AutocompletePipeline.AdaptiveDebounce.MIN_DELAY_MS, fastDelay);
+        assertEquals(600, slowDelay);
+    }
+
+    @Test
+    public void testLongPauseDoesNotSlowDebounce() {
+        AutocompletePipeline.AdaptiveDebounce debounce = new AutocompletePipeline.AdaptiveDebounce();
+        long now = 0;
+        for (int i = 0; i < 5; i++) {
+            debounce.nextDelay(now);
+            now += 200;
+        }
+
+        // The user stops to think, then keeps typing at the same speed
+        long afterPause = debounce.nextDelay(now + 5_000);
+
+        assertEquals(300, afterPause);
+    }
+}
@@ -0,0 +1,87 @@
+package com.makitaxi.passenger;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BkTreeTest {
+
+    @Test
+    public void testDistance() {
+        assertEquals(0, BkTree.distance("knez", "knez"));
+        assertEquals(1, BkTree.distance("mihajlova", "mihailova"));
+        assertEquals(1, BkTree.distance("kenz", "knez"));
+        assertEquals(1, BkTree.distance("milosa", "milos"));
+        assertEquals(1, BkTree.distance("aleksnadra", "aleksandra"));
+        assertEquals(2, BkTree.distance("ca", "abc"));
+        assertEquals(3, BkTree.distance("", "ada"));
+        assertEquals(3, BkTree.distance("ada", ""));
+    }
+
+    @Test
+    public void testSearchFindsWordsWithinDistance() {
+        BkTree tree = new BkTree();
+        for (String word : new String[]{"knez", "kneza", "mihailova", "milosa", "milana", "kralja", "knez"}) {
+            tree.add(word);
+        }
+
+        assertEquals(6, tree.size());
+        assertEquals(Collections.singletonList("mihailova"), words(tree.search("mihajlova", 2)));
+        assertEquals(list("knez"), words(tree.search("knze", 1)));
+        assertEquals(list("knez", "kneza"), words(tree.search("knze", 2)));
+        assertTrue(tree.search("zzzz", 2).isEmpty());
+    }
+
+    @Test
+    public void testSearchMatchesLinearScan() {
+        Random random = new Random(7);
+        BkTree tree = new BkTree();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String word = randomWord(random);
+            words.add(word);
+            tree.add(word);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String query = randomWord(random);
+            List<String> expected = new ArrayList<>();
+            for (String word : words) {
+                if (BkTree.distance(query, word) <= 2 && !expected.contains(word)) {
+                    expected.add(word);
+                }
+            }
+            Collections.sort(expected);
+            assertEquals(query, expected, words(tree.search(query, 2)));
+        }
+    }
+
+    private static List<String> words(List<BkTree.Match> matches) {
+        List<String> words = new ArrayList<>();
+        for (BkTree.Match match : matches) {
+            words.add(match.word);
+        }
+        Collections.sort(words);
+        return words;
+    }
+
+    private static List<String> list(String... words) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, words);
+        return list;
+    }
+
+    private static String randomWord(Random random) {
+        int length = 4 + random.nextInt(5);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append("aeiknlmrs".charAt(random.nextInt(9)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,141 @@
+package com.makitaxi.passenger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GazetteerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Gazetteer gazetteer;
+
+    @Before
+    public void setUp() throws Exception {
+        gazetteer = Gazetteer.fromText(new StringReader(
+                "# comment\n" +
+                "Knez Mihailova, Beograd|10\n" +
+                "Kneza Miloša, Beograd|9\n" +
+                "Bulevar kralja Aleksandra, Beograd|10\n" +
+                "Kralja Milana, Beograd|9\n" +
+                "Bulevar Zorana Đinđića, Beograd|9\n" +
+                "Ada Ciganlija, Beograd|9\n"));
+    }
+
+    @Test
+    public void testPrefixSearch() {
+        List<String> results = gazetteer.search("Knez", 5);
+
+        assertEquals(2, results.size());
+        assertEquals("Knez Mihailova, Beograd", results.get(0));
+    }
+
+    @Test
+    public void testMultiWordPrefixSearch() {
+        List<String> results = gazetteer.search("knez mih", 5);
+
+        assertEquals("Knez Mihailova, Beograd", results.get(0));
+        assertFalse(results.contains("Ada Ciganlija, Beograd"));
+    }
+
+    @Test
+    public void testCyrillicAndDiacriticsInsensitive() {
+        assertEquals("Knez Mihailova, Beograd", gazetteer.search("Кнез Михаилова", 5).get(0));
+        assertEquals("Bulevar Zorana Đinđića, Beograd", gazetteer.search("zorana djindjica", 5).get(0));
+    }
+
+    @Test
+    public void testWholeNamePrefixRanksFirst() {
+        List<String> results = gazetteer.search("kralja", 5);
+
+        // "Kralja Milana" starts with the query, "Bulevar kralja Aleksandra" only contains it
+        assertEquals("Kralja Milana, Beograd", results.get(0));
+        assertTrue(results.contains("Bulevar kralja Aleksandra, Beograd"));
+    }
+
+    @Test
+    public void testTrigramFallbackForTypos() {
+        List<String> results = gazetteer.search("ciganlia", 5);
+
+        assertFalse(results.isEmpty());
+        assertEquals("Ada Ciganlija, Beograd", results.get(0));
+    }
+
+    @Test
+    public void testCorrectsMisspelledWords() {
+        assertEquals("knez mihailova", gazetteer.correct("Knez Mihajlova"));
+        assertEquals("knez mihailova", gazetteer.correct("Кнез Михајлова"));
+        assertEquals("kneza milosa 12", gazetteer.correct("Kenza Milosa 12"));
+        assertEquals("bulevar kralja aleksandra", gazetteer.correct("bulevar karlja aleksnadra"));
+    }
+
+    @Test
+    public void testCorrectionLeavesKnownAndShortWords() {
+        // Prefixes of known words are still being typed
+        assertEquals("knez mih", gazetteer.correct("knez mih"));
+        // Too short to correct safely, and too far from anything known
+        assertEquals("ado", gazetteer.correct("ado"));
+        assertEquals("slavija", gazetteer.correct("slavija"));
+    }
+
+    @Test
+    public void testCorrectionLeavesWordsWithoutCloseMatch() throws Exception {
+        Gazetteer streets = Gazetteer.fromText(new StringReader(
+                "Jovanova, Beograd|5\n" +
+                "Vidikovac, Beograd|5\n"));
+
+        // Unknown streets named after a known word are not typos of it
+        assertEquals("tose jovanovica 7", streets.correct("Toše Jovanovića 7"));
+        assertEquals("vidikovacki venac 20", streets.correct("Vidikovački venac 20"));
+        assertEquals("jovanova", streets.correct("jovanvoa"));
+    }
+
+    @Test
+    public void testSearchUsesCorrectedWords() {
+        List<String> results = gazetteer.search("knez mihajlova", 5);
+
+        assertEquals("Knez Mihailova, Beograd", results.get(0));
+    }
+
+    @Test
+    public void testAddIgnoresDuplicates() {
+        int size = gazetteer.size();
+
+        gazetteer.add("knez mihailova, beograd", 1);
+        gazetteer.add("Terazije, Beograd", 1);
+
+        assertEquals(size + 1, gazetteer.size());
+        assertEquals("Terazije, Beograd", gazetteer.search("teraz", 5).get(0));
+    }
+
+    @Test
+    public void testBinaryFileRoundTrip() throws Exception {
+        File file = tempFolder.newFile("gazetteer.bin");
+        gazetteer.writeTo(file);
+        assertFalse(gazetteer.isDirty());
+
+        Gazetteer loaded = Gazetteer.readFrom(file);
+
+        assertEquals(gazetteer.size(), loaded.size());
+        assertEquals(gazetteer.search("bulevar", 5), loaded.search("bulevar", 5));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testRejectsInvalidFile() throws Exception {
+        File file = tempFolder.newFile("broken.bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        }
+
+        Gazetteer.readFrom(file);
+    }
+}
@@ -0,0 +1,45 @@
+package com.makitaxi.passenger;
+
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+
+import static org.junit.Assert.*;
+
+public class GeocodeCacheTest {
+
+    @Test
+    public void testSpellingsShareEntry() {
+        GeocodeCache cache = new GeocodeCache(10);
+        GeoPoint point = new GeoPoint(44.8125, 20.4612);
+
+        cache.put("Kneza Miloša, Beograd, Centralna Srbija", point);
+
+        assertSame(point, cache.get("Kneza Milosa, Beograd, Centralna Srbija"));
+        assertSame(point, cache.get("  kneza miloša,  beograd, centralna srbija "));
+        assertNull(cache.get("Kneza Miloša"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        GeocodeCache cache = new GeocodeCache(2);
+        cache.put("Slavija", new GeoPoint(44.80, 20.47));
+        cache.put("Terazije", new GeoPoint(44.81, 20.46));
+        cache.get("Slavija");
+
+        cache.put("Zeleni venac", new GeoPoint(44.81, 20.45));
+
+        assertNotNull(cache.get("Slavija"));
+        assertNull(cache.get("Terazije"));
+    }
+
+    @Test
+    public void testIgnoresEmptyInput() {
+        GeocodeCache cache = new GeocodeCache(2);
+
+        cache.put(" , ", new GeoPoint(44.80, 20.47));
+        cache.put("Ada", null);
+
+        assertNull(cache.get(" , "));
+        assertNull(cache.get("Ada"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.makitaxi.passenger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class LearnedPlacesTest {
+
+    private LearnedPlaces places;
+
+    @Before
+    public void setUp() {
+        places = new LearnedPlaces(3);
+    }
+
+    @Test
+    public void testSearchMatchesWordPrefixesNewestFirst() {
+        places.learn("Bulevar Kralja Aleksandra 73");
+        places.learn("Kralja Milana 10");
+        places.learn("Terazije 5");
+
+        assertEquals(Arrays.asList("Kralja Milana 10", "Bulevar Kralja Aleksandra 73"),
+                places.search("kral", 5));
+        assertEquals(Collections.singletonList("Bulevar Kralja Aleksandra 73"),
+                places.search("kral alek", 5));
+        assertEquals(Collections.singletonList("Kralja Milana 10"), places.search("kral", 1));
+    }
+
+    @Test
+    public void testOldestNameIsEvictedPastCapacity() {
+        places.learn("Terazije 5");
+        places.learn("Slavija");
+        places.learn("Vukov spomenik");
+        places.learn("Terazije 5");
+        places.learn("Autokomanda");
+
+        assertEquals(3, places.size());
+        assertTrue(places.search("slavija", 5).isEmpty());
+        assertEquals(Collections.singletonList("Terazije 5"), places.search("teraz", 5));
+    }
+
+    @Test
+    public void testSpellingsOfTheSameNameShareAnEntry() {
+        places.learn("Knez Mihailova");
+        places.learn("KNEZ MIHAILOVA");
+
+        assertEquals(1, places.size());
+        assertEquals(Collections.singletonList("KNEZ MIHAILOVA"), places.search("knez", 5));
+    }
+
+    @Test
+    public void testJsonRoundTripKeepsOrder() throws Exception {
+        places.learn("Slavija");
+        places.learn("Studentski trg");
+        assertTrue(places.isDirty());
+
+        String json = places.toJson();
+        assertFalse(places.isDirty());
+
+        LearnedPlaces loaded = new LearnedPlaces(3);
+        loaded.loadJson(json);
+        loaded.learn("Skadarlija");
+
+        assertEquals(Arrays.asList("Skadarlija", "Studentski trg", "Slavija"), loaded.search("s", 5));
+    }
+}
@@ -0,0 +1,93 @@
+package com.makitaxi.passenger;
+
+import com.makitaxi.utils.ServiceArea;
+
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PhotonParserTest {
+
+    private static String feature(String name, String city, String country) {
+        return feature(name, city, country, 44.81, 20.46);
+    }
+
+    private static String feature(String name, String city, String country, double lat, double lon) {
+        return "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[" + lon + "," + lat + "]},"
+                + "\"properties\":{\"osm_id\":123,\"name\":\"" + name + "\",\"city\":\"" + city + "\","
+                + "\"state\":\"Централна Србија\",\"country\":\"" + country + "\",\"extent\":[20.4,44.8,20.5,44.7]}}";
+    }
+
+    @Test
+    public void testKeepsOnlyBelgradeFeatures() throws Exception {
+        String json = "{\"type\":\"FeatureCollection\",\"features\":["
+                + feature("Кнез Михаилова", "Београд", "Србија") + ","
+                + feature("Кнез Михаилова", "Нови Сад", "Србија") + ","
+                + feature("Теразије", "Београд", "Србија") + ","
+                + feature("Теразије", "Београд", "Србија")
+                + "]}";
+
+        PhotonParser.Result result = PhotonParser.parse(new StringReader(json));
+
+        assertEquals(Arrays.asList(
+                "Knez Mihailova, Beograd, Centralna Srbija",
+                "Terazije, Beograd, Centralna Srbija"), result.suggestions);
+        assertEquals(4, result.featuresRead);
+    }
+
+    @Test
+    public void testMissingAndNullProperties() throws Exception {
+        String json = "{\"features\":[{\"properties\":{\"name\":null,\"city\":\"Београд\",\"country\":\"Србија\","
+                + "\"postcode\":{\"x\":1}}},{\"geometry\":null},{\"properties\":{\"city\":42}}],\"type\":\"FeatureCollection\"}";
+
+        PhotonParser.Result result = PhotonParser.parse(new StringReader(json));
+
+        assertEquals(Arrays.asList(", Beograd"), result.suggestions);
+        assertEquals(3, result.featuresRead);
+    }
+
+    @Test
+    public void testNoFeatures() throws Exception {
+        PhotonParser.Result result = PhotonParser.parse(new StringReader("{\"type\":\"FeatureCollection\"}"));
+
+        assertTrue(result.suggestions.isEmpty());
+        assertEquals(0, result.featuresRead);
+    }
+
+    @Test
+    public void testReadsLocationsAndDropsFeaturesOutsideArea() throws Exception {
+        String json = "{\"features\":["
+                + feature("Аутокоманда", "Београд", "Србија", 44.7900, 20.4700) + ","
+                + feature("Београдска", "Београд", "Србија", 45.2671, 19.8335) + ","
+                + "{\"properties\":{\"name\":\"Ада\",\"city\":\"Београд\",\"country\":\"Србија\"},"
+                + "\"geometry\":{\"coordinates\":[20.39,44.78,85.0],\"type\":\"Point\"}}"
+                + "]}";
+
+        PhotonParser.Result result = PhotonParser.parse(new StringReader(json), ServiceArea.BELGRADE);
+
+        assertEquals(Arrays.asList("Autokomanda, Beograd, Centralna Srbija", "Ada, Beograd"), result.suggestions);
+        assertEquals(44.79, result.locations.get(0).getLatitude(), 1e-9);
+        assertEquals(20.39, result.locations.get(1).getLongitude(), 1e-9);
+    }
+
+    @Test
+    public void testRankedByDistanceFromOrigin() throws Exception {
+        String json = "{\"features\":["
+                + feature("Војводе Степе", "Београд", "Србија", 44.7400, 20.4800) + ","
+                + feature("Војводе Степе Степановића", "Београд", "Србија", 44.7420, 20.4810) + ","
+                + feature("Војводе Мишића", "Београд", "Србија", 44.8200, 20.4200)
+                + "]}";
+        PhotonParser.Result result = PhotonParser.parse(new StringReader(json));
+
+        List<String> ranked = result.rankedBy(new GeoPoint(44.8200, 20.4200));
+
+        assertEquals("Vojvode Mišića, Beograd, Centralna Srbija", ranked.get(0));
+        assertEquals("Vojvode Stepe, Beograd, Centralna Srbija", ranked.get(1));
+        assertSame(result.suggestions, result.rankedBy(null));
+    }
+}
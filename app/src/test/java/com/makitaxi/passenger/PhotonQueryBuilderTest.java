@@ -0,0 +1,49 @@
+package com.makitaxi.passenger;
+
+import com.makitaxi.utils.ServiceArea;
+
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.*;
+
+public class PhotonQueryBuilderTest {
+
+    @Test
+    public void testViewportInsideAreaBiasesQuery() {
+        HttpUrl url = new PhotonQueryBuilder("knez mihailova", ServiceArea.BELGRADE)
+                .limit(15)
+                .viewport(new GeoPoint(44.8125, 20.4612), 16.4)
+                .build();
+
+        assertEquals("knez mihailova", url.queryParameter("q"));
+        assertEquals("15", url.queryParameter("limit"));
+        assertEquals("20.2000,44.6500,20.6200,44.9500", url.queryParameter("bbox"));
+        assertEquals("44.81250", url.queryParameter("lat"));
+        assertEquals("20.46120", url.queryParameter("lon"));
+        assertEquals("16", url.queryParameter("zoom"));
+    }
+
+    @Test
+    public void testViewportOutsideAreaFallsBackToAreaCenter() {
+        PhotonQueryBuilder builder = new PhotonQueryBuilder("slavija", ServiceArea.BELGRADE)
+                .viewport(new GeoPoint(45.2671, 19.8335), 14);
+
+        HttpUrl url = builder.build();
+
+        assertEquals(ServiceArea.BELGRADE.getCenter().getLatitude(), builder.getBiasPoint().getLatitude(), 0);
+        assertEquals("44.80000", url.queryParameter("lat"));
+        assertEquals("20.41000", url.queryParameter("lon"));
+        assertNull(url.queryParameter("zoom"));
+    }
+
+    @Test
+    public void testWithoutViewport() {
+        HttpUrl url = new PhotonQueryBuilder("ada", ServiceArea.BELGRADE).build();
+
+        assertNotNull(url.queryParameter("bbox"));
+        assertEquals("44.80000", url.queryParameter("lat"));
+    }
+}
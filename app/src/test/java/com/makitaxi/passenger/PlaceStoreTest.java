@@ -0,0 +1,142 @@
+package com.makitaxi.passenger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PlaceStoreTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private static final GeoPoint HOME = new GeoPoint(44.7866, 20.4489);
+    private static final GeoPoint WORK = new GeoPoint(44.8125, 20.4612);
+    private static final GeoPoint AIRPORT = new GeoPoint(44.8184, 20.3091);
+
+    private long now;
+    private PlaceStore store;
+
+    @Before
+    public void setUp() {
+        now = 1_000_000_000L;
+        store = new PlaceStore(3, () -> now);
+    }
+
+    private static List<String> names(List<PlaceStore.Place> places) {
+        List<String> names = new ArrayList<>();
+        for (PlaceStore.Place place : places) {
+            names.add(place.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void testFrequentPlacesRankFirst() {
+        store.record("Aerodrom Nikola Tesla", AIRPORT);
+        store.record("Kneza Miloša 10, Beograd", WORK);
+        store.record("Kneza Miloša 10, Beograd", WORK);
+
+        assertEquals(Arrays.asList("Kneza Miloša 10, Beograd", "Aerodrom Nikola Tesla"), names(store.top(5)));
+        assertEquals(1, store.top(1).size());
+    }
+
+    @Test
+    public void testOldVisitsDecay() {
+        store.record("Aerodrom Nikola Tesla", AIRPORT);
+        store.record("Aerodrom Nikola Tesla", AIRPORT);
+        store.record("Aerodrom Nikola Tesla", AIRPORT);
+
+        // Three visits two half-lives ago weigh less than one today
+        now += 2 * PlaceStore.HALF_LIFE_MS + DAY;
+        store.record("Bulevar oslobođenja 5", HOME);
+
+        assertEquals(Arrays.asList("Bulevar oslobođenja 5", "Aerodrom Nikola Tesla"), names(store.top(5)));
+    }
+
+    @Test
+    public void testFavoritesComeFirst() {
+        store.record("Kneza Miloša 10, Beograd", WORK);
+        store.record("Kneza Miloša 10, Beograd", WORK);
+        store.record("Aerodrom Nikola Tesla", AIRPORT);
+
+        assertTrue(store.setFavorite("aerodrom nikola tesla", true));
+        assertFalse(store.setFavorite("Slavija", true));
+
+        assertEquals("Aerodrom Nikola Tesla", store.top(5).get(0).getName());
+        assertTrue(store.top(5).get(0).isFavorite());
+    }
+
+    @Test
+    public void testSpellingsShareEntryAndLatestLocationWins() {
+        GeoPoint moved = new GeoPoint(44.8126, 20.4613);
+        store.record("Kneza Miloša 10, Beograd", WORK);
+        store.record("Kneza Milosa 10, Beograd", moved);
+
+        assertEquals(1, store.size());
+        assertEquals(moved.getLatitude(), store.getLocation("KNEZA MILOŠA 10, BEOGRAD").getLatitude(), 1e-9);
+        assertNull(store.getLocation("Kneza Miloša"));
+    }
+
+    @Test
+    public void testSearchMatchesWordPrefixes() {
+        store.record("Kneza Miloša 10, Beograd", WORK);
+        store.record("Bulevar oslobođenja 5", HOME);
+
+        assertEquals(Arrays.asList("Kneza Miloša 10, Beograd"), names(store.search("milos kn", 5)));
+        assertEquals(Arrays.asList("Bulevar oslobođenja 5"), names(store.search("oslobodj", 5)));
+        assertTrue(store.search("ada", 5).isEmpty());
+        assertTrue(store.search("  ", 5).isEmpty());
+    }
+
+    @Test
+    public void testWeakestNonFavoriteIsEvicted() {
+        store.record("Aerodrom Nikola Tesla", AIRPORT);
+        store.setFavorite("Aerodrom Nikola Tesla", true);
+        store.record("Kneza Miloša 10, Beograd", WORK);
+        store.record("Kneza Miloša 10, Beograd", WORK);
+        store.record("Bulevar oslobođenja 5", HOME);
+
+        store.record("Slavija", new GeoPoint(44.8026, 20.4664));
+
+        assertEquals(3, store.size());
+        assertNotNull(store.getLocation("Aerodrom Nikola Tesla"));
+        assertNotNull(store.getLocation("Kneza Miloša 10, Beograd"));
+        assertNotNull(store.getLocation("Slavija"));
+        assertNull(store.getLocation("Bulevar oslobođenja 5"));
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        store.record("Kneza Miloša 10, Beograd", WORK);
+        store.record("Kneza Miloša 10, Beograd", WORK);
+        store.record("Aerodrom Nikola Tesla", AIRPORT);
+        store.setFavorite("Aerodrom Nikola Tesla", true);
+        assertTrue(store.isDirty());
+
+        String json = store.toJson();
+        assertFalse(store.isDirty());
+
+        PlaceStore restored = new PlaceStore(3, () -> now);
+        restored.loadJson(json);
+
+        assertEquals(names(store.top(5)), names(restored.top(5)));
+        assertTrue(restored.top(5).get(0).isFavorite());
+        assertEquals(WORK.getLongitude(), restored.getLocation("Kneza Miloša 10, Beograd").getLongitude(), 1e-9);
+        assertFalse(restored.isDirty());
+    }
+
+    @Test
+    public void testIgnoresMissingInput() {
+        store.record(null, HOME);
+        store.record("Slavija", null);
+        store.record(" , ", HOME);
+
+        assertEquals(0, store.size());
+        assertFalse(store.isDirty());
+    }
+}
@@ -0,0 +1,78 @@
+package com.makitaxi.passenger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+
+import static org.junit.Assert.*;
+
+public class ReverseGeocodeCacheTest {
+
+    private static final long TTL = 60_000;
+
+    private long now;
+    private ReverseGeocodeCache cache;
+
+    @Before
+    public void setUp() {
+        now = 1_000_000;
+        cache = new ReverseGeocodeCache(8, 3, TTL, () -> now);
+    }
+
+    @Test
+    public void testNearbyPointsShareEntry() {
+        cache.put(new GeoPoint(44.81654, 20.46009), "Knez Mihailova 10, Beograd");
+
+        // A few meters away, same geohash cell
+        assertEquals("Knez Mihailova 10, Beograd", cache.get(new GeoPoint(44.81656, 20.46011)));
+        // One street over
+        assertNull(cache.get(new GeoPoint(44.81754, 20.46209)));
+    }
+
+    @Test
+    public void testEntriesExpire() {
+        GeoPoint slavija = new GeoPoint(44.80260, 20.46640);
+        cache.put(slavija, "Slavija, Beograd");
+
+        now += TTL + 1;
+
+        assertNull(cache.get(slavija));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        GeoPoint a = new GeoPoint(44.78, 20.41);
+        GeoPoint b = new GeoPoint(44.79, 20.42);
+        GeoPoint c = new GeoPoint(44.80, 20.43);
+        cache.put(a, "A");
+        cache.put(b, "B");
+        cache.put(c, "C");
+        cache.get(a);
+
+        cache.put(new GeoPoint(44.81, 20.44), "D");
+
+        assertEquals("A", cache.get(a));
+        assertNull(cache.get(b));
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        GeoPoint old = new GeoPoint(44.78, 20.41);
+        GeoPoint terazije = new GeoPoint(44.81306, 20.46111);
+        cache.put(old, "Staro");
+        now += TTL / 2;
+        cache.put(terazije, "Terazije, Beograd");
+        String json = cache.toJson();
+        assertFalse(cache.isDirty());
+
+        now += TTL / 2 + 1;
+        ReverseGeocodeCache restored = new ReverseGeocodeCache(8, 3, TTL, () -> now);
+        restored.loadJson(json);
+        ReverseGeocodeCache coarser = new ReverseGeocodeCache(7, 3, TTL, () -> now);
+        coarser.loadJson(json);
+
+        assertNull(restored.get(old));
+        assertEquals("Terazije, Beograd", restored.get(terazije));
+        assertNull(coarser.get(terazije));
+    }
+}
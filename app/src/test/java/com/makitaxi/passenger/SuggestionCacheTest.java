@@ -0,0 +1,90 @@
+package com.makitaxi.passenger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SuggestionCacheTest {
+
+    private static final long TTL = 60_000;
+
+    private long now;
+    private SuggestionCache cache;
+
+    @Before
+    public void setUp() {
+        now = 1_000_000;
+        cache = new SuggestionCache(3, TTL, () -> now);
+    }
+
+    @Test
+    public void testExactHit() {
+        cache.put("Knez", Arrays.asList("Knez Mihailova, Beograd", "Kneza Miloša, Beograd"), true);
+
+        assertEquals(Arrays.asList("Knez Mihailova, Beograd", "Kneza Miloša, Beograd"), cache.get("knez", 5));
+        assertEquals(1, cache.get("KNEZ", 1).size());
+    }
+
+    @Test
+    public void testLongerQueryFilteredFromExhaustivePrefix() {
+        cache.put("knez", Arrays.asList("Knez Mihailova, Beograd", "Kneza Miloša, Beograd", "Knez Danilova, Beograd"), true);
+
+        assertEquals(Arrays.asList("Knez Mihailova, Beograd"), cache.get("Knez Mih", 5));
+        assertEquals(Arrays.asList("Kneza Miloša, Beograd"), cache.get("kneza mil", 5));
+        assertTrue(cache.get("knez xyz", 5).isEmpty());
+    }
+
+    @Test
+    public void testNonExhaustivePrefixOnlyUsedWhenEnoughResults() {
+        cache.put("bul", Arrays.asList("Bulevar kralja Aleksandra, Beograd", "Bulevar oslobođenja, Beograd",
+                "Bulevar Mihajla Pupina, Beograd"), false);
+
+        // Photon may know more "bulevar m..." streets than this truncated list
+        assertNull(cache.get("bulevar m", 5));
+        assertEquals(1, cache.get("bulevar m", 1).size());
+    }
+
+    @Test
+    public void testEntriesExpire() {
+        cache.put("slavija", Arrays.asList("Slavija, Beograd"), true);
+
+        now += TTL + 1;
+
+        assertNull(cache.get("slavija", 5));
+        assertNull(cache.get("slavija trg", 5));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        cache.put("aa", Arrays.asList("Ada Ciganlija, Beograd"), true);
+        cache.put("bb", Arrays.asList("Banovo brdo, Beograd"), true);
+        cache.put("cc", Arrays.asList("Cvetni trg, Beograd"), true);
+        cache.get("aa", 5);
+
+        cache.put("dd", Arrays.asList("Dorćol, Beograd"), true);
+
+        assertNotNull(cache.get("aa", 5));
+        assertNull(cache.get("bb", 5));
+    }
+
+    @Test
+    public void testJsonRoundTripSkipsExpired() throws Exception {
+        cache.put("old", Arrays.asList("Starine Novaka, Beograd"), true);
+        now += TTL / 2;
+        cache.put("terazije", Arrays.asList("Terazije, Beograd"), false);
+        String json = cache.toJson();
+        assertFalse(cache.isDirty());
+
+        now += TTL / 2 + 1;
+        SuggestionCache restored = new SuggestionCache(3, TTL, () -> now);
+        restored.loadJson(json);
+
+        assertNull(restored.get("old", 5));
+        List<String> restoredResult = restored.get("terazije", 5);
+        assertEquals(Arrays.asList("Terazije, Beograd"), restoredResult);
+    }
+}
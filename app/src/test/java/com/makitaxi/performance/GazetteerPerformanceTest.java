@@ -0,0 +1,121 @@
+package com.makitaxi.performance;
+
+import com.makitaxi.passenger.Gazetteer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class GazetteerPerformanceTest {
+
+    private static final int NUM_PLACES = 20000;
+    private static final int NUM_QUERIES = 500;
+    private static final double MAX_AVERAGE_SEARCH_MS = 5.0;
+
+    private static final String[] WORDS = {
+            "Bulevar", "Kralja", "Vojvode", "Cara", "Kneza", "Trg", "Ulica", "Partizanska",
+            "Nemanjina", "Takovska", "Resavska", "Makedonska", "Gagarina", "Omladinskih", "Brigada"
+    };
+
+    private Gazetteer gazetteer;
+    private String[] queries;
+
+    @Before
+    public void setup() {
+        Random random = new Random(42);
+        System.out.println("\n=== Generating gazetteer with " + NUM_PLACES + " places ===");
+
+        long startTime = System.nanoTime();
+        gazetteer = new Gazetteer();
+        for (int i = 0; i < NUM_PLACES; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i + ", Beograd";
+            gazetteer.add(name, random.nextInt(10));
+        }
+        System.out.printf("Index built in %.1f ms%n", (System.nanoTime() - startTime) / 1_000_000.0);
+
+        queries = new String[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)].toLowerCase();
+            String prefix = word.substring(0, 2 + random.nextInt(word.length() - 1));
+            queries[i] = i % 3 == 0 ? prefix + " " + random.nextInt(100) : prefix;
+        }
+    }
+
+    @Test
+    public void testSearchLatency() {
+        System.out.println("\n=== Gazetteer Search Performance Test ===");
+
+        // Warm up
+        for (String query : queries) {
+            gazetteer.search(query, 5);
+        }
+
+        long totalTime = 0;
+        long maxTime = 0;
+        for (String query : queries) {
+            long startTime = System.nanoTime();
+            gazetteer.search(query, 5);
+            long elapsed = System.nanoTime() - startTime;
+            totalTime += elapsed;
+            maxTime = Math.max(maxTime, elapsed);
+        }
+
+        double averageMs = totalTime / 1_000_000.0 / NUM_QUERIES;
+        System.out.printf("Average search time: %.3f ms%n", averageMs);
+        System.out.printf("Max search time: %.3f ms%n", maxTime / 1_000_000.0);
+
+        assertTrue("Average search time should be under " + MAX_AVERAGE_SEARCH_MS + " ms",
+                averageMs < MAX_AVERAGE_SEARCH_MS);
+    }
+
+    @Test
+    public void testMisspelledSearchLatency() {
+        System.out.println("\n=== Gazetteer Misspelled Search Performance Test ===");
+
+        // Swap two letters in the middle of a full word, which no prefix scan can match.
+        // Words under four letters are never corrected, so they are left out.
+        Random random = new Random(7);
+        String[] misspelled = new String[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            char[] word;
+            do {
+                word = WORDS[random.nextInt(WORDS.length)].toLowerCase().toCharArray();
+            } while (word.length < 4);
+            int position = 1 + random.nextInt(word.length - 2);
+            char swapped = word[position];
+            word[position] = word[position + 1];
+            word[position + 1] = swapped;
+            misspelled[i] = new String(word);
+        }
+
+        for (String query : misspelled) {
+            gazetteer.search(query, 5);
+        }
+
+        long totalTime = 0;
+        long maxTime = 0;
+        int found = 0;
+        for (String query : misspelled) {
+            long startTime = System.nanoTime();
+            if (!gazetteer.search(query, 5).isEmpty()) found++;
+            long elapsed = System.nanoTime() - startTime;
+            totalTime += elapsed;
+            maxTime = Math.max(maxTime, elapsed);
+        }
+
+        double averageMs = totalTime / 1_000_000.0 / NUM_QUERIES;
+        System.out.printf("Average search time: %.3f ms%n", averageMs);
+        System.out.printf("Max search time: %.3f ms%n", maxTime / 1_000_000.0);
+        System.out.printf("Queries with results: %d/%d%n", found, NUM_QUERIES);
+
+        assertEquals(NUM_QUERIES, found);
+        assertTrue("Average search time should be under " + MAX_AVERAGE_SEARCH_MS + " ms",
+                averageMs < MAX_AVERAGE_SEARCH_MS);
+    }
+}
@@ -0,0 +1,86 @@
+package com.makitaxi.performance;
+
+import com.makitaxi.menu.RideExport;
+import com.makitaxi.menu.RideExportWriter;
+import com.makitaxi.menu.RideFixtures;
+import com.makitaxi.model.FeedbackRequest;
+import com.makitaxi.model.RideRequest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class RideExportPerformanceTest {
+
+    private static final int NUM_RIDES = 20000;
+    private static final long MAX_EXPORT_MS = 5000;
+    // What an export may keep while writing, well below the size of the rides it writes
+    private static final long MAX_RETAINED_BYTES = 2 * 1024 * 1024;
+
+    private final Random random = new Random(42);
+
+    private FeedbackRequest ride(int i) {
+        FeedbackRequest ride = RideFixtures.randomRide(random, i);
+        ride.setSubmitted(random.nextBoolean());
+        ride.setRating(1 + random.nextInt(5));
+        ride.setComment("Vožnja, \"odlična\"");
+        return ride;
+    }
+
+    private RideRequest request(FeedbackRequest ride) {
+        RideRequest request = new RideRequest(ride.getPassengerId(), 44.8 + random.nextDouble() / 10, 20.4 + random.nextDouble() / 10,
+                44.8 + random.nextDouble() / 10, 20.4 + random.nextDouble() / 10,
+                ride.getPickupAddress(), ride.getDropoffAddress(), "BASIC", ride.getDistance(), 5 + random.nextInt(30));
+        request.setRequestId(ride.getRideRequestId());
+        return request;
+    }
+
+    private void measure(RideExport.Format format, boolean gzip) throws IOException {
+        File file = File.createTempFile("ride_export", "." + format.name().toLowerCase());
+        file.deleteOnExit();
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long memoryBefore = runtime.totalMemory() - runtime.freeMemory();
+        long maxRetained = 0;
+
+        long startTime = System.nanoTime();
+        try (RideExportWriter writer = RideExport.open(new FileOutputStream(file), format, gzip)) {
+            for (int i = 0; i < NUM_RIDES; i++) {
+                // Rides are made as they are written, as when read from the store a chunk at a time
+                FeedbackRequest ride = ride(i);
+                writer.write(ride, i % 4 == 0 ? null : request(ride));
+                if (i % 5000 == 0) {
+                    System.gc();
+                    maxRetained = Math.max(maxRetained, runtime.totalMemory() - runtime.freeMemory() - memoryBefore);
+                }
+            }
+        }
+        long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+
+        System.out.printf("%s%s: %d rides in %d ms, %.1f KB, max retained %.1f KB%n", format, gzip ? " (gzip)" : "",
+                NUM_RIDES, elapsedMs, file.length() / 1024.0, maxRetained / 1024.0);
+
+        assertTrue("Export should be written in under " + MAX_EXPORT_MS + " ms", elapsedMs < MAX_EXPORT_MS);
+        assertTrue("Memory retained while writing should stay under " + MAX_RETAINED_BYTES + " bytes",
+                maxRetained < MAX_RETAINED_BYTES);
+    }
+
+    @Test
+    public void testExportThroughput() throws IOException {
+        System.out.println("\n=== Ride Export Performance Test ===");
+
+        for (RideExport.Format format : RideExport.Format.values()) {
+            measure(format, false);
+            measure(format, true);
+        }
+    }
+}
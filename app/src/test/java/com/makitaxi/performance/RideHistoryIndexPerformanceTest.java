@@ -0,0 +1,138 @@
+package com.makitaxi.performance;
+
+import com.makitaxi.menu.RideFixtures;
+import com.makitaxi.menu.RideHistoryIndex;
+import com.makitaxi.model.FeedbackRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class RideHistoryIndexPerformanceTest {
+
+    private static final int NUM_RIDES = 10000;
+    private static final int NUM_DRIVERS = 200;
+    private static final int NUM_QUERIES = 1000;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final long START = 1_700_000_000_000L;
+    private static final double MAX_AVERAGE_QUERY_MS = 0.5;
+    private static final int NUM_UPDATES = 1000;
+    private static final int NUM_REBUILDS = 20;
+    private static final double MAX_AVERAGE_UPDATE_MS = 0.5;
+
+    private List<FeedbackRequest> rides;
+    private RideHistoryIndex index;
+    private long[][] ranges;
+    private String[] drivers;
+
+    @Before
+    public void setup() {
+        Random random = new Random(42);
+        System.out.println("\n=== Generating history with " + NUM_RIDES + " rides ===");
+
+        rides = new ArrayList<>(NUM_RIDES);
+        for (int i = 0; i < NUM_RIDES; i++) {
+            String driverId = "driver" + random.nextInt(NUM_DRIVERS);
+            // Some drivers share a name, which must not merge their rides
+            rides.add(RideFixtures.randomRide(random, i, driverId, "Driver " + random.nextInt(NUM_DRIVERS / 4),
+                    START + (long) (random.nextDouble() * 730 * DAY_MS)));
+        }
+
+        long startTime = System.nanoTime();
+        index = new RideHistoryIndex(rides, false);
+        System.out.printf("Index built in %.1f ms%n", (System.nanoTime() - startTime) / 1_000_000.0);
+
+        ranges = new long[NUM_QUERIES][2];
+        drivers = new String[NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            long from = START + (long) (random.nextDouble() * 700 * DAY_MS);
+            ranges[i][0] = from;
+            ranges[i][1] = from + (1 + random.nextInt(60)) * DAY_MS;
+            drivers[i] = "driver" + random.nextInt(NUM_DRIVERS);
+        }
+    }
+
+    @Test
+    public void testFilterLatency() {
+        System.out.println("\n=== Ride History Filter Performance Test ===");
+
+        // Warm up
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            index.query(ranges[i][0], ranges[i][1], drivers[i]);
+            scan(ranges[i][0], ranges[i][1], drivers[i]);
+        }
+
+        long indexTime = 0;
+        long scanTime = 0;
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            long startTime = System.nanoTime();
+            int indexed = index.query(ranges[i][0], ranges[i][1], drivers[i]).size();
+            indexTime += System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            int scanned = scan(ranges[i][0], ranges[i][1], drivers[i]).size();
+            scanTime += System.nanoTime() - startTime;
+
+            assertEquals(scanned, indexed);
+        }
+
+        double indexMs = indexTime / 1_000_000.0 / NUM_QUERIES;
+        double scanMs = scanTime / 1_000_000.0 / NUM_QUERIES;
+        System.out.printf("Average indexed query time: %.4f ms%n", indexMs);
+        System.out.printf("Average full scan time: %.4f ms%n", scanMs);
+        System.out.printf("Speedup: %.1fx%n", scanMs / indexMs);
+
+        assertTrue("Average filter time should be under " + MAX_AVERAGE_QUERY_MS + " ms",
+                indexMs < MAX_AVERAGE_QUERY_MS);
+        assertTrue("Index should be faster than a full scan", indexMs < scanMs);
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        System.out.println("\n=== Ride History Index Update Performance Test ===");
+
+        // Each update replaces a ride, as a rating change does, and is followed by a read
+        long startTime = System.nanoTime();
+        for (int i = 0; i < NUM_UPDATES; i++) {
+            FeedbackRequest ride = rides.get(i * 7 % NUM_RIDES);
+            index.remove(ride);
+            ride.setSubmitted(true);
+            index.add(ride);
+            index.count(ranges[i % NUM_QUERIES][0], ranges[i % NUM_QUERIES][1], null);
+        }
+        double updateMs = (System.nanoTime() - startTime) / 1_000_000.0 / NUM_UPDATES;
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < NUM_REBUILDS; i++) {
+            new RideHistoryIndex(rides, false);
+        }
+        double rebuildMs = (System.nanoTime() - startTime) / 1_000_000.0 / NUM_REBUILDS;
+
+        System.out.printf("Average update time: %.4f ms%n", updateMs);
+        System.out.printf("Average rebuild time: %.4f ms%n", rebuildMs);
+
+        assertEquals(NUM_RIDES, index.size());
+        assertEquals(NUM_RIDES, index.query(0, 0, null).size());
+        assertTrue("Average update should be under " + MAX_AVERAGE_UPDATE_MS + " ms", updateMs < MAX_AVERAGE_UPDATE_MS);
+        assertTrue("Updating should be faster than rebuilding", updateMs < rebuildMs);
+    }
+
+    // What filtering cost before the index: every ride checked against every criterion
+    private List<FeedbackRequest> scan(long from, long to, String driverId) {
+        List<FeedbackRequest> result = new ArrayList<>();
+        for (FeedbackRequest ride : rides) {
+            if (ride.getTimestamp() >= from && ride.getTimestamp() <= to && driverId.equals(ride.getDriverId())) {
+                result.add(ride);
+            }
+        }
+        return result;
+    }
+}
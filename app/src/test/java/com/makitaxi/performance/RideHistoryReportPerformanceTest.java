@@ -0,0 +1,69 @@
+package com.makitaxi.performance;
+
+import com.makitaxi.menu.RideFixtures;
+import com.makitaxi.menu.RideHistoryReport;
+import com.makitaxi.menu.RideHistoryStore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class RideHistoryReportPerformanceTest {
+
+    private static final int NUM_RIDES = 10000;
+    private static final long MAX_REPORT_MS = 5000;
+    // What the report may keep while writing, well below the size of the rides it writes
+    private static final long MAX_RETAINED_BYTES = 2 * 1024 * 1024;
+
+    private Random random;
+
+    @Before
+    public void setup() {
+        random = new Random(42);
+    }
+
+    @Test
+    public void testLargeReport() throws IOException {
+        System.out.println("\n=== Ride History Report Performance Test ===");
+        File file = File.createTempFile("ride_report", ".pdf");
+        file.deleteOnExit();
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long memoryBefore = runtime.totalMemory() - runtime.freeMemory();
+        long maxRetained = 0;
+
+        long startTime = System.nanoTime();
+        RideHistoryReport report = new RideHistoryReport(new FileOutputStream(file), true,
+                new RideHistoryStore.Totals(NUM_RIDES, NUM_RIDES * 800.0, NUM_RIDES * 5.0));
+        for (int i = 0; i < NUM_RIDES; i++) {
+            // Rides are made as they are written, as when read from the store a chunk at a time
+            report.write(RideFixtures.randomRide(random, i), null);
+            if (i % 2000 == 0) {
+                System.gc();
+                maxRetained = Math.max(maxRetained, runtime.totalMemory() - runtime.freeMemory() - memoryBefore);
+            }
+        }
+        report.close();
+        long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+
+        System.out.printf("Wrote %d rides on %d pages in %d ms%n", NUM_RIDES, report.getPageCount(), elapsedMs);
+        System.out.printf("File size: %.1f KB%n", file.length() / 1024.0);
+        System.out.printf("Max memory retained while writing: %.1f KB%n", maxRetained / 1024.0);
+
+        // 12 rows under the summary on the first page, 24 on every other
+        assertEquals(1 + (NUM_RIDES - 12 + 23) / 24, report.getPageCount());
+        assertTrue("Report should be written in under " + MAX_REPORT_MS + " ms", elapsedMs < MAX_REPORT_MS);
+        assertTrue("Memory retained while writing should stay under " + MAX_RETAINED_BYTES + " bytes",
+                maxRetained < MAX_RETAINED_BYTES);
+    }
+}
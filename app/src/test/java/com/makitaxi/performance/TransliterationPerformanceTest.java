@@ -0,0 +1,161 @@
+package com.makitaxi.performance;
+
+import com.makitaxi.utils.Transliterator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.text.Normalizer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the table-driven Transliterator with the two implementations it replaced:
+ * the chained String.replace in TextUtils and the String[][] scan in LocationService.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TransliterationPerformanceTest {
+
+    private static final int NUM_STRINGS = 2000;
+    private static final int ITERATIONS = 20;
+
+    private static final String[] SAMPLES = {
+            "Кнез Михаилова", "Булевар краља Александра", "Ђорђа Станојевића", "Џорџа Вашингтона",
+            "Љубе Ненадовића", "Његошева", "Шафарикова", "Ћирила и Методија", "Жоржа Клемансоа",
+            "Knez Mihailova", "Čika Ljubina", "Beograd, Centralna Srbija", "Трг Републике 5"
+    };
+
+    private String[] corpus;
+
+    @Before
+    public void setup() {
+        Random random = new Random(7);
+        corpus = new String[NUM_STRINGS];
+        for (int i = 0; i < NUM_STRINGS; i++) {
+            corpus[i] = SAMPLES[random.nextInt(SAMPLES.length)] + ", " + SAMPLES[random.nextInt(SAMPLES.length)];
+        }
+    }
+
+    @Test
+    public void testMatchesReplacedImplementations() {
+        for (String text : corpus) {
+            assertEquals(legacyTransformToLatin(text), Transliterator.ASCII_LATIN.transliterate(text));
+            assertEquals(legacyCyrillicToSerbianLatin(text), Transliterator.SERBIAN_LATIN.transliterate(text));
+        }
+    }
+
+    @Test
+    public void testTransliterationPerformance() {
+        System.out.println("\n=== Transliteration Performance Test ===");
+        System.out.println(NUM_STRINGS + " strings x " + ITERATIONS + " iterations");
+
+        long legacyAscii = measure(() -> {
+            for (String text : corpus) legacyTransformToLatin(text);
+        });
+        long tableAscii = measure(() -> {
+            for (String text : corpus) Transliterator.ASCII_LATIN.transliterate(text);
+        });
+        long legacySerbian = measure(() -> {
+            for (String text : corpus) legacyCyrillicToSerbianLatin(text);
+        });
+        long tableSerbian = measure(() -> {
+            for (String text : corpus) Transliterator.SERBIAN_LATIN.transliterate(text);
+        });
+
+        System.out.printf("TextUtils replace chain:      %.2f ms%n", legacyAscii / 1_000_000.0);
+        System.out.printf("Transliterator.ASCII_LATIN:   %.2f ms (%.1fx)%n",
+                tableAscii / 1_000_000.0, (double) legacyAscii / tableAscii);
+        System.out.printf("LocationService array scan:   %.2f ms%n", legacySerbian / 1_000_000.0);
+        System.out.printf("Transliterator.SERBIAN_LATIN: %.2f ms (%.1fx)%n",
+                tableSerbian / 1_000_000.0, (double) legacySerbian / tableSerbian);
+
+        assertTrue("Table transliteration should beat the replace chain", tableAscii < legacyAscii);
+        assertTrue("Table transliteration should beat the array scan", tableSerbian < legacySerbian);
+    }
+
+    private long measure(Runnable work) {
+        // Warm up
+        for (int i = 0; i < 3; i++) {
+            work.run();
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            work.run();
+        }
+        return System.nanoTime() - startTime;
+    }
+
+    // TextUtils.transformToLatin before the Transliterator
+    private static String legacyTransformToLatin(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return text;
+        }
+        String latinized = legacyCyrillicToLatin(text);
+        String normalized = Normalizer.normalize(latinized, Normalizer.Form.NFD);
+        return normalized.replaceAll("[\\p{InCombiningDiacriticalMarks}]", "");
+    }
+
+    private static String legacyCyrillicToLatin(String text) {
+        return text
+                .replace("А", "A").replace("а", "a")
+                .replace("Б", "B").replace("б", "b")
+                .replace("В", "V").replace("в", "v")
+                .replace("Г", "G").replace("г", "g")
+                .replace("Д", "D").replace("д", "d")
+                .replace("Ђ", "Dj").replace("ђ", "dj")
+                .replace("Е", "E").replace("е", "e")
+                .replace("Ж", "Z").replace("ж", "z")
+                .replace("З", "Z").replace("з", "z")
+                .replace("И", "I").replace("и", "i")
+                .replace("Ј", "J").replace("ј", "j")
+                .replace("К", "K").replace("к", "k")
+                .replace("Л", "L").replace("л", "l")
+                .replace("Љ", "Lj").replace("љ", "lj")
+                .replace("М", "M").replace("м", "m")
+                .replace("Н", "N").replace("н", "n")
+                .replace("Њ", "Nj").replace("њ", "nj")
+                .replace("О", "O").replace("о", "o")
+                .replace("П", "P").replace("п", "p")
+                .replace("Р", "R").replace("р", "r")
+                .replace("С", "S").replace("с", "s")
+                .replace("Т", "T").replace("т", "t")
+                .replace("Ћ", "C").replace("ћ", "c")
+                .replace("У", "U").replace("у", "u")
+                .replace("Ф", "F").replace("ф", "f")
+                .replace("Х", "H").replace("х", "h")
+                .replace("Ц", "C").replace("ц", "c")
+                .replace("Ч", "C").replace("ч", "c")
+                .replace("Џ", "Dz").replace("џ", "dz")
+                .replace("Ш", "S").replace("ш", "s");
+    }
+
+    // LocationService.cyrillicToSerbianLatin before the Transliterator
+    private static String legacyCyrillicToSerbianLatin(String text) {
+        if (text == null) return null;
+        String[][] map = {
+                {"А", "A"}, {"а", "a"}, {"Б", "B"}, {"б", "b"}, {"В", "V"}, {"в", "v"}, {"Г", "G"}, {"г", "g"}, {"Д", "D"}, {"д", "d"},
+                {"Ђ", "Đ"}, {"ђ", "đ"}, {"Е", "E"}, {"е", "e"}, {"Ж", "Ž"}, {"ж", "ž"}, {"З", "Z"}, {"з", "z"}, {"И", "I"}, {"и", "i"},
+                {"Ј", "J"}, {"ј", "j"}, {"К", "K"}, {"к", "k"}, {"Л", "L"}, {"л", "l"}, {"Љ", "Lj"}, {"љ", "lj"}, {"М", "M"}, {"м", "m"},
+                {"Н", "N"}, {"н", "n"}, {"Њ", "Nj"}, {"њ", "nj"}, {"О", "O"}, {"о", "o"}, {"П", "P"}, {"п", "p"}, {"Р", "R"}, {"р", "r"},
+                {"С", "S"}, {"с", "s"}, {"Т", "T"}, {"т", "t"}, {"Ћ", "Ć"}, {"ћ", "ć"}, {"У", "U"}, {"у", "u"}, {"Ф", "F"}, {"ф", "f"},
+                {"Х", "H"}, {"х", "h"}, {"Ц", "C"}, {"ц", "c"}, {"Ч", "Č"}, {"ч", "č"}, {"Џ", "Dž"}, {"џ", "dž"}, {"Ш", "Š"}, {"ш", "š"}
+        };
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            String ch = String.valueOf(text.charAt(i));
+            boolean replaced = false;
+            for (String[] pair : map) {
+                if (pair[0].equals(ch)) {
+                    sb.append(pair[1]);
+                    replaced = true;
+                    break;
+                }
+            }
+            if (!replaced) sb.append(ch);
+        }
+        return sb.toString();
+    }
+}
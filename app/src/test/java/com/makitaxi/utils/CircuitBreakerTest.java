@@ -0,0 +1,94 @@
+package com.makitaxi.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    private long now;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        now = 0;
+        breaker = new CircuitBreaker(3, 4000, 30000, () -> now);
+    }
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void testSuccessResetsFailureCount() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess(200);
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testSlowCallsCountAsFailures() {
+        breaker.recordSuccess(5000);
+        breaker.recordSuccess(6000);
+        breaker.recordSuccess(9000);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenAllowsSingleTrial() {
+        openBreaker();
+        now = 30000;
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordSuccess(300);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testFailedTrialReopens() {
+        openBreaker();
+        now = 30000;
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now = 45000;
+        assertFalse(breaker.allowRequest());
+        now = 60000;
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testIgnoredTrialReleasesSlot() {
+        openBreaker();
+        now = 30000;
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordIgnored();
+        assertTrue(breaker.allowRequest());
+    }
+
+    private void openBreaker() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordFailure();
+    }
+}
@@ -0,0 +1,24 @@
+package com.makitaxi.utils;
+
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+
+import static org.junit.Assert.*;
+
+public class GeoDistanceTest {
+
+    @Test
+    public void testKnownDistance() {
+        // Slavija to Kalemegdan is a little over 2.5 km in a straight line
+        double km = GeoDistance.haversineKm(44.8025, 20.4662, 44.8231, 20.4504);
+        assertEquals(2.6, km, 0.1);
+    }
+
+    @Test
+    public void testSymmetricAndZero() {
+        GeoPoint a = new GeoPoint(44.8125, 20.4612);
+        GeoPoint b = new GeoPoint(45.2671, 19.8335);
+        assertEquals(GeoDistance.haversineKm(a, b), GeoDistance.haversineKm(b, a), 1e-9);
+        assertEquals(0, GeoDistance.haversineKm(a, a), 1e-9);
+    }
+}
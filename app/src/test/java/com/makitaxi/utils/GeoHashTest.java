@@ -0,0 +1,22 @@
+package com.makitaxi.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GeoHashTest {
+
+    @Test
+    public void testKnownHashes() {
+        assertEquals("ezs42", GeoHash.encode(42.605, -5.603, 5));
+        assertEquals("sry", GeoHash.encode(44.8125, 20.4612, 3));
+    }
+
+    @Test
+    public void testPrecisionIsPrefix() {
+        String full = GeoHash.encode(44.81654, 20.46009, 9);
+
+        assertEquals(9, full.length());
+        assertEquals(full.substring(0, 7), GeoHash.encode(44.81654, 20.46009, 7));
+    }
+}
@@ -0,0 +1,76 @@
+package com.makitaxi.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class PdfStreamWriterTest {
+
+    private static String write(int pages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfStreamWriter writer = new PdfStreamWriter(out, 842, 595);
+        for (int i = 0; i < pages; i++) {
+            writer.startPage();
+            writer.drawText("Page (" + i + ")", 50, 50, 12, false, PdfStreamWriter.Align.LEFT);
+            writer.finishPage();
+        }
+        writer.close();
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testPageTreeListsEveryPage() throws IOException {
+        String pdf = write(3);
+
+        assertTrue(pdf.startsWith("%PDF-1.4"));
+        assertTrue(pdf.endsWith("%%EOF\n"));
+        assertTrue(pdf.contains("/Type /Pages /Count 3 /Kids [6 0 R 8 0 R 10 0 R ]"));
+    }
+
+    @Test
+    public void testXrefOffsetsPointAtObjects() throws IOException {
+        String pdf = write(2);
+
+        int startxref = Integer.parseInt(pdf.substring(pdf.lastIndexOf("startxref\n") + 10, pdf.lastIndexOf("\n%%EOF")));
+        assertTrue(pdf.startsWith("xref\n", startxref));
+
+        Matcher entries = Pattern.compile("(\\d{10}) 00000 n ").matcher(pdf.substring(startxref));
+        int object = 1;
+        while (entries.find()) {
+            int offset = Integer.parseInt(entries.group(1));
+            assertTrue("object " + object, pdf.startsWith(object + " 0 obj\n", offset));
+            object++;
+        }
+        // Catalog, page tree and two fonts, then a content stream and a page object per page
+        assertEquals(8, object - 1);
+    }
+
+    @Test
+    public void testEmptyDocumentGetsOnePage() throws IOException {
+        assertTrue(write(0).contains("/Count 1 "));
+    }
+
+    @Test
+    public void testTextWidthFromFontMetrics() {
+        assertEquals(5.56f, PdfStreamWriter.textWidth("a", 10, false), 0.001f);
+        assertEquals(6.11f, PdfStreamWriter.textWidth("b", 10, true), 0.001f);
+        // Folded to "Cacak" before measuring
+        assertEquals(PdfStreamWriter.textWidth("Cacak", 12, false), PdfStreamWriter.textWidth("Čačak", 12, false), 0.001f);
+    }
+
+    @Test
+    public void testFitCutsWithEllipsis() {
+        assertEquals("Slavija", PdfStreamWriter.fit("Slavija", 100, 12, false));
+        assertEquals("Beograd", PdfStreamWriter.fit("Београд", 100, 12, false));
+
+        String fitted = PdfStreamWriter.fit("Bulevar kralja Aleksandra 73, Beograd", 100, 12, false);
+        assertTrue(fitted.endsWith("..."));
+        assertTrue(PdfStreamWriter.textWidth(fitted, 12, false) <= 100);
+    }
+}
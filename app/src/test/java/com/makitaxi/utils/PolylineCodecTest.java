@@ -0,0 +1,64 @@
+package com.makitaxi.utils;
+
+import org.junit.Test;
+import org.osmdroid.util.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PolylineCodecTest {
+
+    @Test
+    public void testRoundTripKeepsSixDecimals() {
+        List<GeoPoint> route = Arrays.asList(
+                new GeoPoint(44.816271, 20.460476),
+                new GeoPoint(44.813542, 20.461823),
+                new GeoPoint(44.805120, 20.475901)
+        );
+
+        List<GeoPoint> decoded = PolylineCodec.decode(PolylineCodec.encode(route));
+
+        assertEquals(route.size(), decoded.size());
+        for (int i = 0; i < route.size(); i++) {
+            assertEquals(route.get(i).getLatitude(), decoded.get(i).getLatitude(), 1e-6);
+            assertEquals(route.get(i).getLongitude(), decoded.get(i).getLongitude(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testKnownEncoding() {
+        // Reference value from the polyline6 format description
+        List<GeoPoint> route = Arrays.asList(
+                new GeoPoint(38.5, -120.2),
+                new GeoPoint(40.7, -120.95),
+                new GeoPoint(43.252, -126.453)
+        );
+
+        assertEquals("_izlhA~rlgdF_{geC~ywl@_kwzCn`{nI", PolylineCodec.encode(route));
+    }
+
+    @Test
+    public void testEncodingIsCompact() {
+        List<GeoPoint> route = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            route.add(new GeoPoint(44.8 + i * 0.0001, 20.4 + i * 0.0001));
+        }
+
+        String encoded = PolylineCodec.encode(route);
+
+        // Small deltas take a few characters per point instead of two full doubles
+        assertTrue(encoded.length() < route.size() * 10);
+    }
+
+    @Test
+    public void testEmptyAndInvalidInput() {
+        assertNull(PolylineCodec.encode(null));
+        assertNull(PolylineCodec.encode(new ArrayList<>()));
+        assertTrue(PolylineCodec.decode(null).isEmpty());
+        assertTrue(PolylineCodec.decode("").isEmpty());
+        assertTrue(PolylineCodec.decode("_izlhA~rlgd").isEmpty());
+    }
+}
@@ -0,0 +1,195 @@
+package com.makitaxi.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.osmdroid.util.GeoPoint;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class RouteServiceTest {
+
+    private static final GeoPoint SLAVIJA = new GeoPoint(44.8025, 20.4666);
+    private static final GeoPoint TERAZIJE = new GeoPoint(44.8134, 20.4613);
+
+    private static final String ROUTE_JSON = "{\"routes\":[{\"geometry\":{\"coordinates\":"
+            + "[[20.4666,44.8025],[20.4640,44.8080],[20.4613,44.8134]]},\"distance\":1500,\"duration\":240}]}";
+
+    private final List<FakeCall> calls = new ArrayList<>();
+    private RouteService routeService;
+
+    @Before
+    public void setUp() {
+        routeService = new RouteService(request -> {
+            FakeCall call = new FakeCall(request);
+            calls.add(call);
+            return call;
+        }, new CircuitBreaker(3, 4000, 30000));
+    }
+
+    @Test
+    public void testIdenticalRequestsShareOneCall() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        routeService.getRoute(SLAVIJA, TERAZIJE, first);
+        routeService.getRoute(SLAVIJA, TERAZIJE, second);
+
+        assertEquals(1, calls.size());
+        calls.get(0).respond(ROUTE_JSON);
+        assertNull(first.error);
+        assertEquals(3, first.routePoints.size());
+        assertEquals(3, second.routePoints.size());
+        assertEquals(1.5, second.distance, 1e-9);
+    }
+
+    @Test
+    public void testCancellingOneHandleKeepsTheCallForTheOther() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        RouteService.RouteHandle firstHandle = routeService.getRoute(SLAVIJA, TERAZIJE, first);
+        RouteService.RouteHandle secondHandle = routeService.getRoute(SLAVIJA, TERAZIJE, second);
+
+        firstHandle.cancel();
+        assertFalse(calls.get(0).isCanceled());
+
+        calls.get(0).respond(ROUTE_JSON);
+        assertNull(first.routePoints);
+        assertNotNull(second.routePoints);
+        assertTrue(secondHandle.isDone());
+    }
+
+    @Test
+    public void testCancellingLastHandleCancelsTheCall() {
+        RouteService.RouteHandle firstHandle = routeService.getRoute(SLAVIJA, TERAZIJE, new RecordingCallback());
+        RouteService.RouteHandle secondHandle = routeService.getRoute(SLAVIJA, TERAZIJE, new RecordingCallback());
+
+        firstHandle.cancel();
+        secondHandle.cancel();
+        assertTrue(calls.get(0).isCanceled());
+
+        // The next caller starts a new request rather than joining the cancelled one
+        routeService.getRoute(SLAVIJA, TERAZIJE, new RecordingCallback());
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void testDiscardedPrefetchDropsOnlyItsOwnRoute() {
+        RouteService.RouteHandle prefetch = routeService.prefetch(SLAVIJA, TERAZIJE);
+        calls.get(0).respond(ROUTE_JSON);
+        routeService.discardPrefetch(prefetch);
+
+        routeService.getRoute(SLAVIJA, TERAZIJE, new RecordingCallback());
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void testDiscardedPrefetchKeepsRouteAnotherCallerAskedFor() {
+        RouteService.RouteHandle prefetch = routeService.prefetch(SLAVIJA, TERAZIJE);
+        routeService.getRoute(SLAVIJA, TERAZIJE, new RecordingCallback());
+        calls.get(0).respond(ROUTE_JSON);
+        routeService.discardPrefetch(prefetch);
+
+        RecordingCallback cached = new RecordingCallback();
+        routeService.getRoute(SLAVIJA, TERAZIJE, cached);
+        assertEquals(1, calls.size());
+        assertNotNull(cached.routePoints);
+    }
+
+    private static class RecordingCallback implements RouteService.RoutingCallback {
+        List<GeoPoint> routePoints;
+        double distance;
+        String error;
+
+        @Override
+        public void onRouteFound(List<GeoPoint> routePoints, double distance, double duration) {
+            this.routePoints = routePoints;
+            this.distance = distance;
+        }
+
+        @Override
+        public void onRoutingError(String error) {
+            this.error = error;
+        }
+    }
+
+    // Answered by the test on its own thread instead of going to the network
+    private static class FakeCall implements Call {
+        private final Request request;
+        private Callback callback;
+        private boolean canceled;
+
+        FakeCall(Request request) {
+            this.request = request;
+        }
+
+        void respond(String json) {
+            Response response = new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(json, MediaType.get("application/json")))
+                    .build();
+            try {
+                callback.onResponse(this, response);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public Response execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(Callback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return callback != null;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public Call clone() {
+            return new FakeCall(request);
+        }
+    }
+}
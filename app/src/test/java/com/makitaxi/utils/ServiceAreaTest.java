@@ -0,0 +1,35 @@
+package com.makitaxi.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ServiceAreaTest {
+
+    @Test
+    public void testBelgradeContainsCityPoints() {
+        assertTrue(ServiceArea.BELGRADE.contains(44.8125, 20.4612));   // Terazije
+        assertTrue(ServiceArea.BELGRADE.contains(44.8206, 20.4106));   // Novi Beograd
+        assertTrue(ServiceArea.BELGRADE.contains(44.8430, 20.4010));   // Zemun
+    }
+
+    @Test
+    public void testBelgradeExcludesOutsidePoints() {
+        assertFalse(ServiceArea.BELGRADE.contains(45.2671, 19.8335));  // Novi Sad
+        assertFalse(ServiceArea.BELGRADE.contains(44.66, 20.25));      // inside bounds, outside polygon
+        assertFalse(ServiceArea.BELGRADE.contains(null));
+    }
+
+    @Test
+    public void testBoundsAndCenter() {
+        ServiceArea square = new ServiceArea(new double[][]{{1, 1}, {1, 3}, {-1, 3}, {-1, 1}});
+
+        assertEquals(1, square.getNorth(), 0);
+        assertEquals(-1, square.getSouth(), 0);
+        assertEquals(3, square.getEast(), 0);
+        assertEquals(1, square.getWest(), 0);
+        assertEquals(2, square.getCenter().getLongitude(), 0);
+        assertTrue(square.contains(0, 2));
+        assertFalse(square.contains(0, 4));
+    }
+}
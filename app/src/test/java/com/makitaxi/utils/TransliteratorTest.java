@@ -0,0 +1,56 @@
+package com.makitaxi.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransliteratorTest {
+
+    @Test
+    public void testSerbianLatinKeepsDiacritics() {
+        assertEquals("Knez Mihailova", Transliterator.SERBIAN_LATIN.transliterate("Кнез Михаилова"));
+        assertEquals("Đorđa Ćirića, Džervinova, Šafarikova",
+                Transliterator.SERBIAN_LATIN.transliterate("Ђорђа Ћирића, Џервинова, Шафарикова"));
+        assertEquals("Ljube Nenadovića, Njegoševa",
+                Transliterator.SERBIAN_LATIN.transliterate("Љубе Ненадовића, Његошева"));
+    }
+
+    @Test
+    public void testAsciiLatinFoldsDiacritics() {
+        assertEquals("Djordja Cirica, Dzervinova, Safarikova",
+                Transliterator.ASCII_LATIN.transliterate("Ђорђа Ћирића, Џервинова, Шафарикова"));
+        assertEquals("Cika Ljubina", Transliterator.ASCII_LATIN.transliterate("Čika Ljubina"));
+        assertEquals("Cafe", Transliterator.ASCII_LATIN.transliterate("Café"));
+    }
+
+    @Test
+    public void testUnchangedTextIsReturnedAsIs() {
+        String latin = "Bulevar kralja Aleksandra 73";
+
+        assertSame(latin, Transliterator.ASCII_LATIN.transliterate(latin));
+        assertSame(latin, Transliterator.SERBIAN_LATIN.transliterate(latin));
+        assertNull(Transliterator.ASCII_LATIN.transliterate(null));
+    }
+
+    @Test
+    public void testCharsOutsideTable() {
+        // Serbian mode leaves them alone, ASCII mode still strips combining marks via Normalizer
+        assertEquals("Trg € 1", Transliterator.SERBIAN_LATIN.transliterate("Трг € 1"));
+        assertEquals("Trg € Cacak", Transliterator.ASCII_LATIN.transliterate("Трг € Чачак"));
+    }
+
+    @Test
+    public void testAppendsToBuilder() {
+        StringBuilder out = new StringBuilder("Adresa: ");
+
+        Transliterator.SERBIAN_LATIN.transliterate("Теразије", out);
+
+        assertEquals("Adresa: Terazije", out.toString());
+    }
+
+    @Test
+    public void testTextUtilsUsesAsciiMode() {
+        assertEquals("Zeleni venac", TextUtils.transformToLatin("Зелени венац"));
+        assertEquals("  ", TextUtils.transformToLatin("  "));
+    }
+}